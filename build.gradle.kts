@@ -19,6 +19,18 @@ configurations {
     }
 }
 
+// Бенчмарки і симулятор Steam – поза bootJar; тести бачать синтетичні сторінки
+sourceSets {
+    create("bench") {
+        compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+        runtimeClasspath += sourceSets.main.get().output + sourceSets.main.get().runtimeClasspath
+    }
+    test {
+        compileClasspath += sourceSets["bench"].output
+        runtimeClasspath += sourceSets["bench"].output
+    }
+}
+
 repositories {
     mavenCentral()
 }
@@ -32,13 +44,48 @@ dependencies {
     implementation("org.flywaydb:flyway-mysql")
     compileOnly("org.projectlombok:lombok")
     developmentOnly("org.springframework.boot:spring-boot-devtools")
-    runtimeOnly("com.mysql:mysql-connector-j")
+    implementation("com.mysql:mysql-connector-j")
     annotationProcessor("org.projectlombok:lombok")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testImplementation("org.springframework.batch:spring-batch-test")
+    testImplementation("org.testcontainers:junit-jupiter")
+    testImplementation("org.testcontainers:mysql")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+tasks.register<JavaExec>("decoderBenchmark") {
+    group = "verification"
+    description = "Allocation and time per match: JsonNode tree vs streaming decoder"
+    classpath = sourceSets["bench"].runtimeClasspath
+    mainClass.set("com.myorg.dota.service.ingest.DecoderBenchmark")
+}
+
+tasks.register<JavaExec>("ingestBenchmark") {
+    group = "verification"
+    description = "Matches/s of the whole ingest pipeline against the Steam simulator " +
+            "(needs --bench.datasource.url=<scratch db> or --bench.allow-write)"
+    classpath = sourceSets["bench"].runtimeClasspath
+    mainClass.set("com.myorg.dota.service.IngestBenchmark")
+}
+
+tasks.register("abilitySnapshot") {
+    group = "build setup"
+    description = "Refreshes the bundled dotaconstants ability_ids.json read by AbilityDictionary " +
+            "(and writes V7's frozen copy once, if it is missing)"
+    val target = file("src/main/resources/dotaconstants/ability_ids.json")
+    val v7Copy = file("src/main/resources/db/migration/V7__ability_ids.json")
+    doLast {
+        target.parentFile.mkdirs()
+        uri("https://raw.githubusercontent.com/odota/dotaconstants/master/build/ability_ids.json")
+            .toURL().openStream().use { input -> target.outputStream().use { input.copyTo(it) } }
+        logger.lifecycle("ability_ids.json → $target")
+        if (!v7Copy.exists()) {
+            target.copyTo(v7Copy)
+            logger.lifecycle("ability_ids.json → $v7Copy (frozen with V7, never refreshed)")
+        }
+    }
+}
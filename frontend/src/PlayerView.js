@@ -157,11 +157,36 @@ function TeamWidget({ mates }) {
         </div>
     );
 }
+// Запускає ingest-job і чекає на SSE-подію «done»; прогрес віддає в onProgress
+function runIngestJob(url, onProgress) {
+    return axios.post(url).then(({ data }) => new Promise((resolve, reject) => {
+        const es = new EventSource(data.events);
+        es.addEventListener('progress', e => onProgress(JSON.parse(e.data)));
+        es.addEventListener('done', e => {
+            es.close();
+            const job = JSON.parse(e.data);
+            onProgress(job);
+            job.status === 'FAILED' ? reject(new Error(job.error)) : resolve(job);
+        });
+        es.onerror = () => {
+            if (es.readyState === EventSource.CLOSED) reject(new Error('ingest events closed'));
+        };
+    }));
+}
+
+function ingestProgressText(p) {
+    if (!p) return 'Завантаження останніх матчів з Steam...';
+    if (!p.total) return 'Завантаження останніх матчів з Steam...';
+    const eta = p.etaSeconds != null ? ` (≈ ${p.etaSeconds} с)` : '';
+    return `Завантажено ${p.written} з ${p.total} матчів${eta}...`;
+}
+
 export default function PlayerView() {
     const { accountId } = useParams();
     const navigate = useNavigate();
 
     const [loadingIngest, setLoadingIngest] = useState(false);
+    const [ingestProgress, setIngestProgress] = useState(null);
 
     const {
         data: heroesMap = {},
@@ -204,14 +229,22 @@ export default function PlayerView() {
         if (loadingIngest) return;
         setLoadingIngest(true);
         try {
-            await axios.post(`/api/admin/ingest/full/${accountId}`);
-            // перший рефетч одразу
+            // історія пишеться порціями – нові матчі з'являються ще до кінця job-а
+            let lastRefetch = 0;
+            await runIngestJob(`/api/admin/ingest/full/${accountId}`, p => {
+                setIngestProgress(p);
+                if (p.written > 0 && Date.now() - lastRefetch > 15_000) {
+                    lastRefetch = Date.now();
+                    refetchMatches();
+                }
+            });
             await Promise.all([
                          refetchMatches(),
                          refetchStats()
                        ]);
         } finally {
             setLoadingIngest(false);
+            setIngestProgress(null);
         }
     };
     useEffect(() => {
@@ -220,17 +253,16 @@ export default function PlayerView() {
         const intervalId = setInterval(() => {
             console.log('Auto-ingest triggered');
             setLoadingIngest(true);
-            axios.post(`/api/admin/ingest/${accountId}?limit=20`)
-                .then(() => Promise.all([
-                    axios.get(`/api/players/${accountId}/matches?limit=5000`),
-                    axios.get(`/api/players/${accountId}/stats?limit=5000`)
-                ]))
+            runIngestJob(`/api/admin/ingest/${accountId}?limit=20`, setIngestProgress)
                 .then(() => {
                     refetchMatches();
                     refetchStats();
                 })
                 .catch(console.error)
-                .finally(() => setLoadingIngest(false));
+                .finally(() => {
+                    setLoadingIngest(false);
+                    setIngestProgress(null);
+                });
         }, 10 * 60 * 1000); // 10 хвилин
 
         return () => clearInterval(intervalId);
@@ -241,17 +273,16 @@ export default function PlayerView() {
         if (!accountId || loading || loadingIngest) return;
         if (matches.length < 100) {
             setLoadingIngest(true);
-            axios.post(`/api/admin/ingest/${accountId}?limit=200`)
-                .then(() => Promise.all([
-                    axios.get(`/api/players/${accountId}/matches?limit=5000`),
-                    axios.get(`/api/players/${accountId}/stats?limit=5000`)
-                ]))
+            runIngestJob(`/api/admin/ingest/${accountId}?limit=200`, setIngestProgress)
                 .then(() => {
                     refetchMatches();
                     refetchStats();
                 })
                 .catch(console.error)
-                .finally(() => setLoadingIngest(false));
+                .finally(() => {
+                    setLoadingIngest(false);
+                    setIngestProgress(null);
+                });
         }
     }, [accountId, matches, loading, loadingIngest, refetchMatches, refetchStats]);
 
@@ -409,7 +440,7 @@ export default function PlayerView() {
                 ingestLoading={loadingIngest}
                 onSearchSelect={id => navigate(`/players/${id}`)}
             />
-            {loadingIngest && <div className="loading-ingest">Завантаження останніх матчів з Steam...</div>}
+            {loadingIngest && <div className="loading-ingest">{ingestProgressText(ingestProgress)}</div>}
 
             {/* Головна розкладка */}
             <div className="player-view">
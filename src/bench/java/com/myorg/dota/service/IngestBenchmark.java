@@ -0,0 +1,156 @@
+package com.myorg.dota.service;
+
+import com.myorg.dota.DotaBackendApplication;
+import com.myorg.dota.service.ingest.IngestProgress;
+import com.myorg.dota.service.ingest.KnownMatchIndex;
+import com.myorg.dota.service.steam.SteamLane;
+import com.myorg.dota.service.steam.SteamRateController;
+import com.myorg.dota.service.steam.SteamSimulator;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Whole-pipeline ingest throughput against {@link SteamSimulator}: history
+ * paging, seq windows, decoding, chunk writes into the configured database.
+ * <p>
+ * {@code ./gradlew ingestBenchmark --args="--bench.datasource.url=jdbc:mysql://localhost/dota_bench --bench.accounts=20"}
+ * <p>
+ * Simulated matches (ids above {@value SteamSimulator#MATCH_ID_OFFSET}) are
+ * really written, so the benchmark refuses to start unless it is pointed at a
+ * scratch schema with {@code --bench.datasource.url} (plus
+ * {@code .username} / {@code .password}), or told {@code --bench.allow-write}
+ * to use the configured {@code spring.datasource.*}. The player scheduler and
+ * the work-queue workers are off, so nothing but the benchmark runs.
+ * Each run moves the simulator's head above the previous run's matches, so
+ * runs are repeatable: same accounts, same history shape, nothing known yet.
+ * The rate budget is lifted unless {@code steam.ingest.rps} is given, so the
+ * numbers are the pipeline's, not the budget's. Reports matches/s, Steam
+ * calls per match and where the time went.
+ */
+public final class IngestBenchmark {
+
+    private static final Map<String, String> DEFAULTS = Map.of(
+            "steam.client",                         "simulator",
+            "steam.ingest.rps",                     "200",
+            "steam.rate.max-rps",                   "400",
+            "steam.firehose.enabled",               "false",
+            "steam.ingest.batch.resume-on-startup", "false",
+            "steam.archive.enabled",                "false",
+            "steam.scheduler.workers",              "0",
+            "steam.work.workers",                   "0",
+            "dota.seed.enabled",                    "false",
+            "spring.batch.job.enabled",             "false");
+
+    public static void main(String[] args) throws Exception {
+        List<String> argv = new ArrayList<>(List.of(args));
+        if (!scratchDatabase(argv)) {
+            System.err.println("ingest benchmark writes matches: pass --bench.datasource.url=<scratch schema> "
+                    + "or --bench.allow-write to use spring.datasource.url");
+            System.exit(2);
+        }
+        DEFAULTS.forEach((k, v) -> {
+            if (argv.stream().noneMatch(a -> a.startsWith("--" + k + "="))) argv.add("--" + k + "=" + v);
+        });
+
+        SpringApplication app = new SpringApplication(DotaBackendApplication.class);
+        app.setWebApplicationType(WebApplicationType.NONE);
+        int status = 0;
+        try (ConfigurableApplicationContext ctx = app.run(argv.toArray(String[]::new))) {
+            run(ctx);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            status = 1;
+        }
+        System.exit(status);
+    }
+
+    /** Maps {@code bench.datasource.*} onto {@code spring.datasource.*}; false with neither it nor allow-write. */
+    private static boolean scratchDatabase(List<String> argv) {
+        boolean scratch = false, allowWrite = false;
+        for (String a : List.copyOf(argv)) {
+            if (a.startsWith("--bench.datasource.")) {
+                argv.add("--spring.datasource." + a.substring("--bench.datasource.".length()));
+                scratch |= a.startsWith("--bench.datasource.url=");
+            }
+            allowWrite |= a.equals("--bench.allow-write") || a.equals("--bench.allow-write=true");
+        }
+        return scratch || allowWrite;
+    }
+
+    private static void run(ConfigurableApplicationContext ctx) throws Exception {
+        Environment env = ctx.getEnvironment();
+        int accounts = env.getProperty("bench.accounts", Integer.class, 20);
+        int parallel = env.getProperty("bench.parallel", Integer.class, 4);
+        boolean bulk = env.getProperty("bench.bulk", Boolean.class, true);
+
+        SteamMatchIngestService ingest = ctx.getBean(SteamMatchIngestService.class);
+        SteamSimulator sim             = ctx.getBean(SteamSimulator.class);
+        SteamRateController rate       = ctx.getBean(SteamRateController.class);
+        KnownMatchIndex known          = ctx.getBean(KnownMatchIndex.class);
+        JdbcTemplate jdbc              = ctx.getBean(JdbcTemplate.class);
+
+        while (!known.isReady()) Thread.sleep(100);
+
+        Long maxSim = jdbc.queryForObject("SELECT MAX(match_id) FROM fact_matches WHERE match_id >= ?",
+                Long.class, SteamSimulator.MATCH_ID_OFFSET);
+        if (maxSim != null)
+            sim.moveHead(Math.max(sim.head(), maxSim - SteamSimulator.MATCH_ID_OFFSET + 1 + sim.historySpan()));
+
+        Map<String, Object> calls0 = sim.stats();
+        Map<String, Object> flush0 = ingest.flushStats();
+        LongAdder written = new LongAdder(), failed = new LongAdder();
+        IngestProgress progress = new IngestProgress() {
+            @Override public void written(int matches) { written.add(matches); }
+            @Override public void failed(int matches)  { failed.add(matches); }
+        };
+
+        System.out.printf("ingest benchmark: %d accounts, %d in parallel, bulk=%s, head seq %d%n",
+                accounts, parallel, bulk, sim.head());
+        IngestOptions opts = new IngestOptions(bulk, false, SteamLane.BACKFILL);
+        ExecutorService pool = Executors.newFixedThreadPool(parallel);
+        long t0 = System.nanoTime();
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int a = 1; a <= accounts; a++) {
+                long accountId = a;
+                runs.add(pool.submit(() -> ingest.ingestHistory(accountId, opts, progress)));
+            }
+            for (Future<?> f : runs) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        double secs = (System.nanoTime() - t0) / 1e9;
+
+        long matches = written.sum();
+        Map<String, Object> calls1 = sim.stats();
+        Map<String, Object> flush1 = ingest.flushStats();
+        long history = delta(calls0, calls1, "history_calls");
+        long seq     = delta(calls0, calls1, "seq_calls");
+        long chunks  = delta(flush0, flush1, "chunks");
+        long flushMs = delta(flush0, flush1, "flush_ms");
+
+        System.out.printf("matches written   %,d (%,d failed) in %.1f s%n", matches, failed.sum(), secs);
+        System.out.printf("throughput        %,.1f matches/s%n", matches / secs);
+        System.out.printf("steam calls       %,d history + %,d seq = %.3f calls/match (%,d throttled)%n",
+                history, seq, matches == 0 ? 0.0 : (history + seq) / (double) matches,
+                delta(calls0, calls1, "throttled"));
+        System.out.printf("db flush          %,d chunks, %,d ms total, %.1f ms/chunk, %.3f ms/match%n",
+                chunks, flushMs, chunks == 0 ? 0.0 : flushMs / (double) chunks,
+                matches == 0 ? 0.0 : flushMs / (double) matches);
+        System.out.printf("seq windows       %s%n", ingest.windowStats());
+        System.out.printf("rate              %.1f rps at the end%n", rate.currentRate());
+    }
+
+    private static long delta(Map<String, Object> before, Map<String, Object> after, String key) {
+        return ((Number) after.get(key)).longValue() - ((Number) before.get(key)).longValue();
+    }
+}
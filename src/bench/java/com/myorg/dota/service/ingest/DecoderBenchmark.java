@@ -0,0 +1,69 @@
+package com.myorg.dota.service.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.LongPredicate;
+
+/**
+ * Bytes allocated and time per match for {@link TreeMatchDecoder} vs
+ * {@link StreamingMatchDecoder} on a synthetic 100-match page.
+ * <p>
+ * {@code ./gradlew decoderBenchmark [-Pargs="rounds upgradesPerPlayer"]}
+ * <p>
+ * "rows" keeps every match and appends it to a reused {@link ChunkRows}, so it
+ * includes filling the column buffers (identical for both decoders); "parse"
+ * rejects every match and measures decoding alone.
+ */
+public final class DecoderBenchmark {
+
+    private static final int PAGE = 100;
+
+    public static void main(String[] args) throws Exception {
+        int rounds   = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int upgrades = args.length > 1 ? Integer.parseInt(args[1]) : 25;
+
+        byte[] page = SyntheticMatchPayloads.page(7_000_000_000L, 6_000_000_000L, PAGE, upgrades, 42);
+        System.out.printf("page: %d matches, %,d bytes%n", PAGE, page.length);
+
+        ObjectMapper om = new ObjectMapper();
+        MatchPageDecoder tree      = new TreeMatchDecoder(om);
+        MatchPageDecoder streaming = new StreamingMatchDecoder(om.getFactory());
+
+        for (String mode : new String[] { "rows", "parse" }) {
+            LongPredicate wanted = "rows".equals(mode) ? id -> true : id -> false;
+            measure("tree",      mode, tree,      page, wanted, rounds / 4);   // warm-up
+            measure("streaming", mode, streaming, page, wanted, rounds / 4);
+            report(measure("tree",      mode, tree,      page, wanted, rounds));
+            report(measure("streaming", mode, streaming, page, wanted, rounds));
+        }
+    }
+
+    private static Result measure(String name, String mode, MatchPageDecoder dec, byte[] page,
+                                  LongPredicate wanted, int rounds) throws Exception {
+        com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ChunkRows out = new ChunkRows();
+        long sink = 0;
+
+        long bytes0 = mx.getCurrentThreadAllocatedBytes();
+        long t0 = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            sink += dec.decode(page, wanted, out).lastSeq();
+            out.clear();
+        }
+        long nanos = System.nanoTime() - t0;
+        long bytes = mx.getCurrentThreadAllocatedBytes() - bytes0;
+
+        long matches = (long) rounds * PAGE;
+        if (sink == 42) System.out.print("");                    // keep the loop alive
+        return new Result(name, mode, bytes / matches, nanos / 1_000.0 / matches);
+    }
+
+    private static void report(Result r) {
+        System.out.printf("%-10s %-5s %,10d B/match %8.2f µs/match%n",
+                r.name, r.mode, r.bytesPerMatch, r.micros);
+    }
+
+    private record Result(String name, String mode, long bytesPerMatch, double micros) { }
+}
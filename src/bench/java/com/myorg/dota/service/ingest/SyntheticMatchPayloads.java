@@ -0,0 +1,125 @@
+package com.myorg.dota.service.ingest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+/**
+ * Builds {@code GetMatchHistoryBySequenceNum}-shaped responses with the same
+ * field set and ordering Steam uses, for benchmarks and offline runs.
+ * Match {@code i} of a page gets {@code match_seq_num = firstSeq + i} and
+ * {@code match_id = firstMatchId + i}.
+ */
+public final class SyntheticMatchPayloads {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private SyntheticMatchPayloads() { }
+
+    public static byte[] page(long firstMatchId, long firstSeq, int count,
+                              int upgradesPerPlayer, long seed) {
+        Random rnd = new Random(seed);
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(count * 12_000);
+        try (JsonGenerator g = FACTORY.createGenerator(buf)) {
+            g.writeStartObject();
+            g.writeObjectFieldStart("result");
+            g.writeNumberField("status", 1);
+            g.writeArrayFieldStart("matches");
+            for (int i = 0; i < count; i++)
+                writeMatch(g, firstMatchId + i, firstSeq + i, upgradesPerPlayer, rnd);
+            g.writeEndArray();
+            g.writeEndObject();
+            g.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buf.toByteArray();
+    }
+
+    private static void writeMatch(JsonGenerator g, long matchId, long seq,
+                                   int upgrades, Random rnd) throws IOException {
+        int duration = 1200 + rnd.nextInt(2400);
+        g.writeStartObject();
+        g.writeArrayFieldStart("players");
+        for (int p = 0; p < 10; p++) {
+            int slot = p < 5 ? p : 128 + p - 5;
+            g.writeStartObject();
+            g.writeNumberField("account_id", rnd.nextInt(5) == 0 ? 4294967295L : 10_000_000L + rnd.nextInt(90_000_000));
+            g.writeNumberField("player_slot", slot);
+            g.writeNumberField("team_number", p < 5 ? 0 : 1);
+            g.writeNumberField("team_slot", p % 5);
+            g.writeNumberField("hero_id", 1 + rnd.nextInt(138));
+            g.writeNumberField("hero_variant", 1 + rnd.nextInt(2));
+            for (int s = 0; s < 6; s++) g.writeNumberField("item_" + s, rnd.nextInt(4) == 0 ? 0 : 1 + rnd.nextInt(300));
+            for (int s = 0; s < 3; s++) g.writeNumberField("backpack_" + s, rnd.nextInt(300));
+            g.writeNumberField("item_neutral", rnd.nextInt(1600));
+            g.writeNumberField("kills", rnd.nextInt(20));
+            g.writeNumberField("deaths", rnd.nextInt(15));
+            g.writeNumberField("assists", rnd.nextInt(30));
+            g.writeNumberField("leaver_status", 0);
+            g.writeNumberField("last_hits", rnd.nextInt(400));
+            g.writeNumberField("denies", rnd.nextInt(30));
+            g.writeNumberField("gold_per_min", 200 + rnd.nextInt(600));
+            g.writeNumberField("xp_per_min", 250 + rnd.nextInt(700));
+            g.writeNumberField("level", 10 + rnd.nextInt(20));
+            g.writeNumberField("net_worth", 5_000 + rnd.nextInt(30_000));
+            g.writeNumberField("aghanims_scepter", rnd.nextInt(2));
+            g.writeNumberField("aghanims_shard", rnd.nextInt(2));
+            g.writeNumberField("moonshard", 0);
+            g.writeNumberField("hero_damage", rnd.nextInt(60_000));
+            g.writeNumberField("tower_damage", rnd.nextInt(10_000));
+            g.writeNumberField("hero_healing", rnd.nextInt(8_000));
+            g.writeNumberField("gold", rnd.nextInt(4_000));
+            g.writeNumberField("gold_spent", 5_000 + rnd.nextInt(30_000));
+            g.writeNumberField("scaled_hero_damage", rnd.nextInt(50_000));
+            g.writeNumberField("scaled_tower_damage", rnd.nextInt(8_000));
+            g.writeNumberField("scaled_hero_healing", rnd.nextInt(6_000));
+            g.writeArrayFieldStart("ability_upgrades");
+            for (int u = 0; u < upgrades; u++) {
+                g.writeStartObject();
+                g.writeNumberField("ability", 5000 + rnd.nextInt(2000));
+                g.writeNumberField("time", 60 + u * duration / Math.max(1, upgrades));
+                g.writeNumberField("level", u + 1);
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+        g.writeBooleanField("radiant_win", rnd.nextBoolean());
+        g.writeNumberField("duration", duration);
+        g.writeNumberField("pre_game_duration", 90);
+        g.writeNumberField("start_time", 1_700_000_000L + seq % 50_000_000L);
+        g.writeNumberField("match_id", matchId);
+        g.writeNumberField("match_seq_num", seq);
+        g.writeNumberField("tower_status_radiant", rnd.nextInt(2048));
+        g.writeNumberField("tower_status_dire", rnd.nextInt(2048));
+        g.writeNumberField("barracks_status_radiant", rnd.nextInt(64));
+        g.writeNumberField("barracks_status_dire", rnd.nextInt(64));
+        g.writeNumberField("cluster", 130 + rnd.nextInt(100));
+        g.writeNumberField("first_blood_time", rnd.nextInt(300));
+        g.writeNumberField("lobby_type", rnd.nextInt(3) == 0 ? 0 : 7);
+        g.writeNumberField("human_players", 10);
+        g.writeNumberField("leagueid", 0);
+        g.writeNumberField("game_mode", rnd.nextInt(4) == 0 ? 23 : 22);
+        g.writeNumberField("flags", 0);
+        g.writeNumberField("engine", 1);
+        g.writeNumberField("radiant_score", rnd.nextInt(60));
+        g.writeNumberField("dire_score", rnd.nextInt(60));
+        g.writeArrayFieldStart("picks_bans");
+        for (int k = 0; k < 24; k++) {
+            g.writeStartObject();
+            g.writeBooleanField("is_pick", k % 3 == 2);
+            g.writeNumberField("hero_id", 1 + rnd.nextInt(138));
+            g.writeNumberField("team", k % 2);
+            g.writeNumberField("order", k);
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+        g.writeEndObject();
+    }
+}
@@ -0,0 +1,196 @@
+package com.myorg.dota.service.steam;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.myorg.dota.dto.PlayerProfileDto;
+import com.myorg.dota.service.ingest.SyntheticMatchPayloads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * In-process {@link SteamClient} serving synthetic data, for offline runs and
+ * {@code IngestBenchmark} ({@code steam.client=simulator}).
+ * <p>
+ * The match sequence is dense below {@link #head()}: seq {@code s} is match
+ * {@code s + }{@value #MATCH_ID_OFFSET}, its body built by
+ * {@link SyntheticMatchPayloads} with {@code steam.simulator.upgrades-per-player}
+ * upgrades per player (the payload size knob). Every account has
+ * {@code history-size} matches, {@code seq-stride} apart, at an
+ * account-specific phase – so seq windows are as sparse as a real player's.
+ * <p>
+ * Calls still go through {@link SteamRateController}: each one waits for its
+ * lane, takes {@code latency} (±50 %) and is answered 429 with probability
+ * {@code throttle-rate}, which is reported and retried like {@link SteamApi} does.
+ */
+@Component
+@ConditionalOnProperty(name = "steam.client", havingValue = "simulator")
+public class SteamSimulator implements SteamClient {
+
+    private static final Logger log = LoggerFactory.getLogger(SteamSimulator.class);
+
+    /** Far above real match ids, so simulated rows are easy to tell apart. */
+    public static final long MATCH_ID_OFFSET = 1_000_000_000_000L;
+
+    private final SteamRateController rate;
+    private final ObjectMapper om = new ObjectMapper();
+
+    private final Duration latency;
+    private final double throttleRate;
+    private final int upgradesPerPlayer;
+    private final int historySize;
+    private final int seqStride;
+    private volatile long head;
+
+    private final Map<String, LongAdder> calls = new LinkedHashMap<>();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder bytes     = new LongAdder();
+
+    public SteamSimulator(SteamRateController rate,
+                          @Value("${steam.simulator.latency:PT0.15S}") Duration latency,
+                          @Value("${steam.simulator.throttle-rate:0.02}") double throttleRate,
+                          @Value("${steam.simulator.upgrades-per-player:25}") int upgradesPerPlayer,
+                          @Value("${steam.simulator.history-size:500}") int historySize,
+                          @Value("${steam.simulator.seq-stride:40}") int seqStride,
+                          @Value("${steam.simulator.head-seq:6000000000}") long headSeq) {
+        this.rate              = rate;
+        this.latency           = latency;
+        this.throttleRate      = throttleRate;
+        this.upgradesPerPlayer = upgradesPerPlayer;
+        this.historySize       = historySize;
+        this.seqStride         = Math.max(1, seqStride);
+        this.head              = headSeq;
+        for (String c : List.of("history", "latest", "seq", "summaries")) calls.put(c, new LongAdder());
+        log.warn("Steam simulator in use – no calls leave the process (latency {}, 429 rate {})", latency, throttleRate);
+    }
+
+    /** First seq that does not exist yet. */
+    public long head() {
+        return head;
+    }
+
+    /** Moves the head so a fresh set of histories lies above everything served so far. */
+    public void moveHead(long head) {
+        this.head = head;
+    }
+
+    /** Seqs one account's history spans below the head. */
+    public long historySpan() {
+        return (long) historySize * seqStride + seqStride;
+    }
+
+    @Override
+    public JsonNode matchHistory(SteamLane lane, long accountId, int requested, long startAtMatchId) {
+        return call(lane, "history", () -> {
+            long newest = head - 1 - phase(accountId);
+            long k0 = startAtMatchId <= 0 ? 0
+                    : Math.max(0, ceilDiv(newest + MATCH_ID_OFFSET - startAtMatchId, seqStride));
+            long k1 = Math.min(historySize, k0 + requested);
+
+            ObjectNode result = om.createObjectNode();
+            result.put("status", 1);
+            result.put("num_results", Math.max(0, k1 - k0));
+            result.put("total_results", historySize);
+            result.put("results_remaining", Math.max(0, historySize - k1));
+            ArrayNode arr = result.putArray("matches");
+            for (long k = k0; k < k1; k++) {
+                long seq = newest - k * seqStride;
+                arr.addObject()
+                   .put("match_id", seq + MATCH_ID_OFFSET)
+                   .put("match_seq_num", seq)
+                   .put("start_time", 1_700_000_000L + seq % 50_000_000L)
+                   .put("lobby_type", 7);
+            }
+            ObjectNode root = om.createObjectNode();
+            root.set("result", result);
+            return root;
+        }, om.missingNode());
+    }
+
+    @Override
+    public long latestMatchSeq(SteamLane lane) {
+        return call(lane, "latest", () -> head - 1, -1L);
+    }
+
+    @Override
+    public byte[] matchesBySeq(SteamLane lane, long startSeq, int requested) {
+        return call(lane, "seq", () -> {
+            int count = (int) Math.max(0, Math.min(requested, head - startSeq));
+            byte[] body = SyntheticMatchPayloads.page(startSeq + MATCH_ID_OFFSET, startSeq, count,
+                    upgradesPerPlayer, startSeq);
+            bytes.add(body.length);
+            return body;
+        }, null);
+    }
+
+    @Override
+    public Map<Long, PlayerProfileDto> playerSummaries(Collection<Long> accountIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(accountIds));
+        Map<Long, PlayerProfileDto> result = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += 100) {
+            List<Long> batch = ids.subList(i, Math.min(i + 100, ids.size()));
+            Boolean ok = call(SteamLane.INTERACTIVE, "summaries", () -> true, false);
+            if (ok) for (long id : batch) result.put(id, new PlayerProfileDto("sim_" + id, ""));
+        }
+        return result;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        calls.forEach((k, v) -> m.put(k + "_calls", v.sum()));
+        m.put("throttled", throttled.sum());
+        m.put("seq_bytes", bytes.sum());
+        m.put("head_seq", head);
+        return m;
+    }
+
+    // ---------- internals ----------
+
+    /** Same retry contract as {@link SteamApi}: up to 5 attempts, doubling jittered back-off on 429. */
+    private <T> T call(SteamLane lane, String what, Supplier<T> answer, T failed) {
+        long sleepMs = 200;
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (int attempt = 1; attempt <= 5; attempt++) {
+            SteamKey key = rate.acquire(lane);
+            long nanos = latency.toNanos();
+            sleep(nanos / 2 + (nanos > 0 ? rnd.nextLong(nanos) : 0));
+            if (rnd.nextDouble() < throttleRate) {
+                rate.onThrottled(key);
+                throttled.increment();
+                sleep((sleepMs + rnd.nextInt(400)) * 1_000_000L);
+                sleepMs *= 2;
+                continue;
+            }
+            rate.onSuccess(key);
+            calls.get(what).increment();
+            return answer.get();
+        }
+        log.error("‼️  simulated {} skipped – 5×429", what);
+        return failed;
+    }
+
+    /** Where an account's matches sit between the stride's slots. */
+    private long phase(long accountId) {
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        return Math.floorMod(h ^ (h >>> 29), seqStride);
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return a <= 0 ? 0 : (a + b - 1) / b;
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) return;
+        try { Thread.sleep(Duration.ofNanos(nanos)); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+}
@@ -3,6 +3,7 @@ package com.myorg.dota;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.core.io.ClassPathResource;
@@ -14,6 +15,7 @@ import java.time.LocalDate;
 import java.util.*;
 
 @Component
+@ConditionalOnProperty(name = "dota.seed.enabled", havingValue = "true", matchIfMissing = true)
 public class SeedRunner implements CommandLineRunner {
 
     private final NamedParameterJdbcTemplate jdbcTemplate;
@@ -0,0 +1,245 @@
+package com.myorg.dota.batch;
+
+import com.myorg.dota.service.IngestOptions;
+import com.myorg.dota.service.MatchRef;
+import com.myorg.dota.service.SteamMatchIngestService;
+import com.myorg.dota.service.ingest.ChunkRows;
+import com.myorg.dota.service.ingest.FactChunkWriter;
+import com.myorg.dota.service.ingest.SeqWindow;
+import com.myorg.dota.service.steam.SteamLane;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
+import org.springframework.batch.item.database.Order;
+import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.*;
+
+/**
+ * {@value #JOB}: full match history of one account as a restartable Spring
+ * Batch job.
+ * <ol>
+ *   <li>{@code stageWindows} – fetch the account's match refs, drop the known
+ *       ones, plan sequence windows and persist them in
+ *       {@code ingest_backfill_windows};</li>
+ *   <li>{@code fetchWindows} – partitioned by seqNum range; each worker reads
+ *       its windows with a paging reader, fetches and decodes them in the
+ *       processor and writes the rows with {@link FactChunkWriter} inside the
+ *       chunk transaction, so rows and reader checkpoint commit together;</li>
+ *   <li>{@code cleanupWindows} – drop the staged windows.</li>
+ * </ol>
+ * After a crash the job restarts from each partition's last committed chunk.
+ * Job parameters: {@code accountId}, {@code requestedAt} (identifying),
+ * {@code bulk}, {@code force}.
+ */
+@Configuration
+public class FullIngestJobConfig {
+
+    static final String JOB = "fullIngestJob";
+
+    private static final Logger log = LoggerFactory.getLogger(FullIngestJobConfig.class);
+
+    @Value("${steam.ingest.batch.partitions:4}")
+    private int partitions;
+
+    /** Sequence windows (≤ 100 matches each) per chunk transaction. */
+    @Value("${steam.ingest.batch.windows-per-chunk:5}")
+    private int windowsPerChunk;
+
+    @Bean
+    public Job fullIngestJob(JobRepository repo, Step stageWindows, Step fetchWindows, Step cleanupWindows) {
+        return new JobBuilder(JOB, repo)
+                .start(stageWindows)
+                .next(fetchWindows)
+                .next(cleanupWindows)
+                .build();
+    }
+
+    // ---------- 1. stage ----------
+
+    @Bean
+    public Step stageWindows(JobRepository repo, Tasklet stageWindowsTasklet) {
+        // Steam paging happens here; no point holding a DB transaction open for it
+        return new StepBuilder("stageWindows", repo)
+                .tasklet(stageWindowsTasklet, new ResourcelessTransactionManager())
+                .build();
+    }
+
+    @Bean
+    @JobScope
+    public Tasklet stageWindowsTasklet(SteamMatchIngestService ingest, JdbcTemplate jdbc,
+                                       @Value("#{jobParameters['accountId']}") Long accountId,
+                                       @Value("#{jobParameters['force']}") Boolean force) {
+        return (contribution, chunk) -> {
+            long instance = chunk.getStepContext().getStepExecution().getJobExecution().getJobInstance().getInstanceId();
+            List<MatchRef> refs = ingest.fetchAllMatchRefs(accountId);
+            List<SeqWindow> windows = ingest.planWindows(refs, new IngestOptions(false, Boolean.TRUE.equals(force), SteamLane.BACKFILL));
+
+            jdbc.update("DELETE FROM ingest_backfill_windows WHERE job_instance_id=?", instance);
+            jdbc.batchUpdate("""
+                INSERT INTO ingest_backfill_windows (job_instance_id,start_seq,requested,match_refs)
+                VALUES (?,?,?,?)""",
+                    windows, 500, (ps, w) -> {
+                        ps.setLong(1, instance);
+                        ps.setLong(2, w.startSeq());
+                        ps.setInt(3, w.requested());
+                        ps.setString(4, encode(w.refs()));
+                    });
+
+            contribution.incrementWriteCount(windows.size());
+            chunk.getStepContext().getStepExecution().getJobExecution().getExecutionContext()
+                    .putInt("matches.total", windows.stream().mapToInt(w -> w.refs().size()).sum());
+            log.info("Account {}: {} refs, {} windows staged for job instance {}",
+                    accountId, refs.size(), windows.size(), instance);
+            return RepeatStatus.FINISHED;
+        };
+    }
+
+    // ---------- 2. fetch + write, partitioned ----------
+
+    @Bean
+    public Step fetchWindows(JobRepository repo, Partitioner seqRangePartitioner, Step fetchWindowsWorker) {
+        SimpleAsyncTaskExecutor exec = new SimpleAsyncTaskExecutor("backfill-");
+        exec.setVirtualThreads(true);
+        return new StepBuilder("fetchWindows", repo)
+                .partitioner("fetchWindowsWorker", seqRangePartitioner)
+                .step(fetchWindowsWorker)
+                .gridSize(partitions)
+                .taskExecutor(exec)
+                .build();
+    }
+
+    /** Splits the staged windows into {@code gridSize} contiguous seqNum ranges of similar size. */
+    @Bean
+    @JobScope
+    public Partitioner seqRangePartitioner(JdbcTemplate jdbc,
+                                           @Value("#{jobExecution.jobInstance.instanceId}") Long instance) {
+        return gridSize -> {
+            List<Long> starts = jdbc.queryForList(
+                    "SELECT start_seq FROM ingest_backfill_windows WHERE job_instance_id=? ORDER BY start_seq",
+                    Long.class, instance);
+            Map<String, ExecutionContext> parts = new LinkedHashMap<>();
+            int n = starts.size(), grid = Math.max(1, Math.min(gridSize, n));
+            for (int p = 0; p < grid; p++) {
+                int from = p * n / grid, to = (p + 1) * n / grid - 1;
+                if (from > to) continue;
+                ExecutionContext ctx = new ExecutionContext();
+                ctx.putLong("minSeq", starts.get(from));
+                ctx.putLong("maxSeq", starts.get(to));
+                parts.put("partition" + p, ctx);
+            }
+            return parts;
+        };
+    }
+
+    @Bean
+    public Step fetchWindowsWorker(JobRepository repo, PlatformTransactionManager tx,
+                                   JdbcPagingItemReader<SeqWindow> windowReader,
+                                   ItemProcessor<SeqWindow, ChunkRows> windowFetcher,
+                                   ItemWriter<ChunkRows> factWriter) {
+        return new StepBuilder("fetchWindowsWorker", repo)
+                .<SeqWindow, ChunkRows>chunk(windowsPerChunk, tx)
+                .reader(windowReader)
+                .processor(windowFetcher)
+                .writer(factWriter)
+                .faultTolerant()
+                .retry(TransientDataAccessException.class)
+                .retryLimit(3)
+                .processorNonTransactional()               // a retried write must not fetch from Steam again
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public JdbcPagingItemReader<SeqWindow> windowReader(
+            DataSource ds,
+            @Value("#{stepExecution.jobExecution.jobInstance.instanceId}") Long instance,
+            @Value("#{stepExecutionContext['minSeq']}") Long minSeq,
+            @Value("#{stepExecutionContext['maxSeq']}") Long maxSeq) {
+        return new JdbcPagingItemReaderBuilder<SeqWindow>()
+                .name("windowReader")                      // checkpoint key in the step context
+                .dataSource(ds)
+                .selectClause("SELECT start_seq, requested, match_refs")
+                .fromClause("FROM ingest_backfill_windows")
+                .whereClause("WHERE job_instance_id = :job AND start_seq BETWEEN :lo AND :hi")
+                .parameterValues(Map.of("job", instance, "lo", minSeq, "hi", maxSeq))
+                .sortKeys(Map.of("start_seq", Order.ASCENDING))
+                .pageSize(windowsPerChunk)
+                .rowMapper((rs, i) -> new SeqWindow(rs.getLong(1), rs.getInt(2), decode(rs.getString(3))))
+                .build();
+    }
+
+    @Bean
+    public ItemProcessor<SeqWindow, ChunkRows> windowFetcher(SteamMatchIngestService ingest) {
+        return w -> {
+            ChunkRows rows = ingest.fetchWindow(w);
+            return rows.matchCount() == 0 ? null : rows;   // null = filtered, nothing to write
+        };
+    }
+
+    @Bean
+    @StepScope
+    public ItemWriter<ChunkRows> factWriter(SteamMatchIngestService ingest, FactChunkWriter writer,
+                                            @Value("#{jobParameters['bulk']}") Boolean bulk) {
+        return items -> {
+            ChunkRows all = new ChunkRows(items.size() * 100);
+            for (ChunkRows r : items) all.addAll(r);
+            writer.write(all, Boolean.TRUE.equals(bulk) && ingest.bulkEligible(all));
+        };
+    }
+
+    // ---------- 3. cleanup ----------
+
+    @Bean
+    public Step cleanupWindows(JobRepository repo, PlatformTransactionManager tx, JdbcTemplate jdbc) {
+        return new StepBuilder("cleanupWindows", repo)
+                .tasklet((contribution, chunk) -> {
+                    long instance = chunk.getStepContext().getStepExecution().getJobExecution().getJobInstance().getInstanceId();
+                    jdbc.update("DELETE FROM ingest_backfill_windows WHERE job_instance_id=?", instance);
+                    return RepeatStatus.FINISHED;
+                }, tx)
+                .build();
+    }
+
+    // match_refs: "match_id:seq_num,…" in seqNum order
+
+    static String encode(List<MatchRef> refs) {
+        StringBuilder sb = new StringBuilder(refs.size() * 24);
+        for (MatchRef r : refs) {
+            if (!sb.isEmpty()) sb.append(',');
+            sb.append(r.matchId()).append(':').append(r.seqNum());
+        }
+        return sb.toString();
+    }
+
+    static List<MatchRef> decode(String s) {
+        List<MatchRef> refs = new ArrayList<>();
+        for (String part : s.split(",")) {
+            int c = part.indexOf(':');
+            refs.add(new MatchRef(Long.parseLong(part, 0, c, 10), Long.parseLong(part, c + 1, part.length(), 10)));
+        }
+        return refs;
+    }
+}
@@ -0,0 +1,144 @@
+package com.myorg.dota.batch;
+
+import com.myorg.dota.service.ingest.WorkLeases;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.*;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Starts, restarts and reports {@value FullIngestJobConfig#JOB} runs. Jobs are
+ * launched asynchronously; the caller gets the execution id right away.
+ * <p>
+ * An execution still marked STARTED at startup died with the previous process
+ * of this node ({@code node} parameter = {@code steam.work.node-id}; other
+ * nodes' runs sharing the job repository are left alone): it is marked FAILED and, with {@code steam.ingest.batch.resume-on-startup},
+ * restarted from its last checkpoint.
+ * <p>
+ * While an account's job is running, starting another one for the same
+ * account returns the running execution instead.
+ */
+@Service
+public class FullIngestJobs {
+
+    private static final Logger log = LoggerFactory.getLogger(FullIngestJobs.class);
+
+    private final Job job;
+    private final JobRepository repo;
+    private final JobExplorer explorer;
+    private final WorkLeases leases;
+    private final TaskExecutorJobLauncher launcher = new TaskExecutorJobLauncher();
+
+    @Value("${steam.ingest.batch.resume-on-startup:true}")
+    private boolean resumeOnStartup;
+
+    public FullIngestJobs(@Qualifier("fullIngestJob") Job job, JobRepository repo, JobExplorer explorer,
+                          WorkLeases leases) throws Exception {
+        this.job      = job;
+        this.repo     = repo;
+        this.explorer = explorer;
+        this.leases   = leases;
+
+        SimpleAsyncTaskExecutor exec = new SimpleAsyncTaskExecutor("full-ingest-");
+        exec.setVirtualThreads(true);
+        launcher.setJobRepository(repo);
+        launcher.setTaskExecutor(exec);
+        launcher.afterPropertiesSet();
+    }
+
+    public synchronized long start(long accountId, boolean bulk, boolean force) throws Exception {
+        for (JobExecution e : explorer.findRunningJobExecutions(FullIngestJobConfig.JOB)) {
+            if (Long.valueOf(accountId).equals(e.getJobParameters().getLong("accountId"))) {
+                log.info("Full ingest of {} already running as execution {}", accountId, e.getId());
+                return e.getId();
+            }
+        }
+        JobParameters params = new JobParametersBuilder()
+                .addLong("accountId", accountId)
+                .addLong("requestedAt", System.currentTimeMillis())
+                .addJobParameter("bulk", bulk, Boolean.class, false)
+                .addJobParameter("force", force, Boolean.class, false)
+                .addJobParameter("node", leases.nodeId(), String.class, false)
+                .toJobParameters();
+        return launcher.run(job, params).getId();
+    }
+
+    /** Runs the same job instance again; completed steps and committed chunks are skipped. */
+    public long restart(long executionId) throws Exception {
+        JobExecution last = explorer.getJobExecution(executionId);
+        if (last == null) throw new NoSuchElementException("no job execution " + executionId);
+        return launcher.run(job, last.getJobParameters()).getId();
+    }
+
+    public Optional<Map<String, Object>> status(long executionId) {
+        JobExecution e = explorer.getJobExecution(executionId);
+        if (e == null) return Optional.empty();
+
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("jobExecutionId", e.getId());
+        m.put("jobInstanceId", e.getJobInstance().getInstanceId());
+        m.put("accountId", e.getJobParameters().getLong("accountId"));
+        m.put("status", e.getStatus().toString());
+        m.put("exitCode", e.getExitStatus().getExitCode());
+        m.put("startTime", e.getStartTime());
+        m.put("endTime", e.getEndTime());
+        m.put("matchesTotal", e.getExecutionContext().getInt("matches.total", 0));
+
+        int windowsRead = 0, chunksWritten = 0;
+        List<Map<String, Object>> steps = new ArrayList<>();
+        for (StepExecution s : e.getStepExecutions()) {
+            if (s.getStepName().startsWith("fetchWindowsWorker")) {
+                windowsRead   += s.getReadCount();
+                chunksWritten += s.getCommitCount();
+            }
+            steps.add(Map.of("step", s.getStepName(), "status", s.getStatus().toString(),
+                    "read", s.getReadCount(), "written", s.getWriteCount()));
+        }
+        m.put("windowsRead", windowsRead);
+        m.put("chunksCommitted", chunksWritten);
+        m.put("steps", steps);
+        return Optional.of(m);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOrphans() {
+        for (JobExecution e : explorer.findRunningJobExecutions(FullIngestJobConfig.JOB)) {
+            String node = e.getJobParameters().getString("node");
+            if (node != null && !node.equals(leases.nodeId())) continue;   // still running elsewhere
+            LocalDateTime now = LocalDateTime.now();
+            for (StepExecution s : e.getStepExecutions()) {
+                if (s.getStatus().isRunning()) {
+                    s.setStatus(BatchStatus.FAILED);
+                    s.setExitStatus(ExitStatus.FAILED.addExitDescription("process died"));
+                    s.setEndTime(now);
+                    repo.update(s);
+                }
+            }
+            e.setStatus(BatchStatus.FAILED);
+            e.setExitStatus(ExitStatus.FAILED.addExitDescription("process died"));
+            e.setEndTime(now);
+            repo.update(e);
+            log.warn("Job execution {} (account {}) was interrupted by a shutdown",
+                    e.getId(), e.getJobParameters().getLong("accountId"));
+
+            if (resumeOnStartup) {
+                try {
+                    log.info("Resuming it as execution {}", restart(e.getId()));
+                } catch (Exception ex) {
+                    log.error("Cannot resume job execution {}", e.getId(), ex);
+                }
+            }
+        }
+    }
+}
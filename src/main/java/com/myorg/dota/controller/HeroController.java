@@ -1,11 +1,17 @@
 package com.myorg.dota.controller;
 
+import com.myorg.dota.service.analytics.ColumnarStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -16,6 +22,12 @@ public class HeroController {
     @Autowired
     private JdbcTemplate jdbc;
 
+    @Autowired
+    private NamedParameterJdbcTemplate named;
+
+    @Autowired(required = false)
+    private ColumnarStore columnar;
+
     @GetMapping
     public List<Map<String, Object>> listHeroes() {
         return jdbc.queryForList("""
@@ -24,41 +36,59 @@ public class HeroController {
             """);
     }
 
+    /**
+     * GET /api/heroes/stats?from=2025-01-01&to=2025-01-31&lobbyType=7&gameMode=22
+     * Сума рядків hero_meta_cube за дні [from, to]; без from/to – за весь час.
+     * lobbyType / gameMode можна повторювати; без gameMode – усі режими.
+     * З увімкненим ColumnarStore – скан у пам'яті, без БД.
+     */
     @GetMapping("/stats")
-    public List<Map<String, Object>> listHeroStats() {
+    public List<Map<String, Object>> listHeroStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "7") List<Integer> lobbyType,
+            @RequestParam(required = false) List<Integer> gameMode
+    ) {
+        if (columnar != null && columnar.isReady()) {
+            return columnar.heroStats(from, to, lobbyType, gameMode);
+        }
+        StringBuilder where = new StringBuilder("c.lobby_type IN (:lobby)");
+        MapSqlParameterSource params = new MapSqlParameterSource("lobby", lobbyType);
+        if (from != null) {
+            where.append(" AND c.day >= :from");
+            params.addValue("from", from);
+        }
+        if (to != null) {
+            where.append(" AND c.day <= :to");
+            params.addValue("to", to);
+        }
+        if (gameMode != null && !gameMode.isEmpty()) {
+            where.append(" AND c.game_mode IN (:mode)");
+            params.addValue("mode", gameMode);
+        }
+
         String sql = """
             SELECT
               h.hero_id,
               h.name_en,
               h.img_portrait,
-              COUNT(*) AS games_played,
-              SUM(
-                CASE
-                  WHEN (pm.player_slot < 128 AND m.radiant_win = 1)
-                    OR (pm.player_slot >= 128 AND m.radiant_win = 0)
-                  THEN 1
-                  ELSE 0
-                END
-              ) AS wins,
-              AVG(
-                (pm.kills + pm.assists)
-                / NULLIF(NULLIF(pm.deaths, 0), 0)
-              ) AS avg_kda,
-              AVG(m.duration_sec)    AS avg_duration,
-              AVG(pm.gpm)            AS avg_gpm,
-              AVG(pm.xpm)            AS avg_xpm
-            FROM dim_heroes h
-            JOIN fact_player_match pm
-              ON pm.hero_id = h.hero_id
-            JOIN fact_matches m
-              ON m.match_id = pm.match_id
-            WHERE m.lobby_type = 7
+              SUM(c.games)                                   AS games_played,
+              SUM(c.wins)                                    AS wins,
+              SUM(c.kda_sum) / NULLIF(SUM(c.kda_games), 0)   AS avg_kda,
+              SUM(c.duration_sum) / SUM(c.games)             AS avg_duration,
+              SUM(c.gpm_sum) / SUM(c.games)                  AS avg_gpm,
+              SUM(c.xpm_sum) / SUM(c.games)                  AS avg_xpm
+            FROM hero_meta_cube c
+            JOIN dim_heroes h
+              ON h.hero_id = c.hero_id
+            WHERE %s
             GROUP BY
               h.hero_id,
               h.name_en,
               h.img_portrait
+            HAVING games_played > 0
             ORDER BY games_played DESC
-            """;
-        return jdbc.queryForList(sql);
+            """.formatted(where);
+        return named.queryForList(sql, params);
     }
 }
@@ -1,9 +1,21 @@
 package com.myorg.dota.controller;
 
+import com.myorg.dota.batch.FullIngestJobs;
+import com.myorg.dota.service.IngestOptions;
+import com.myorg.dota.service.IngestScheduler;
+import com.myorg.dota.service.IngestWorkers;
+import com.myorg.dota.service.MatchFirehose;
 import com.myorg.dota.service.MatchRef;
 import com.myorg.dota.service.SteamMatchIngestService;
+import com.myorg.dota.service.archive.ArchiveReplay;
+import com.myorg.dota.service.ingest.IngestJob;
+import com.myorg.dota.service.ingest.IngestJobRegistry;
+import com.myorg.dota.service.steam.SteamLane;
+import com.myorg.dota.service.steam.SteamRateController;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -13,36 +25,192 @@ import java.util.Map;
 public class IngestController {
 
     private final SteamMatchIngestService ingest;
+    private final FullIngestJobs fullJobs;
+    private final SteamRateController steamRate;
+    private final IngestJobRegistry jobs;
+    private final IngestScheduler scheduler;
+    private final ArchiveReplay archiveReplay;
+    private final MatchFirehose firehose;
+    private final IngestWorkers workQueue;
 
-    public IngestController(SteamMatchIngestService ingest) {
-        this.ingest = ingest;
+    public IngestController(SteamMatchIngestService ingest, FullIngestJobs fullJobs,
+                            SteamRateController steamRate, IngestJobRegistry jobs,
+                            IngestScheduler scheduler, ArchiveReplay archiveReplay,
+                            MatchFirehose firehose, IngestWorkers workQueue) {
+        this.ingest    = ingest;
+        this.fullJobs  = fullJobs;
+        this.steamRate = steamRate;
+        this.jobs      = jobs;
+        this.scheduler = scheduler;
+        this.archiveReplay = archiveReplay;
+        this.firehose      = firehose;
+        this.workQueue     = workQueue;
     }
 
+    /** POST /api/admin/ingest/{accountId} — останні матчі у фоні, відповідь одразу з jobId */
+
     @RequestMapping(
             value  = "/ingest/{accountId}",
             method = { RequestMethod.GET, RequestMethod.POST }
     )
     public ResponseEntity<?> ingestRecent(
             @PathVariable long accountId,
-            @RequestParam(defaultValue = "200") int limit
+            @RequestParam(defaultValue = "200") int limit,
+            @RequestParam(defaultValue = "false") boolean force
     ) {
-        List<MatchRef> refs = ingest.fetchRecentMatchRefs(accountId, limit);
-        ingest.ingestMatchesBySeq(refs);
-        return ResponseEntity.ok(Map.of(
-                "inserted", refs.size(),
-                "accountId", accountId,
-                "type",     "recent"
-        ));
+        IngestJob job = jobs.submit("recent", accountId, limit, j -> {
+            j.phase("history");
+            List<MatchRef> refs = ingest.fetchRecentMatchRefs(accountId, limit, SteamLane.INTERACTIVE);
+            ingest.ingestMatchesBySeq(refs, new IngestOptions(false, force, SteamLane.INTERACTIVE), j);
+        });
+        return accepted(job);
     }
 
+    /**
+     * POST /api/admin/ingest/full/{accountId} — потокове завантаження всієї історії у фоні, відповідь одразу.
+     * {@code engine=batch} – натомість fullIngestJob (Spring Batch) з рестартом від checkpoint-а.
+     */
     @PostMapping("/ingest/full/{accountId}")
-    public ResponseEntity<?> ingestFull(@PathVariable long accountId) {
-        List<MatchRef> refs = ingest.fetchAllMatchRefs(accountId);
-        ingest.ingestMatchesBySeq(refs);               // ⬅ вставляє «порціями» по 100
-        return ResponseEntity.ok(Map.of(
-                "inserted", refs.size(),
-                "accountId", accountId,
-                "type",     "full"
+    public ResponseEntity<?> ingestFull(
+            @PathVariable long accountId,
+            @RequestParam(defaultValue = "true") boolean bulk,
+            @RequestParam(defaultValue = "false") boolean force,
+            @RequestParam(defaultValue = "stream") String engine
+    ) throws Exception {
+        if (!"batch".equals(engine)) {
+            IngestJob job = jobs.submit("full", accountId, Long.MAX_VALUE, j -> {
+                j.phase("history");
+                ingest.ingestHistory(accountId, new IngestOptions(bulk, force, SteamLane.BACKFILL), j);
+            });
+            return accepted(job);
+        }
+
+        // великі порції пишуться через LOAD DATA LOCAL INFILE (bulk=false – звичайні batch-и)
+        long executionId = fullJobs.start(accountId, bulk, force);
+        return ResponseEntity.accepted().body(Map.of(
+                "jobExecutionId", executionId,
+                "accountId",      accountId,
+                "type",           "full",
+                "bulk",           bulk
+        ));
+    }
+
+    /**
+     * POST /api/admin/ingest/queue/{accountId} — історія йде в ingest_work частинами,
+     * які забирають усі інстанси; job тут лише ставить їх у чергу.
+     */
+    @PostMapping("/ingest/queue/{accountId}")
+    public ResponseEntity<?> queueHistory(
+            @PathVariable long accountId,
+            @RequestParam(defaultValue = "true") boolean bulk,
+            @RequestParam(defaultValue = "false") boolean force
+    ) {
+        IngestJob job = jobs.submit("queue", accountId, Long.MAX_VALUE, j -> {
+            j.phase("history");
+            workQueue.enqueueHistory(accountId, bulk, force, j);
+        });
+        return accepted(job);
+    }
+
+    /** GET /api/admin/ingest/full/jobs/{executionId} — стан і прогрес job-а */
+    @GetMapping("/ingest/full/jobs/{executionId}")
+    public ResponseEntity<?> fullJobStatus(@PathVariable long executionId) {
+        return ResponseEntity.of(fullJobs.status(executionId));
+    }
+
+    /** POST /api/admin/ingest/full/jobs/{executionId}/restart — продовжити з останнього checkpoint-а */
+    @PostMapping("/ingest/full/jobs/{executionId}/restart")
+    public ResponseEntity<?> restartFullJob(@PathVariable long executionId) throws Exception {
+        return ResponseEntity.accepted().body(Map.of("jobExecutionId", fullJobs.restart(executionId)));
+    }
+
+    /** GET /api/admin/ingest/jobs/{jobId} — лічильники і ETA job-а */
+    @GetMapping("/ingest/jobs/{jobId}")
+    public ResponseEntity<?> jobStatus(@PathVariable String jobId) {
+        return ResponseEntity.of(jobs.get(jobId).map(IngestJob::snapshot));
+    }
+
+    /** GET /api/admin/ingest/jobs/{jobId}/events — SSE: «progress» кожні 0.5 с, у кінці «done» */
+    @GetMapping(value = "/ingest/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> jobEvents(@PathVariable String jobId) {
+        return ResponseEntity.of(jobs.stream(jobId));
+    }
+
+    /** POST|DELETE /api/admin/ingest/jobs/{jobId}/cancel — зупинити; вже завантажене лишається */
+    @RequestMapping(
+            value  = "/ingest/jobs/{jobId}/cancel",
+            method = { RequestMethod.POST, RequestMethod.DELETE }
+    )
+    public ResponseEntity<?> cancelJob(@PathVariable String jobId) {
+        if (jobs.get(jobId).isEmpty()) return ResponseEntity.notFound().build();
+        boolean cancelled = jobs.cancel(jobId);
+        return ResponseEntity.accepted().body(Map.of("jobId", jobId, "cancelled", cancelled));
+    }
+
+    /**
+     * POST /api/admin/archive/replay — перебудова fact-таблиць із сирого архіву, без Steam.
+     * {@code rebuild=true} – матчі видаляються і пишуться заново, а не через diff.
+     */
+    @PostMapping("/archive/replay")
+    public ResponseEntity<?> replayArchive(@RequestParam(defaultValue = "false") boolean rebuild) {
+        IngestJob job = jobs.submit("replay", 0, Long.MAX_VALUE, j -> {
+            j.phase("replay");
+            archiveReplay.replay(rebuild, j);
+        });
+        return accepted(job);
+    }
+
+    /** POST /api/admin/firehose/start — потік усіх публічних матчів; {@code fromSeq} – з цього seq_num, інакше з checkpoint-а */
+    @PostMapping("/firehose/start")
+    public ResponseEntity<?> startFirehose(@RequestParam(defaultValue = "-1") long fromSeq) {
+        boolean started = firehose.start(fromSeq);
+        return ResponseEntity.accepted().body(Map.of("started", started, "firehose", firehose.stats()));
+    }
+
+    /** POST /api/admin/firehose/stop — зупинити; checkpoint зберігається */
+    @PostMapping("/firehose/stop")
+    public Map<String, Object> stopFirehose() {
+        firehose.stop();
+        return firehose.stats();
+    }
+
+    /** PUT /api/admin/tracked/{accountId} — гравець опитується IngestScheduler-ом */
+    @PutMapping("/tracked/{accountId}")
+    public ResponseEntity<?> track(@PathVariable long accountId) {
+        scheduler.track(accountId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /** DELETE /api/admin/tracked/{accountId} */
+    @DeleteMapping("/tracked/{accountId}")
+    public ResponseEntity<?> untrack(@PathVariable long accountId) {
+        scheduler.untrack(accountId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /** GET /api/admin/ingest/metrics — лічильники ingest-конвеєра */
+    @GetMapping("/ingest/metrics")
+    public Map<String, Object> metrics() {
+        return Map.of(
+                "seq_windows",   ingest.windowStats(),
+                "known_matches", ingest.knownMatchStats(),
+                "steam_rate",    steamRate.stats(),
+                "in_flight",     ingest.inFlightStats(),
+                "flush",         ingest.flushStats(),
+                "jobs",          jobs.stats(),
+                "scheduler",     scheduler.stats(),
+                "archive",       ingest.archiveStats(),
+                "firehose",      firehose.stats(),
+                "work_queue",    workQueue.stats());
+    }
+
+    private static ResponseEntity<?> accepted(IngestJob job) {
+        return ResponseEntity.accepted().body(Map.of(
+                "jobId",     job.id(),
+                "accountId", job.accountId(),
+                "type",      job.type(),
+                "status",    "/api/admin/ingest/jobs/" + job.id(),
+                "events",    "/api/admin/ingest/jobs/" + job.id() + "/events"
         ));
     }
 }
@@ -6,15 +6,15 @@ import com.myorg.dota.dto.PlayerStatsDto;
 import com.myorg.dota.dto.HeroStatsDto;
 import com.myorg.dota.service.MatchService;
 import com.myorg.dota.service.PlayerStatsService;
+import com.myorg.dota.service.analytics.ColumnarStore;
+import com.myorg.dota.service.steam.SteamClient;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/players")
@@ -26,18 +26,23 @@ public class PlayerController {
     @Autowired
     private JdbcTemplate jdbc;
 
-    @Value("${steam.api.key}")
-    private String apiKey;
-    private static final long STEAMID64_OFFSET = 76561197960265728L;
+    @Autowired(required = false)
+    private ColumnarStore columnar;
+
+    private final SteamClient steam;
+
     public PlayerController(MatchService matchService,
-                            PlayerStatsService statsService) {
+                            PlayerStatsService statsService,
+                            SteamClient steam) {
         this.matchService = matchService;
         this.statsService = statsService;
+        this.steam        = steam;
     }
 
     /**
      * GET /api/players
      * Повертає всіх унікальних гравців з бази, крім 4294967295
+     * (з увімкненим ColumnarStore підсумки рахуються в пам'яті)
      */
     @GetMapping
     public List<Map<String,Object>> listPlayers() {
@@ -63,7 +68,9 @@ public class PlayerController {
         GROUP BY pm.account_id
         HAVING COUNT(*) > 10
         """;
-        List<Map<String,Object>> rawStats = jdbc.queryForList(statsSql);
+        List<Map<String,Object>> rawStats = columnar != null && columnar.isReady()
+                ? columnar.playerTotals(7, 10)
+                : jdbc.queryForList(statsSql);
 
         Map<Long, Map<String,Object>> statsById = new HashMap<>();
         for (var row : rawStats) {
@@ -113,39 +120,7 @@ public class PlayerController {
 
 
     private Map<Long, PlayerProfileDto> fetchProfiles(Collection<Long> accountIds) {
-        final long OFFSET = 76561197960265728L;
-        RestTemplate rt = new RestTemplate();
-
-        List<Long> ids = new ArrayList<>(accountIds);
-        Map<Long, PlayerProfileDto> result = new HashMap<>();
-
-        for (int i = 0; i < ids.size(); i += 100) {
-            List<Long> batch = ids.subList(i, Math.min(i + 100, ids.size()));
-            String steamIds = batch.stream()
-                    .map(id -> String.valueOf(id + OFFSET))
-                    .collect(Collectors.joining(","));
-
-            String url = "https://api.steampowered.com/ISteamUser/GetPlayerSummaries/v2/"
-                         + "?key=" + apiKey
-                         + "&steamids=" + steamIds;
-            try {
-                @SuppressWarnings("unchecked")
-                Map<String,Object> resp = rt.getForObject(url, Map.class);
-                @SuppressWarnings("unchecked")
-                List<Map<String,Object>> players =
-                        (List<Map<String,Object>>)((Map<?,?>)resp.get("response")).get("players");
-                for (Map<String,Object> p : players) {
-                    long steam64 = Long.parseLong(p.get("steamid").toString());
-                    long acctId  = steam64 - OFFSET;
-                    String name  = Objects.toString(p.get("personaname"), "Unknown");
-                    String avatar= Objects.toString(p.get("avatarfull"), "");
-                    result.put(acctId, new PlayerProfileDto(name, avatar));
-                }
-            } catch (Exception e) {
-            }
-        }
-
-        return result;
+        return steam.playerSummaries(accountIds);
     }
 
 
@@ -161,6 +136,23 @@ public class PlayerController {
         return matchService.findRecentMatches(accountId, limit);
     }
 
+    /**
+     * GET /api/players/{id}/matches/page?limit={limit}&cursor={nextCursor}
+     * Сторінка матчів від найновіших; cursor – nextCursor попередньої сторінки.
+     */
+    @GetMapping("/{id}/matches/page")
+    public ResponseEntity<?> matchPage(
+            @PathVariable("id") long accountId,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String cursor
+    ) {
+        try {
+            return ResponseEntity.ok(matchService.findMatchPage(accountId, Math.max(1, Math.min(limit, 500)), cursor));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * GET /api/players/{id}/stats?limit={limit}
      */
@@ -181,24 +173,7 @@ public class PlayerController {
 
     @GetMapping("/{id}/profile")
     public PlayerProfileDto profile(@PathVariable("id") long accountId) {
-        long steam64 = accountId + STEAMID64_OFFSET;
-        String url = "https://api.steampowered.com/ISteamUser/GetPlayerSummaries/v2/"
-                     + "?key=" + apiKey
-                     + "&steamids=" + steam64;
-        RestTemplate rt = new RestTemplate();
-        try {
-            @SuppressWarnings("unchecked")
-            Map<String,Object> resp = rt.getForObject(url, Map.class);
-            @SuppressWarnings("unchecked")
-            List<Map<String,Object>> players = (List<Map<String,Object>>)
-                    ((Map<String,Object>)resp.get("response")).get("players");
-            if (!players.isEmpty()) {
-                Map<String,Object> p = players.get(0);
-                String name   = Objects.toString(p.get("personaname"), "Unknown");
-                String avatar = Objects.toString(p.get("avatarfull"), "");
-                return new PlayerProfileDto(name, avatar);
-            }
-        } catch (Exception ignored) { }
-        return new PlayerProfileDto("Unknown", "");
+        return steam.playerSummaries(List.of(accountId))
+                .getOrDefault(accountId, new PlayerProfileDto("Unknown", ""));
     }
-}
\ No newline at end of file
+}
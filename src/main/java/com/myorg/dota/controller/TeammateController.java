@@ -5,6 +5,7 @@ import com.myorg.dota.service.impl.TeammateService;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/players")
@@ -21,4 +22,16 @@ public class TeammateController {
                                           @RequestParam(defaultValue = "10") int limit) {
         return service.findTopTeammates(accountId, limit);
     }
+
+    @GetMapping("/{accountId}/opponents")
+    public List<TeammateDto> topOpponents(@PathVariable long accountId,
+                                          @RequestParam(defaultValue = "10") int limit) {
+        return service.findTopOpponents(accountId, limit);
+    }
+
+    /** GET /api/players/{accountId}/vs/{otherId} — разом і проти */
+    @GetMapping("/{accountId}/vs/{otherId}")
+    public Map<String, Object> headToHead(@PathVariable long accountId, @PathVariable long otherId) {
+        return service.headToHead(accountId, otherId);
+    }
 }
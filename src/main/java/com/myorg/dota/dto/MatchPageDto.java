@@ -0,0 +1,14 @@
+package com.myorg.dota.dto;
+
+import java.util.List;
+
+import lombok.*;
+
+/** One page of a player's matches, newest first; {@code nextCursor} is null on the last page. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MatchPageDto {
+    private List<MatchSummaryDto> matches;
+    private String nextCursor;
+}
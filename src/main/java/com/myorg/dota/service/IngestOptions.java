@@ -0,0 +1,18 @@
+package com.myorg.dota.service;
+
+import com.myorg.dota.service.steam.SteamLane;
+
+/**
+ * Per-run ingest switches.
+ *
+ * @param bulk  write chunks of at least {@code steam.ingest.bulk.min-matches}
+ *              with {@code LOAD DATA LOCAL INFILE} instead of JDBC batches
+ * @param force re-ingest refs even if the known-match index already has them
+ * @param lane  rate-budget priority of the run's Steam calls
+ */
+public record IngestOptions(boolean bulk, boolean force, SteamLane lane) {
+
+    public static final IngestOptions DEFAULT   = new IngestOptions(false, false, SteamLane.INTERACTIVE);
+    public static final IngestOptions SCHEDULED = new IngestOptions(false, false, SteamLane.SCHEDULED);
+    public static final IngestOptions BACKFILL  = new IngestOptions(true, false, SteamLane.BACKFILL);
+}
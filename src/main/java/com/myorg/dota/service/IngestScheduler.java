@@ -1,29 +1,250 @@
 package com.myorg.dota.service;
 
+import com.myorg.dota.service.ingest.IngestJobRegistry;
+import com.myorg.dota.service.ingest.KnownMatchIndex;
+import com.myorg.dota.service.ingest.WorkLeases;
+import com.myorg.dota.service.steam.SteamLane;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Polls {@code tracked_players} for new matches, each player on their own
+ * schedule.
+ * <p>
+ * The table is the queue, shared by every backend instance: each of the
+ * {@code steam.scheduler.workers} threads claims up to
+ * {@code steam.scheduler.claim-batch} due players with
+ * {@code SELECT … FOR UPDATE SKIP LOCKED}, leases them to this node
+ * ({@link WorkLeases}) and polls them one by one; writing the next poll time
+ * ends the lease. A node that dies mid-batch leaves leases that lapse, and
+ * the players go to whichever node claims next. With nothing due a worker
+ * waits {@code steam.scheduler.idle}, and so it does after a database error.
+ * <p>
+ * After each poll the next one is planned from the player's activity in the DB:
+ * <ul>
+ *   <li>by frequency – half the average gap between their matches over the
+ *       last {@link #ACTIVITY_WINDOW};</li>
+ *   <li>by recency – a quarter of the time since their newest match, so a
+ *       player back after a break is picked up within the session.</li>
+ * </ul>
+ * The sooner of the two wins, kept within {@code [min-interval, max-interval]}.
+ * A player idle for months costs one GetMatchHistory call per
+ * {@code max-interval}, so tens of thousands can be tracked on the same
+ * rate budget.
+ */
 @Service
 @RequiredArgsConstructor
 public class IngestScheduler {
 
+    private static final Logger log = LoggerFactory.getLogger(IngestScheduler.class);
+
+    private static final Duration ACTIVITY_WINDOW = Duration.ofDays(14);
+    private static final int POLL_REFS = 25;
+
     private final SteamMatchIngestService ingest;
     private final NamedParameterJdbcTemplate jdbc;
+    private final KnownMatchIndex known;
+    private final IngestJobRegistry jobs;
+    private final WorkLeases leases;
+    private final PlatformTransactionManager txManager;
+
+    @Value("${steam.scheduler.workers:2}")
+    private int workers;
+
+    @Value("${steam.scheduler.claim-batch:5}")
+    private int claimBatch;
+
+    @Value("${steam.scheduler.idle:PT5S}")
+    private Duration idle;
+
+    @Value("${steam.scheduler.min-interval:PT2M}")
+    private Duration minInterval;
+
+    @Value("${steam.scheduler.max-interval:PT24H}")
+    private Duration maxInterval;
+
+    private TransactionTemplate tx;
+    private ExecutorService pool;
+
+    private final LongAdder polls      = new LongAdder();
+    private final LongAdder newMatches = new LongAdder();
+    private final LongAdder deferred   = new LongAdder();
+    private final LongAdder claimed    = new LongAdder();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        tx = new TransactionTemplate(txManager);
+        tx.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        if (workers <= 0) {
+            log.info("Ingest scheduler: no workers on this node");
+            return;
+        }
+        pool = Executors.newFixedThreadPool(workers, Thread.ofVirtual().name("ingest-scheduler-", 0).factory());
+        for (int i = 0; i < workers; i++) pool.execute(this::work);
+        log.info("Ingest scheduler on {}: {} workers, {} players per claim", leases.nodeId(), workers, claimBatch);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (pool != null) pool.shutdownNow();
+    }
+
+    public void track(long accountId) {
+        jdbc.update("INSERT IGNORE INTO tracked_players (account_id) VALUES (:a)",
+                new MapSqlParameterSource("a", accountId));
+    }
 
-    @Scheduled(fixedDelay = 60_000)
-    public void refreshPlayers() {
-        List<Long> tracked = jdbc.queryForList(
-                "SELECT DISTINCT account_id FROM tracked_players",
-                new java.util.HashMap<>() ,
-                Long.class);
+    public void untrack(long accountId) {
+        jdbc.update("DELETE FROM tracked_players WHERE account_id = :a",
+                new MapSqlParameterSource("a", accountId));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>(jdbc.queryForMap("""
+                SELECT COUNT(*)                                                             AS tracked,
+                       COUNT(CASE WHEN next_poll_at <= NOW() THEN 1 END)                    AS due_now,
+                       COUNT(CASE WHEN lease_until >= NOW(3) THEN 1 END)                    AS leased,
+                       COUNT(CASE WHEN lease_until >= NOW(3) AND lease_owner = :me THEN 1 END) AS leased_here
+                FROM tracked_players""", new MapSqlParameterSource("me", leases.nodeId())));
+        m.put("claimed", claimed.sum());
+        m.put("polls", polls.sum());
+        m.put("new_matches", newMatches.sum());
+        m.put("deferred_busy", deferred.sum());
+        return m;
+    }
+
+    private void work() {
+        try {
+            while (!known.isReady()) Thread.sleep(1_000);     // otherwise every stored ref looks new
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Long> batch;
+                try {
+                    batch = claimDue();
+                } catch (RuntimeException e) {
+                    log.warn("Claiming due players failed, retrying in {}", idle, e);
+                    Thread.sleep(idle.toMillis());
+                    continue;
+                }
+                if (batch.isEmpty()) {
+                    Thread.sleep(idle.toMillis());
+                    continue;
+                }
+                for (long accountId : batch) {
+                    if (Thread.currentThread().isInterrupted()) break;   // the rest is released on shutdown
+                    try {
+                        poll(accountId);
+                    } catch (RuntimeException e) {
+                        log.warn("Scheduled ingest of {} failed", accountId, e);
+                        try {
+                            reschedule(accountId, System.currentTimeMillis() + minInterval.toMillis());
+                        } catch (RuntimeException again) {    // the lease lapses and the player is due again
+                            log.warn("Cannot reschedule {}", accountId, again);
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Leases up to {@code claim-batch} due players nobody else holds, most overdue first. */
+    private List<Long> claimDue() {
+        List<Long> ids = tx.execute(s -> {
+            MapSqlParameterSource p = new MapSqlParameterSource()
+                    .addValue("n", Math.max(1, claimBatch))
+                    .addValue("me", leases.nodeId())
+                    .addValue("leaseSeconds", leases.leaseSeconds());
+            List<Long> due = jdbc.queryForList("""
+                    SELECT account_id FROM tracked_players
+                    WHERE next_poll_at <= NOW() AND (lease_until IS NULL OR lease_until < NOW(3))
+                    ORDER BY next_poll_at
+                    LIMIT :n
+                    FOR UPDATE SKIP LOCKED""", p, Long.class);
+            if (!due.isEmpty())
+                jdbc.update("UPDATE tracked_players SET lease_owner = :me, lease_until = " + leases.leaseUntilSql()
+                        + " WHERE account_id IN (:ids)", p.addValue("ids", due));
+            return due;
+        });
+        claimed.add(ids.size());
+        return ids;
+    }
 
-        for (Long id : tracked) {
-            ingest.ingestMatchesBySeq(
-                    ingest.fetchRecentMatchRefs(id, 25));
+    /** Sets the next poll and ends the lease – unless it lapsed and another node has the player now. */
+    private void reschedule(long accountId, long nextMillis) {
+        jdbc.update("""
+                UPDATE tracked_players SET next_poll_at = :next, lease_owner = NULL, lease_until = NULL
+                WHERE account_id = :a AND lease_owner = :me""",
+                new MapSqlParameterSource()
+                        .addValue("a", accountId)
+                        .addValue("next", new Timestamp(nextMillis))
+                        .addValue("me", leases.nodeId()));
+    }
+
+    /** Ingests the player's newest matches and plans the next poll. */
+    private void poll(long accountId) {
+        long now = System.currentTimeMillis();
+        if (jobs.isActive(accountId)) {                      // a user-started job on this node covers it already
+            deferred.increment();
+            reschedule(accountId, now + minInterval.toMillis());
+            return;
         }
+
+        List<MatchRef> refs = ingest.fetchRecentMatchRefs(accountId, POLL_REFS, SteamLane.SCHEDULED);
+        int fresh = (int) refs.stream().filter(r -> !known.contains(r.matchId())).count();
+        if (fresh > 0) ingest.ingestMatchesBySeq(refs, IngestOptions.SCHEDULED);
+        polls.increment();
+        newMatches.add(fresh);
+
+        MapSqlParameterSource p = new MapSqlParameterSource()
+                .addValue("a", accountId)
+                .addValue("since", Timestamp.from(Instant.ofEpochMilli(now).minus(ACTIVITY_WINDOW)));
+        Object[] activity = jdbc.queryForObject("""
+                SELECT COUNT(CASE WHEN m.start_time >= :since THEN 1 END), MAX(m.start_time)
+                FROM fact_player_match pm
+                JOIN fact_matches m ON m.match_id = pm.match_id
+                WHERE pm.account_id = :a""", p,
+                (rs, i) -> new Object[] { rs.getInt(1), rs.getTimestamp(2) });
+
+        double perDay = (int) activity[0] / (double) ACTIVITY_WINDOW.toDays();
+        Timestamp lastMatch = (Timestamp) activity[1];
+        long next = now + nextInterval(perDay, lastMatch == null ? null : lastMatch.getTime(), now);
+
+        jdbc.update("""
+                UPDATE tracked_players
+                SET last_polled_at = :now, last_match_at = :last, matches_per_day = :rate, next_poll_at = :next,
+                    lease_owner = NULL, lease_until = NULL
+                WHERE account_id = :a AND lease_owner = :me""",
+                p.addValue("now", new Timestamp(now))
+                 .addValue("last", lastMatch)
+                 .addValue("rate", perDay)
+                 .addValue("next", new Timestamp(next))
+                 .addValue("me", leases.nodeId()));
+    }
+
+    private long nextInterval(double matchesPerDay, Long lastMatchMillis, long now) {
+        long max = maxInterval.toMillis(), min = minInterval.toMillis();
+        long byRate    = matchesPerDay > 0 ? (long) (Duration.ofDays(1).toMillis() / matchesPerDay / 2) : max;
+        long byRecency = lastMatchMillis != null ? (now - lastMatchMillis) / 4 : max;
+        return Math.max(min, Math.min(max, Math.min(byRate, byRecency)));
     }
 }
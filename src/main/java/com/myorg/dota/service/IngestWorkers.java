@@ -0,0 +1,169 @@
+package com.myorg.dota.service;
+
+import com.myorg.dota.service.ingest.*;
+import com.myorg.dota.service.steam.SteamClient;
+import com.myorg.dota.service.steam.SteamLane;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Full-history ingests shared by all backend instances through
+ * {@link IngestWorkQueue}.
+ * <p>
+ * {@link #enqueueHistory} pages the account's history on the calling node and
+ * queues the refs not stored yet in items of {@code steam.work.item-refs};
+ * {@code steam.work.workers} threads on every node claim items and ingest
+ * them on the backfill lane. An item with failed matches – its own, or ones
+ * it left to another run that did not store them – goes back to the queue
+ * (stored ones are skipped on the next attempt); an item whose node died goes
+ * back when its lease lapses. The account's watermark moves up only once all
+ * of its items are done ({@link AccountWatermarks#promoteQueued}); items out of
+ * attempts hold it back until the next {@link #enqueueHistory} queues them
+ * anew. A worker outlives database errors: it logs them, waits
+ * {@code steam.work.idle} and claims again.
+ * <p>
+ * Every node spends its own {@code SteamRateController} budget with its own
+ * {@code steam.api.keys}, so queued ingests scale with the number of nodes.
+ */
+@Service
+public class IngestWorkers {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestWorkers.class);
+
+    private final SteamMatchIngestService ingest;
+    private final SteamClient steam;
+    private final IngestWorkQueue queue;
+    private final KnownMatchIndex known;
+    private final AccountWatermarks watermarks;
+
+    @Value("${steam.work.workers:2}")
+    private int workers;
+
+    @Value("${steam.work.idle:PT5S}")
+    private Duration idle;
+
+    private ExecutorService pool;
+    private volatile boolean stopping;
+
+    public IngestWorkers(SteamMatchIngestService ingest, SteamClient steam, IngestWorkQueue queue,
+                         KnownMatchIndex known, AccountWatermarks watermarks) {
+        this.ingest     = ingest;
+        this.steam      = steam;
+        this.queue      = queue;
+        this.known      = known;
+        this.watermarks = watermarks;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (workers <= 0) {
+            log.info("Ingest work queue: no workers on this node");
+            return;
+        }
+        pool = Executors.newFixedThreadPool(workers, Thread.ofVirtual().name("ingest-work-", 0).factory());
+        for (int i = 0; i < workers; i++) pool.execute(this::work);
+    }
+
+    @PreDestroy
+    void stop() {
+        stopping = true;
+        if (pool != null) pool.shutdownNow();
+    }
+
+    /**
+     * Queues the account's history down to its watermark (all of it with
+     * {@code force}), first dropping its items that ran out of attempts – their
+     * refs are above the watermark, so they are queued again. Once the whole
+     * history is queued its newest match id is parked, and becomes the
+     * watermark when the last of the account's items is done. Returns the
+     * number of items.
+     */
+    public int enqueueHistory(long accountId, boolean bulk, boolean force, IngestProgress progress) {
+        int dropped = queue.dropExhausted(accountId);
+        if (dropped > 0) log.info("Re-queuing {} exhausted items of {}", dropped, accountId);
+        long watermark = force ? 0 : watermarks.get(accountId);
+        MatchHistoryPager pager = new MatchHistoryPager(steam, SteamLane.BACKFILL, accountId, watermark);
+        List<MatchRef> pending = new ArrayList<>();
+        int items = 0;
+        while (!progress.cancelled() && pager.hasNext()) {
+            List<MatchRef> page = pager.next();
+            int before = pending.size();
+            for (MatchRef r : page) if (force || !known.contains(r.matchId())) pending.add(r);
+            progress.planned(pending.size() - before, page.size() - (pending.size() - before));
+
+            int full = pending.size() / queue.itemRefs() * queue.itemRefs();
+            if (full > 0) {
+                items += queue.enqueue(accountId, pending.subList(0, full), bulk, force);
+                pending = new ArrayList<>(pending.subList(full, pending.size()));
+            }
+        }
+        if (progress.cancelled()) return items;
+        items += queue.enqueue(accountId, pending, bulk, force);
+
+        if (pager.complete() && pager.newestMatchId() > 0) {
+            watermarks.queue(accountId, pager.newestMatchId());
+            watermarks.promoteQueued(accountId);
+        }
+        log.info("Queued history of {} as {} items", accountId, items);
+        return items;
+    }
+
+    public Map<String, Object> stats() {
+        return queue.stats();
+    }
+
+    private void work() {
+        try {
+            while (!known.isReady()) Thread.sleep(1_000);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    List<IngestWorkQueue.Item> claimed = queue.claim(1);
+                    if (claimed.isEmpty()) {
+                        Thread.sleep(idle.toMillis());
+                        continue;
+                    }
+                    run(claimed.get(0));
+                } catch (RuntimeException e) {            // the item, if any, goes back when its lease lapses
+                    log.warn("Ingest work loop failed, retrying in {}", idle, e);
+                    Thread.sleep(idle.toMillis());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(IngestWorkQueue.Item item) {
+        int[] failed = { 0 };
+        IngestProgress tally = new IngestProgress() {
+            @Override public synchronized void failed(int matches) { failed[0] += matches; }
+            @Override public boolean cancelled() { return stopping; }
+        };
+        try {
+            ingest.ingestMatchesBySeq(item.refs(), new IngestOptions(item.bulk(), item.force(), SteamLane.BACKFILL), tally);
+        } catch (RuntimeException e) {
+            log.warn("Work item {} (account {}) failed, attempt {}", item.workId(), item.accountId(), item.attempt(), e);
+            queue.retry(item, String.valueOf(e));
+            return;
+        }
+        if (stopping) return;                                 // unfinished – WorkLeases hands it back
+        if (failed[0] > 0) {
+            queue.retry(item, failed[0] + " matches failed");
+        } else {
+            queue.done(item);
+            watermarks.promoteQueued(item.accountId());
+        }
+    }
+}
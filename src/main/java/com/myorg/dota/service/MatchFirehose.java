@@ -0,0 +1,268 @@
+package com.myorg.dota.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.myorg.dota.service.archive.RawMatchArchive;
+import com.myorg.dota.service.ingest.*;
+import com.myorg.dota.service.steam.SteamClient;
+import com.myorg.dota.service.steam.SteamLane;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Follows {@code GetMatchHistoryBySequenceNum} as one continuous cursor over
+ * all public matches – 100 matches per call instead of one player's handful –
+ * for hero-wide statistics.
+ * <p>
+ * Each page is decoded straight into {@link ChunkRows}, keeping matches of the
+ * configured lobby types / game modes that are not stored yet, and written by
+ * {@link FactChunkWriter} every {@code steam.firehose.chunk} matches. The
+ * cursor ({@code ingest_cursors}, {@value #CURSOR}) is saved once everything
+ * below it is committed, so a restart re-reads at most one chunk. At the head
+ * of the sequence the cursor waits {@code steam.firehose.idle} between calls.
+ * Calls go through {@link SteamLane#BACKFILL}, so user requests and tracked
+ * players keep their share of the rate budget.
+ * <p>
+ * Kept matches are claimed in {@link InFlightMatches} like a per-player run's,
+ * one claim per chunk; matches another run is already writing are left to it,
+ * and the cursor only moves past them once that run is done. The firehose
+ * counts its own calls: its pages are not planned windows, so they stay out of
+ * {@link SeqWindowPlanner}'s call savings and only feed its density estimate.
+ * <p>
+ * A chunk that fails to write is retried with backoff before the next page is
+ * fetched, so at most one chunk is ever held; any other failure is logged and
+ * the cursor carries on after {@code steam.firehose.idle}.
+ */
+@Service
+public class MatchFirehose {
+
+    private static final Logger log = LoggerFactory.getLogger(MatchFirehose.class);
+
+    static final String CURSOR = "firehose";
+    private static final int PAGE = SeqWindowPlanner.MAX_MATCHES;
+
+    private final SteamClient steam;
+    private final SeqWindowPlanner planner;
+    private final FactChunkWriter writer;
+    private final KnownMatchIndex known;
+    private final IngestCursors cursors;
+    private final RawMatchArchive archive;
+    private final SteamMatchIngestService ingest;
+    private final InFlightMatches inFlight;
+    private final MatchPageDecoder decoder = new StreamingMatchDecoder(new JsonFactory());
+
+    @Value("${steam.firehose.enabled:false}")
+    private boolean enabled;
+
+    /** Порожньо – усі. */
+    @Value("${steam.firehose.lobby-types:7}")
+    private int[] lobbyTypes;
+
+    @Value("${steam.firehose.game-modes:}")
+    private int[] gameModes;
+
+    @Value("${steam.firehose.chunk:500}")
+    private int chunkSize;
+
+    @Value("${steam.firehose.idle:PT30S}")
+    private Duration idle;
+
+    private volatile Thread worker;
+    private volatile long nextSeq = -1;
+    private volatile boolean atHead;
+
+    private final LongAdder calls    = new LongAdder();
+    private final LongAdder pages    = new LongAdder();
+    private final LongAdder seen     = new LongAdder();
+    private final LongAdder written  = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public MatchFirehose(SteamClient steam, SeqWindowPlanner planner, FactChunkWriter writer,
+                         KnownMatchIndex known, IngestCursors cursors, RawMatchArchive archive,
+                         SteamMatchIngestService ingest, InFlightMatches inFlight) {
+        this.steam   = steam;
+        this.planner = planner;
+        this.writer  = writer;
+        this.known   = known;
+        this.cursors = cursors;
+        this.archive = archive;
+        this.ingest  = ingest;
+        this.inFlight = inFlight;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void autostart() {
+        if (enabled) start(-1);
+    }
+
+    /**
+     * Starts the cursor at {@code fromSeq}, or where it stopped (&lt; 0); a
+     * cursor never saved starts at the newest match. False if already running.
+     */
+    public synchronized boolean start(long fromSeq) {
+        if (worker != null && worker.isAlive()) return false;
+        if (fromSeq >= 0) cursors.save(CURSOR, fromSeq);
+        worker = Thread.ofPlatform().name("match-firehose").daemon().start(this::run);
+        return true;
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        Thread t = worker;
+        if (t == null) return;
+        t.interrupt();
+        try {
+            t.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+    }
+
+    public Map<String, Object> stats() {
+        Thread t = worker;
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("running", t != null && t.isAlive());
+        m.put("next_seq", nextSeq);
+        m.put("at_head", atHead);
+        m.put("calls", calls.sum());
+        m.put("pages", pages.sum());
+        m.put("matches_seen", seen.sum());
+        m.put("matches_written", written.sum());
+        m.put("failures", failures.sum());
+        m.put("lobby_types", lobbyTypes);
+        m.put("game_modes", gameModes);
+        return m;
+    }
+
+    private void run() {
+        ChunkRows rows = new ChunkRows(chunkSize);
+        InFlightMatches.Claim[] claim = { inFlight.open() };
+        long seq = -1;
+        try {
+            while (!known.isReady()) Thread.sleep(1_000);     // otherwise every stored match looks new
+
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    if (seq < 0) {
+                        long start = cursors.get(CURSOR);
+                        if (start < 0) {
+                            start = steam.latestMatchSeq(SteamLane.BACKFILL);
+                            if (start < 0) throw new IllegalStateException("cannot find the newest match_seq_num");
+                            cursors.save(CURSOR, start);
+                        }
+                        seq = nextSeq = start;
+                        log.info("Match firehose from seq {} (lobby types {}, game modes {})",
+                                seq, Arrays.toString(lobbyTypes), Arrays.toString(gameModes));
+                    }
+
+                    calls.increment();
+                    byte[] body = steam.matchesBySeq(SteamLane.BACKFILL, seq, PAGE);
+                    if (body == null) {
+                        failures.increment();
+                        Thread.sleep(idle.toMillis());
+                        continue;
+                    }
+
+                    int before = rows.matchCount();
+                    MatchPageDecoder.DecodedPage d;
+                    try {
+                        d = decoder.decode(body, id -> !known.contains(id),
+                                m -> keep(m) && claim[0].take(m.matchId), rows);
+                    } catch (IOException | RuntimeException e) {
+                        log.error("Firehose cannot decode seq page @{}", seq, e);
+                        failures.increment();
+                        flush(rows, seq, claim);             // matches decoded before the error become known
+                        Thread.sleep(idle.toMillis());
+                        continue;
+                    }
+                    pages.increment();
+                    seen.add(d.returned());
+                    if (d.returned() > 0) {
+                        planner.observe(seq, d.lastSeq(), d.returned());
+                        seq = d.lastSeq() + 1;
+                    }
+                    archiveKept(body, rows, before);
+
+                    atHead = d.returned() < PAGE;
+                    if (rows.matchCount() >= chunkSize || atHead || rows.matchCount() == 0) flush(rows, seq, claim);
+                    if (atHead) Thread.sleep(idle.toMillis());
+                } catch (RuntimeException e) {
+                    failures.increment();
+                    log.error("Match firehose failed @{}, retrying in {}", seq, idle, e);
+                    Thread.sleep(idle.toMillis());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (rows.matchCount() > 0) {                            // pages up to seq are all in rows
+                try {
+                    flush(rows, seq, claim);                    // one attempt: the interrupt ends the backoff
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            claim[0].close();
+        }
+    }
+
+    private boolean keep(MatchScratch m) {
+        return (lobbyTypes.length == 0 || contains(lobbyTypes, m.lobbyType))
+            && (gameModes.length  == 0 || contains(gameModes, m.gameMode));
+    }
+
+    /** The raw archive only gets the matches that are stored, like a per-player ingest. */
+    private void archiveKept(byte[] body, ChunkRows rows, int from) {
+        if (rows.matchCount() == from) return;
+        Set<Long> kept = new HashSet<>();
+        for (int i = from; i < rows.matchCount(); i++) kept.add(rows.matches.matchId[i]);
+        archive.appendPage(body, kept::contains);
+    }
+
+    /**
+     * Writes the pending rows, waits for the runs holding matches this chunk
+     * joined, and then moves the cursor to {@code seq} under a fresh claim. A
+     * failed write is retried on the same rows, backing off up to
+     * {@code steam.firehose.idle}, before any further page is fetched.
+     */
+    private void flush(ChunkRows rows, long seq, InFlightMatches.Claim[] claim) throws InterruptedException {
+        for (long backoff = 1_000; rows.matchCount() > 0; backoff = Math.min(backoff * 2, idle.toMillis())) {
+            try {
+                writer.write(rows, ingest.bulkEligible(rows));
+            } catch (DataAccessException e) {
+                failures.increment();
+                log.warn("Firehose chunk failed, retrying in {} ms – {}", backoff, e.getMessage());
+                Thread.sleep(backoff);
+                continue;
+            }
+            written.add(rows.matchCount());
+            rows.clear();
+        }
+        claim[0].close();
+        claim[0].awaitOthers(() -> Thread.currentThread().isInterrupted());
+        claim[0] = inFlight.open();
+        if (Thread.currentThread().isInterrupted()) return;      // the joined runs may still be writing
+        cursors.save(CURSOR, seq);
+        nextSeq = seq;
+    }
+
+    private static boolean contains(int[] a, int v) {
+        for (int x : a) if (x == v) return true;
+        return false;
+    }
+}
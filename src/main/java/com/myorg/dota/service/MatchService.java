@@ -1,6 +1,7 @@
 package com.myorg.dota.service;
 
 import com.myorg.dota.dto.MatchOverviewDto;
+import com.myorg.dota.dto.MatchPageDto;
 import com.myorg.dota.dto.MatchSummaryDto;
 import com.myorg.dota.dto.MatchDetailDto;
 
@@ -10,6 +11,13 @@ public interface MatchService {
 
     List<MatchSummaryDto> findRecentMatches(long accountId, int limit);
 
+    /**
+     * A page of the player's matches, newest first, after {@code cursor}
+     * (null – from the newest). Throws IllegalArgumentException for a cursor
+     * this method did not issue.
+     */
+    MatchPageDto findMatchPage(long accountId, int limit, String cursor);
+
     MatchDetailDto findMatchDetail(long matchId);
     List<MatchOverviewDto> listAllMatches();
 }
@@ -0,0 +1,565 @@
+package com.myorg.dota.service.analytics;
+
+import com.myorg.dota.dto.HeroStatsDto;
+import com.myorg.dota.dto.PlayerStatsDto;
+import com.myorg.dota.service.ingest.ChunkRows;
+import com.myorg.dota.service.ingest.MatchColumns;
+import com.myorg.dota.service.ingest.PlayerColumns;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * In-process copy of the hot columns of {@code fact_matches} and
+ * {@code fact_player_match} as primitive arrays, for the analytics endpoints
+ * to aggregate without a database round trip. Off unless
+ * {@code analytics.columnar.enabled=true}.
+ * <p>
+ * Loaded from one consistent snapshot after startup (and again on
+ * {@code analytics.columnar.reload-cron}); chunks this node commits are
+ * appended after commit, including those committed while a load runs –
+ * only the matches whose match or player rows the commit changed. A
+ * re-written match is appended again and its old rows are marked dead until
+ * the next load compacts them. Commits of other nodes show up with the next
+ * reload. Days are UTC days, like {@code DATE(start_time)} in SQL.
+ * <p>
+ * About 20 bytes per player row. Scans run on the common fork-join pool in
+ * blocks of {@link #BLOCK} rows under the read lock; appends take the write
+ * lock. Callers check {@link #isReady()} and fall back to SQL until the
+ * first load is done.
+ */
+@Component
+@ConditionalOnProperty(name = "analytics.columnar.enabled", havingValue = "true")
+public class ColumnarStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnarStore.class);
+
+    static final long ANONYMOUS = 4294967295L;
+    static final int BLOCK = 1 << 16;
+
+    private final JdbcTemplate jdbc;
+    private final JdbcTemplate stream;
+    private final TransactionTemplate snapshot;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Columns cols = new Columns(BLOCK);           // guarded by lock
+    private List<Consumer<Columns>> pending;              // commits during a load; guarded by lock
+    private volatile Map<Integer, String[]> heroes = Map.of();
+    private volatile boolean ready;
+
+    public ColumnarStore(JdbcTemplate jdbc, DataSource dataSource, PlatformTransactionManager txManager) {
+        this.jdbc     = jdbc;
+        this.stream   = new JdbcTemplate(dataSource);
+        this.stream.setFetchSize(Integer.MIN_VALUE);     // Connector/J: stream rows instead of buffering the table
+        this.snapshot = new TransactionTemplate(txManager);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshot.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread.ofVirtual().name("columnar-load").start(this::reload);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** Builds the columns anew from the database and swaps them in; a no-op while a load is running. */
+    @Scheduled(cron = "${analytics.columnar.reload-cron:-}")
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) return;
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long t0 = System.nanoTime();
+        Columns fresh;
+        try {
+            Map<Integer, String[]> h = new HashMap<>();
+            jdbc.query("SELECT hero_id, name_en, img_portrait FROM dim_heroes", rs -> {
+                h.put(rs.getInt(1), new String[] { rs.getString(2), rs.getString(3) });
+            });
+            heroes = Map.copyOf(h);
+            fresh = snapshot.execute(s -> load());
+        } catch (RuntimeException e) {
+            log.warn("‼ Columnar store load failed", e);
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        int caughtUp;
+        lock.writeLock().lock();
+        try {
+            for (Consumer<Columns> c : pending) c.accept(fresh);
+            caughtUp = pending.size();
+            pending = null;
+            cols = fresh;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("✓ Columnar store: {} matches, {} player rows, {} accounts in {} ms (+{} chunks committed meanwhile)",
+                fresh.matches, fresh.players, fresh.accounts, (System.nanoTime() - t0) / 1_000_000, caughtUp);
+    }
+
+    /** Both tables from the snapshot of the surrounding transaction, each read once as a stream. */
+    private Columns load() {
+        Columns c = new Columns(BLOCK);
+        stream.query("""
+                SELECT match_id, start_time, duration_sec, lobby_type, game_mode, radiant_win
+                FROM fact_matches""", rs -> {
+            Timestamp ts = rs.getTimestamp(2);
+            c.addMatch(rs.getLong(1), ts.getTime() / 1000, (int) Math.floorDiv(ts.getTime(), 86_400_000L),
+                    rs.getInt(3), rs.getInt(4), rs.getInt(5), rs.getBoolean(6));
+        });
+        stream.query("""
+                SELECT match_id, account_id, is_radiant, hero_id, kills, deaths, assists, gpm, xpm
+                FROM fact_player_match""", rs -> {
+            int m = c.matchAt.get(rs.getLong(1));
+            if (m < 0) return;
+            c.addPlayer(m, rs.getLong(2), rs.getBoolean(3), rs.getInt(4),
+                    rs.getInt(5), rs.getInt(6), rs.getInt(7), rs.getInt(8), rs.getInt(9));
+        });
+        return c;
+    }
+
+    /**
+     * Appends the chunk's matches accepted by {@code changed} once the current
+     * transaction commits (right away when there is none); matches a commit
+     * left as they were would only add dead copies. Matches and players are
+     * copied now, so the caller may reuse {@code rows}.
+     */
+    public void addAfterCommit(ChunkRows rows, LongPredicate changed) {
+        if (rows.matchCount() == 0) return;
+        ChunkRows copy = new ChunkRows(rows.matchCount());
+        copy.matches.addAll(rows.matches);
+        copy.players.addAll(rows.players);
+        Consumer<Columns> append = c -> c.append(copy, changed);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() { add(append); }
+            });
+        } else {
+            add(append);
+        }
+    }
+
+    private void add(Consumer<Columns> append) {
+        lock.writeLock().lock();
+        try {
+            append.accept(cols);
+            if (pending != null) pending.add(append);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("ready", ready);
+            m.put("loading", pending != null);
+            m.put("matches", cols.matches);
+            m.put("dead_matches", cols.deadMatches);
+            m.put("player_rows", cols.players);
+            m.put("accounts", cols.accounts);
+            return m;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------- aggregates ----------
+
+    /**
+     * Hero meta over days [from, to] (null = open) of the given lobby types and
+     * game modes (null or empty = all), in the row shape of
+     * {@code /api/heroes/stats}, most played first.
+     */
+    public List<Map<String, Object>> heroStats(LocalDate from, LocalDate to,
+                                               Collection<Integer> lobbyTypes, Collection<Integer> gameModes) {
+        boolean[] lobbyOk = byteSet(lobbyTypes);
+        boolean[] modeOk  = byteSet(gameModes);
+        int dayFrom = from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+        int dayTo   = to   == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+
+        HeroSums total;
+        lock.readLock().lock();
+        try {
+            Columns c = cols;
+            int heroCap = c.maxHero + 1;
+            total = blocks(c.players).mapToObj(b -> {
+                HeroSums s = new HeroSums(heroCap);
+                for (int i = b * BLOCK, end = Math.min(c.players, i + BLOCK); i < end; i++) {
+                    int m = c.matchRow[i];
+                    if (bit(c.dead, m) || !lobbyOk[c.lobby[m] & 0xFF] || !modeOk[c.mode[m] & 0xFF]) continue;
+                    if (c.day[m] < dayFrom || c.day[m] > dayTo) continue;
+                    s.add(c, i, m);
+                }
+                return s;
+            }).reduce(HeroSums::merge).orElseGet(() -> new HeroSums(heroCap));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (int h = 0; h < total.games.length; h++) {
+            long games = total.games[h];
+            if (games == 0) continue;
+            String[] dim = heroes.get(h);
+            if (dim == null) continue;
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("hero_id", h);
+            row.put("name_en", dim[0]);
+            row.put("img_portrait", dim[1]);
+            row.put("games_played", games);
+            row.put("wins", total.wins[h]);
+            row.put("avg_kda", total.kdaGames[h] == 0 ? null : total.kdaSum[h] / total.kdaGames[h]);
+            row.put("avg_duration", (double) total.duration[h] / games);
+            row.put("avg_gpm", (double) total.gpm[h] / games);
+            row.put("avg_xpm", (double) total.xpm[h] / games);
+            out.add(row);
+        }
+        out.sort(Comparator.comparingLong((Map<String, Object> r) -> (Long) r.get("games_played")).reversed());
+        return out;
+    }
+
+    /**
+     * Per-account totals of {@code /api/players}: known accounts with more than
+     * {@code minGames} games in {@code lobbyType}. As there, the KDA average
+     * leaves out games with 0 or 1 deaths.
+     */
+    public List<Map<String, Object>> playerTotals(int lobbyType, int minGames) {
+        List<Map<String, Object>> out = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Columns c = cols;
+            int n = c.accounts;
+            AtomicIntegerArray games = new AtomicIntegerArray(n), wins = new AtomicIntegerArray(n),
+                               kdaGames = new AtomicIntegerArray(n);
+            AtomicLongArray kdaSum = new AtomicLongArray(n), duration = new AtomicLongArray(n),
+                            gpm = new AtomicLongArray(n), xpm = new AtomicLongArray(n);
+            byte lobby = (byte) lobbyType;
+            blocks(c.players).forEach(b -> {
+                for (int i = b * BLOCK, end = Math.min(c.players, i + BLOCK); i < end; i++) {
+                    int m = c.matchRow[i];
+                    if (c.lobby[m] != lobby || bit(c.dead, m)) continue;
+                    int a = c.account[i];
+                    if (c.accountIds[a] == ANONYMOUS) continue;
+                    games.incrementAndGet(a);
+                    if (bit(c.won, i)) wins.incrementAndGet(a);
+                    if (c.deaths[i] > 1) {
+                        kdaGames.incrementAndGet(a);
+                        kdaSum.addAndGet(a, kda4(c.kills[i] + c.assists[i], c.deaths[i]));
+                    }
+                    duration.addAndGet(a, c.duration[m]);
+                    gpm.addAndGet(a, c.gpm[i]);
+                    xpm.addAndGet(a, c.xpm[i]);
+                }
+            });
+            for (int a = 0; a < n; a++) {
+                int g = games.get(a);
+                if (g <= minGames) continue;
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("account_id", c.accountIds[a]);
+                row.put("games_played", g);
+                row.put("wins", wins.get(a));
+                row.put("avg_kda", kdaGames.get(a) == 0 ? null : kdaSum.get(a) / 10_000.0 / kdaGames.get(a));
+                row.put("avg_duration", (double) duration.get(a) / g);
+                row.put("avg_gpm", (double) gpm.get(a) / g);
+                row.put("avg_xpm", (double) xpm.get(a) / g);
+                out.add(row);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    /** {@link PlayerStatsDto} over the account's last {@code limit} matches (all of them for limit ≤ 0). */
+    public PlayerStatsDto playerStats(long accountId, int limit) {
+        long games = 0, wins = 0, kills = 0, deaths = 0, assists = 0, gpm = 0, xpm = 0;
+        long first = Long.MAX_VALUE;
+        lock.readLock().lock();
+        try {
+            Columns c = cols;
+            for (int i : recentRows(c, accountId, limit)) {
+                games++;
+                if (bit(c.won, i)) wins++;
+                kills   += c.kills[i];
+                deaths  += c.deaths[i];
+                assists += c.assists[i];
+                gpm     += c.gpm[i];
+                xpm     += c.xpm[i];
+                first = Math.min(first, c.startTime[c.matchRow[i]]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (games == 0) return new PlayerStatsDto(0, 0, 0, 0, 0, 0, 0, 0, null);
+        double g = games;
+        return new PlayerStatsDto((int) games, wins / g, kills / g, deaths / g, assists / g, gpm / g, xpm / g,
+                (int) wins, new Timestamp(first * 1000).toLocalDateTime());
+    }
+
+    /** {@link HeroStatsDto} per hero over the account's last {@code limit} matches, most played first. */
+    public List<HeroStatsDto> playerHeroStats(long accountId, int limit) {
+        HeroSums s;
+        lock.readLock().lock();
+        try {
+            Columns c = cols;
+            s = new HeroSums(c.maxHero + 1);
+            for (int i : recentRows(c, accountId, limit)) s.add(c, i, c.matchRow[i]);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<HeroStatsDto> out = new ArrayList<>();
+        for (int h = 0; h < s.games.length; h++) {
+            long games = s.games[h];
+            if (games == 0) continue;
+            String[] dim = heroes.get(h);
+            if (dim == null) continue;
+            double g = games;
+            out.add(new HeroStatsDto(h, dim[0], dim[1], (int) games,
+                    s.wins[h] / g, s.kills[h] / g, s.deaths[h] / g, s.assists[h] / g));
+        }
+        out.sort(Comparator.comparingInt(HeroStatsDto::getGamesPlayed).reversed());
+        return out;
+    }
+
+    /** Live rows of the account, newest first (start time, then match id), at most {@code limit} of them. */
+    private static int[] recentRows(Columns c, long accountId, int limit) {
+        int a = c.accountAt.get(accountId);
+        if (a < 0) return new int[0];
+        int[] rows = blocks(c.players).flatMap(b -> {
+            int end = Math.min(c.players, b * BLOCK + BLOCK);
+            return IntStream.range(b * BLOCK, end).filter(i -> c.account[i] == a && !bit(c.dead, c.matchRow[i]));
+        }).toArray();
+        Comparator<Integer> newestFirst = Comparator
+                .comparingLong((Integer i) -> c.startTime[c.matchRow[i]])
+                .thenComparingLong(i -> c.matchId[c.matchRow[i]])
+                .reversed();
+        return IntStream.of(rows).boxed()
+                .sorted(newestFirst)
+                .limit(limit <= 0 ? Long.MAX_VALUE : limit)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static IntStream blocks(int rows) {
+        return IntStream.range(0, (rows + BLOCK - 1) / BLOCK).parallel();
+    }
+
+    /** {@code ROUND((k + a) / d, 4)} of MySQL in ten-thousandths. */
+    private static long kda4(int killsAssists, int deaths) {
+        return (killsAssists * 20_000L / deaths + 1) / 2;
+    }
+
+    private static boolean[] byteSet(Collection<Integer> values) {
+        boolean[] set = new boolean[256];
+        if (values == null || values.isEmpty()) Arrays.fill(set, true);
+        else for (int v : values) set[v & 0xFF] = true;
+        return set;
+    }
+
+    static boolean bit(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    static void setBit(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    /** Per-hero sums of one scan block; merged pairwise. */
+    private static final class HeroSums {
+        final long[] games, wins, kdaGames, kills, deaths, assists, duration, gpm, xpm;
+        final double[] kdaSum;
+
+        HeroSums(int heroes) {
+            games = new long[heroes]; wins = new long[heroes]; kdaGames = new long[heroes];
+            kills = new long[heroes]; deaths = new long[heroes]; assists = new long[heroes];
+            duration = new long[heroes]; gpm = new long[heroes]; xpm = new long[heroes];
+            kdaSum = new double[heroes];
+        }
+
+        void add(Columns c, int i, int m) {
+            int h = c.hero[i];
+            games[h]++;
+            if (bit(c.won, i)) wins[h]++;
+            kills[h]   += c.kills[i];
+            deaths[h]  += c.deaths[i];
+            assists[h] += c.assists[i];
+            if (c.deaths[i] > 0) {
+                kdaGames[h]++;
+                kdaSum[h] += kda4(c.kills[i] + c.assists[i], c.deaths[i]) / 10_000.0;
+            }
+            duration[h] += c.duration[m];
+            gpm[h]      += c.gpm[i];
+            xpm[h]      += c.xpm[i];
+        }
+
+        HeroSums merge(HeroSums o) {
+            for (int h = 0; h < games.length; h++) {
+                games[h] += o.games[h]; wins[h] += o.wins[h]; kdaGames[h] += o.kdaGames[h];
+                kills[h] += o.kills[h]; deaths[h] += o.deaths[h]; assists[h] += o.assists[h];
+                duration[h] += o.duration[h]; gpm[h] += o.gpm[h]; xpm[h] += o.xpm[h];
+                kdaSum[h] += o.kdaSum[h];
+            }
+            return this;
+        }
+    }
+
+    /**
+     * The columns themselves. Match columns are indexed by match row, player
+     * columns by player row; {@code matchRow} links the two and {@code account}
+     * points into {@code accountIds}. Bit sets: {@code won} per player row,
+     * {@code radiantWin} and {@code dead} per match row.
+     */
+    private static final class Columns {
+        int matches, deadMatches;
+        long[] matchId, startTime;
+        int[] day, duration;
+        byte[] lobby, mode;
+        long[] radiantWin, dead;
+        final LongIntMap matchAt;
+
+        int players, maxHero;
+        int[] matchRow, account;
+        short[] hero, kills, deaths, assists;
+        char[] gpm, xpm;
+        long[] won;
+
+        int accounts;
+        long[] accountIds;
+        final LongIntMap accountAt;
+
+        Columns(int capacity) {
+            matchId = new long[capacity]; startTime = new long[capacity];
+            day = new int[capacity]; duration = new int[capacity];
+            lobby = new byte[capacity]; mode = new byte[capacity];
+            radiantWin = new long[capacity >>> 6]; dead = new long[capacity >>> 6];
+            matchAt = new LongIntMap(capacity);
+
+            int p = capacity * 10;
+            matchRow = new int[p]; account = new int[p];
+            hero = new short[p]; kills = new short[p]; deaths = new short[p]; assists = new short[p];
+            gpm = new char[p]; xpm = new char[p];
+            won = new long[p >>> 6];
+
+            accountIds = new long[capacity];
+            accountAt = new LongIntMap(capacity);
+        }
+
+        /** Appends the match and returns its row; an earlier version of it is marked dead. */
+        int addMatch(long id, long start, int epochDay, int dur, int lobbyType, int gameMode, boolean radiantWon) {
+            if (matches == matchId.length) growMatches();
+            int old = matchAt.get(id);
+            if (old >= 0) {
+                setBit(dead, old);
+                deadMatches++;
+            }
+            int m = matches++;
+            matchId[m] = id;
+            startTime[m] = start;
+            day[m] = epochDay;
+            duration[m] = dur;
+            lobby[m] = (byte) lobbyType;
+            mode[m] = (byte) gameMode;
+            if (radiantWon) setBit(radiantWin, m);
+            matchAt.put(id, m);
+            return m;
+        }
+
+        void addPlayer(int m, long accountId, boolean isRadiant, int heroId,
+                       int k, int d, int a, int goldPerMin, int xpPerMin) {
+            if (players == matchRow.length) growPlayers();
+            int acc = accountAt.get(accountId);
+            if (acc < 0) {
+                if (accounts == accountIds.length) accountIds = Arrays.copyOf(accountIds, accounts * 2);
+                acc = accounts++;
+                accountIds[acc] = accountId;
+                accountAt.put(accountId, acc);
+            }
+            int i = players++;
+            matchRow[i] = m;
+            account[i] = acc;
+            hero[i] = (short) heroId;
+            kills[i] = (short) k;
+            deaths[i] = (short) d;
+            assists[i] = (short) a;
+            gpm[i] = (char) goldPerMin;
+            xpm[i] = (char) xpPerMin;
+            if (isRadiant == bit(radiantWin, m)) setBit(won, i);
+            maxHero = Math.max(maxHero, heroId);
+        }
+
+        void append(ChunkRows rows, LongPredicate include) {
+            MatchColumns mc = rows.matches;
+            int[] rowOf = new int[mc.size()];
+            Map<Long, Integer> chunkAt = new HashMap<>(mc.size() * 2);
+            for (int i = 0; i < mc.size(); i++) {
+                if (!include.test(mc.matchId[i])) continue;
+                rowOf[i] = addMatch(mc.matchId[i], mc.startTime[i], (int) Math.floorDiv(mc.startTime[i], 86_400),
+                        mc.duration[i], mc.lobbyType[i], mc.gameMode[i], mc.radiantWin[i]);
+                chunkAt.put(mc.matchId[i], i);
+            }
+            PlayerColumns p = rows.players;
+            for (int i = 0; i < p.size(); i++) {
+                Integer mi = chunkAt.get(p.matchId[i]);
+                if (mi == null) continue;
+                addPlayer(rowOf[mi], p.accountId[i], p.slot[i] < 128, p.heroId[i],
+                        p.kills[i], p.deaths[i], p.assists[i], p.gpm[i], p.xpm[i]);
+            }
+        }
+
+        private void growMatches() {
+            int n = matchId.length * 2;
+            matchId = Arrays.copyOf(matchId, n); startTime = Arrays.copyOf(startTime, n);
+            day = Arrays.copyOf(day, n); duration = Arrays.copyOf(duration, n);
+            lobby = Arrays.copyOf(lobby, n); mode = Arrays.copyOf(mode, n);
+            radiantWin = Arrays.copyOf(radiantWin, n >>> 6); dead = Arrays.copyOf(dead, n >>> 6);
+        }
+
+        private void growPlayers() {
+            int n = matchRow.length * 2;
+            matchRow = Arrays.copyOf(matchRow, n); account = Arrays.copyOf(account, n);
+            hero = Arrays.copyOf(hero, n); kills = Arrays.copyOf(kills, n);
+            deaths = Arrays.copyOf(deaths, n); assists = Arrays.copyOf(assists, n);
+            gpm = Arrays.copyOf(gpm, n); xpm = Arrays.copyOf(xpm, n);
+            won = Arrays.copyOf(won, n >>> 6);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.myorg.dota.service.archive;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.myorg.dota.service.SteamMatchIngestService;
+import com.myorg.dota.service.ingest.ChunkRows;
+import com.myorg.dota.service.ingest.FactChunkWriter;
+import com.myorg.dota.service.ingest.IngestProgress;
+import com.myorg.dota.service.ingest.MatchPageDecoder;
+import com.myorg.dota.service.ingest.StreamingMatchDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Rebuilds the fact tables from {@link RawMatchArchive} – no Steam calls.
+ * <p>
+ * The segments are walked once to cut the newest copy of every match into
+ * batches of {@code steam.archive.replay.batch}; a fixed pool of
+ * {@code steam.archive.replay.threads} (default: one per core) then inflates,
+ * decodes and writes each batch as one chunk through {@link FactChunkWriter}.
+ * Without {@code rebuild} the usual diff applies and unchanged matches cost
+ * no write; with it every match is deleted and written anew, which is what a
+ * decoder fix or a new column needs.
+ */
+@Service
+public class ArchiveReplay {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveReplay.class);
+
+    private static final byte[] PAGE_HEAD = "{\"result\":{\"matches\":[".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PAGE_TAIL = "]}}".getBytes(StandardCharsets.US_ASCII);
+
+    private final RawMatchArchive archive;
+    private final FactChunkWriter writer;
+    private final SteamMatchIngestService ingest;
+    private final MatchPageDecoder decoder = new StreamingMatchDecoder(new JsonFactory());
+
+    @Value("${steam.archive.replay.batch:500}")
+    private int batchSize;
+
+    @Value("${steam.archive.replay.threads:0}")
+    private int threads;
+
+    public ArchiveReplay(RawMatchArchive archive, FactChunkWriter writer, SteamMatchIngestService ingest) {
+        this.archive = archive;
+        this.writer  = writer;
+        this.ingest  = ingest;
+    }
+
+    private record Ref(ArchiveSegment seg, int off) { }
+
+    /** Replays the whole archive; returns the number of matches written. */
+    public long replay(boolean rebuild, IngestProgress progress) {
+        if (!archive.isEnabled()) throw new IllegalStateException("raw archive is disabled (steam.archive.enabled)");
+
+        List<List<Ref>> batches = plan();
+        int total = batches.stream().mapToInt(List::size).sum();
+        progress.planned(total, 0);
+        log.info("Replaying {} archived matches in {} batches{}", total, batches.size(), rebuild ? " (rebuild)" : "");
+
+        int n = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(n, Thread.ofPlatform().name("archive-replay-", 0).factory());
+        try {
+            List<Future<Integer>> results = new ArrayList<>(batches.size());
+            for (List<Ref> b : batches) results.add(pool.submit(() -> replayBatch(b, rebuild, progress)));
+
+            long written = 0;
+            for (Future<Integer> f : results) {
+                try {
+                    written += f.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("archive replay failed", e.getCause());
+                }
+            }
+            log.info("✓ Replayed {} of {} archived matches", written, total);
+            return written;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("archive replay interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Newest copy of every archived match, cut into batches in log order. */
+    private List<List<Ref>> plan() {
+        List<List<Ref>> batches = new ArrayList<>();
+        List<Ref> cur = new ArrayList<>(batchSize);
+        for (ArchiveSegment seg : archive.segments()) {
+            int end = seg.end();                      // appends after this are not part of the run
+            for (int off = 0; off < end; off = seg.next(off)) {
+                if (!archive.isLatest(seg, off)) continue;
+                cur.add(new Ref(seg, off));
+                if (cur.size() == batchSize) {
+                    batches.add(cur);
+                    cur = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        if (!cur.isEmpty()) batches.add(cur);
+        return batches;
+    }
+
+    private int replayBatch(List<Ref> batch, boolean rebuild, IngestProgress progress) throws IOException {
+        if (progress.cancelled()) return 0;
+
+        // the archived objects, wrapped back into a page the decoder knows
+        ByteArrayOutputStream page = new ByteArrayOutputStream(batch.size() * 4096);
+        page.writeBytes(PAGE_HEAD);
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) page.write(',');
+            page.writeBytes(RawMatchArchive.inflate(batch.get(i).seg(), batch.get(i).off()));
+        }
+        page.writeBytes(PAGE_TAIL);
+
+        ChunkRows rows = new ChunkRows(batch.size());
+        decoder.decode(page.toByteArray(), id -> true, rows);
+        progress.fetched(rows.matchCount());
+        if (rows.matchCount() < batch.size()) progress.failed(batch.size() - rows.matchCount());
+
+        boolean bulk = ingest.bulkEligible(rows);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (rebuild) writer.replace(rows, bulk);
+                else         writer.write(rows, bulk);
+                break;
+            } catch (DataAccessException ex) {
+                if (attempt == 3) throw new IllegalStateException("replay chunk failed 3× in a row", ex);
+                log.warn("replay chunk failed ({} of 3) – {}", attempt, ex.getMessage());
+                try {
+                    Thread.sleep(500L * attempt);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return 0;
+                }
+            }
+        }
+        progress.written(rows.matchCount());
+        return rows.matchCount();
+    }
+}
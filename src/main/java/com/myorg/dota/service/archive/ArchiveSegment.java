@@ -0,0 +1,239 @@
+package com.myorg.dota.service.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * One memory-mapped log file of the raw archive.
+ * <pre>
+ * record := magic:int matchId:long rawLen:int compLen:int crc32:int deflated[compLen]
+ * </pre>
+ * The payload and the rest of the header are written before the magic, so a
+ * record is either complete or, after a crash, reads as the zeroed end of the
+ * log; a torn record left behind is caught by its CRC on recovery and wiped.
+ * <p>
+ * A segment opened for appending indexes its records in a hash map. When it
+ * is sealed the index is written next to the log as {@code .idx}: two
+ * parallel arrays sorted by match id, 12 bytes per record, which is what a
+ * sealed segment holds once reopened – without rescanning the log.
+ */
+final class ArchiveSegment implements AutoCloseable {
+
+    static final int MAGIC  = 0x52415731;                // "RAW1"
+    static final int HEADER = 4 + 8 + 4 + 4 + 4;
+
+    final int id;
+    private final Path path;
+    private final FileChannel ch;
+    private final MappedByteBuffer buf;
+    private final int capacity;
+    private volatile int end;
+    private int dirtyFrom;
+
+    private final ConcurrentHashMap<Long, Integer> openIndex;   // null when opened sealed
+    private volatile long[] sortedIds;
+    private volatile int[] sortedOffsets;
+
+    private ArchiveSegment(int id, Path path, FileChannel ch, MappedByteBuffer buf, int capacity, boolean open) {
+        this.id        = id;
+        this.path      = path;
+        this.ch        = ch;
+        this.buf       = buf;
+        this.capacity  = capacity;
+        this.openIndex = open ? new ConcurrentHashMap<>() : null;
+    }
+
+    static Path logPath(Path dir, int id)   { return dir.resolve(String.format("seg-%06d.log", id)); }
+    static Path indexPath(Path dir, int id) { return dir.resolve(String.format("seg-%06d.idx", id)); }
+
+    /** Maps a segment for appending, recovering what it already holds. */
+    static ArchiveSegment openForAppend(Path dir, int id, int capacity) throws IOException {
+        Path p = logPath(dir, id);
+        FileChannel ch = FileChannel.open(p, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int cap = (int) Math.max(capacity, ch.size());
+        ArchiveSegment s = new ArchiveSegment(id, p, ch, ch.map(FileChannel.MapMode.READ_WRITE, 0, cap), cap, true);
+        s.recover();
+        return s;
+    }
+
+    /** Maps a sealed segment read-only, from its {@code .idx} when there is one. */
+    static ArchiveSegment openSealed(Path dir, int id) throws IOException {
+        Path p = logPath(dir, id);
+        FileChannel ch = FileChannel.open(p, StandardOpenOption.READ);
+        int cap = (int) ch.size();
+        ArchiveSegment s = new ArchiveSegment(id, p, ch, ch.map(FileChannel.MapMode.READ_ONLY, 0, cap), cap, false);
+        if (!s.loadIndex(indexPath(dir, id))) {
+            s.scan(false);
+            s.writeIndex(indexPath(dir, id));
+        }
+        return s;
+    }
+
+    int end() { return end; }
+
+    int records() {
+        return openIndex != null ? openIndex.size() : sortedIds.length;
+    }
+
+    /** Offset of the match's record, or -1. */
+    int find(long matchId) {
+        if (openIndex != null) {
+            Integer off = openIndex.get(matchId);
+            return off == null ? -1 : off;
+        }
+        int i = Arrays.binarySearch(sortedIds, matchId);
+        return i < 0 ? -1 : sortedOffsets[i];
+    }
+
+    /** Appends one deflated record; false when the segment is full. Callers serialize appends. */
+    boolean append(long matchId, int rawLen, byte[] deflated, int len) {
+        int at = end;
+        if ((long) at + HEADER + len > capacity) return false;
+
+        CRC32 crc = new CRC32();
+        crc.update(deflated, 0, len);
+        buf.put(at + HEADER, deflated, 0, len);
+        buf.putLong(at + 4, matchId);
+        buf.putInt(at + 12, rawLen);
+        buf.putInt(at + 16, len);
+        buf.putInt(at + 20, (int) crc.getValue());
+        buf.putInt(at, MAGIC);                           // last: the record exists from here on
+
+        openIndex.put(matchId, at);                      // a later copy of the same match wins
+        end = at + HEADER + len;
+        return true;
+    }
+
+    /** Flushes the records appended since the previous call to disk. */
+    void force() {
+        int e = end;
+        if (e > dirtyFrom) {
+            buf.force(dirtyFrom, e - dirtyFrom);
+            dirtyFrom = e;
+        }
+    }
+
+    long matchIdAt(int off) { return buf.getLong(off + 4); }
+    int rawLenAt(int off)   { return buf.getInt(off + 12); }
+    int compLenAt(int off)  { return buf.getInt(off + 16); }
+
+    /** Offset of the record after the one at {@code off}, or {@link #end()}. */
+    int next(int off) { return off + HEADER + compLenAt(off); }
+
+    /** Copies the deflated payload of the record at {@code off} into {@code dst}. */
+    void payload(int off, byte[] dst) {
+        buf.get(off + HEADER, dst, 0, compLenAt(off));
+    }
+
+    /** Writes the sorted index next to the log; no appends after this. */
+    void seal(Path dir) {
+        force();
+        buildSorted(openIndex);
+        writeIndex(indexPath(dir, id));
+    }
+
+    private void recover() {
+        int torn = scan(true);
+        if (torn >= 0) {
+            int len = compLenAt(torn);
+            int stop = len < 0 || (long) torn + HEADER + len > capacity ? torn + HEADER : torn + HEADER + len;
+            for (int i = torn; i < stop; i++) buf.put(i, (byte) 0);
+            buf.force();
+        }
+        dirtyFrom = end;
+    }
+
+    /**
+     * Walks the records from the start, indexing them. Returns the offset of a
+     * torn record that ends the log, or -1 when it ends cleanly.
+     */
+    private int scan(boolean checkCrc) {
+        ConcurrentHashMap<Long, Integer> idx = openIndex != null ? openIndex : new ConcurrentHashMap<>();
+        int at = 0, torn = -1;
+        byte[] tmp = new byte[0];
+        while (at + HEADER <= capacity && buf.getInt(at) == MAGIC) {
+            int len = compLenAt(at);
+            if (len < 0 || (long) at + HEADER + len > capacity) { torn = at; break; }
+            if (checkCrc) {
+                if (tmp.length < len) tmp = new byte[len];
+                buf.get(at + HEADER, tmp, 0, len);
+                CRC32 crc = new CRC32();
+                crc.update(tmp, 0, len);
+                if ((int) crc.getValue() != buf.getInt(at + 20)) { torn = at; break; }
+            }
+            idx.put(matchIdAt(at), at);
+            at += HEADER + len;
+        }
+        end = at;
+        if (openIndex == null) buildSorted(idx);
+        return torn;
+    }
+
+    private void buildSorted(Map<Long, Integer> idx) {
+        long[] ids = new long[idx.size()];
+        int n = 0;
+        for (long k : idx.keySet()) ids[n++] = k;
+        Arrays.sort(ids);
+        int[] offs = new int[n];
+        for (int i = 0; i < n; i++) offs[i] = idx.get(ids[i]);
+        sortedIds     = ids;
+        sortedOffsets = offs;
+    }
+
+    private boolean loadIndex(Path idx) throws IOException {
+        if (!Files.exists(idx)) return false;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(idx))) {
+            int n = in.readInt();
+            end = in.readInt();
+            long[] ids = new long[n];
+            int[] offs = new int[n];
+            for (int i = 0; i < n; i++) { ids[i] = in.readLong(); offs[i] = in.readInt(); }
+            sortedIds     = ids;
+            sortedOffsets = offs;
+            return true;
+        }
+    }
+
+    private void writeIndex(Path idx) {
+        long[] ids = sortedIds;
+        int[] offs = sortedOffsets;
+        Path tmp = idx.resolveSibling(idx.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(ids.length);
+            out.writeInt(end);
+            for (int i = 0; i < ids.length; i++) { out.writeLong(ids[i]); out.writeInt(offs[i]); }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write " + idx, e);
+        }
+        try {
+            Files.move(tmp, idx, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write " + idx, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (openIndex != null) force();
+        ch.close();
+    }
+
+    @Override
+    public String toString() {
+        return path.getFileName().toString();
+    }
+}
@@ -0,0 +1,57 @@
+package com.myorg.dota.service.archive;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * Finds the exact bytes of each match object in a
+ * {@code GetMatchHistoryBySequenceNum} body, so the archive stores Steam's
+ * JSON as it came and not a re-serialized copy. Everything but
+ * {@code match_id} is skipped without being decoded.
+ */
+final class MatchSlicer {
+
+    record Slice(long matchId, int from, int length) { }
+
+    private MatchSlicer() { }
+
+    static List<Slice> slice(JsonFactory factory, byte[] body, LongPredicate keep) throws IOException {
+        List<Slice> out = new ArrayList<>();
+        try (JsonParser p = factory.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return out;
+            if (!into(p, "result", JsonToken.START_OBJECT)) return out;
+            if (!into(p, "matches", JsonToken.START_ARRAY)) return out;
+
+            while (p.nextToken() == JsonToken.START_OBJECT) {
+                int from = (int) p.currentTokenLocation().getByteOffset();
+                long matchId = -1;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String f = p.currentName();
+                    p.nextToken();
+                    if ("match_id".equals(f)) matchId = p.getLongValue();
+                    else p.skipChildren();
+                }
+                int to = (int) p.currentLocation().getByteOffset();
+                if (matchId >= 0 && keep.test(matchId)) out.add(new Slice(matchId, from, to - from));
+            }
+        }
+        return out;
+    }
+
+    /** Advances to the value of {@code field} in the current object. */
+    private static boolean into(JsonParser p, String field, JsonToken expected) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String f = p.currentName();
+            JsonToken t = p.nextToken();
+            if (field.equals(f) && t == expected) return true;
+            p.skipChildren();
+        }
+        return false;
+    }
+}
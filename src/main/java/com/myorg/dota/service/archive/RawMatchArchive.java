@@ -0,0 +1,231 @@
+package com.myorg.dota.service.archive;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only archive of the raw Steam JSON of every fetched match, so fact
+ * tables can be rebuilt ({@link ArchiveReplay}) without calling Steam again.
+ * <p>
+ * Each match object is sliced out of its page, deflated and appended to the
+ * open {@code seg-NNNNNN.log} under {@code steam.archive.dir}; a full segment
+ * is sealed and the next one started. Appends are forced to disk before
+ * {@link #appendPage} returns, i.e. before the rows reach the DB, so a crash
+ * between fetch and commit loses no payload. Lookups go through the
+ * per-segment match-id indexes, newest segment first.
+ */
+@Component
+public class RawMatchArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(RawMatchArchive.class);
+
+    private static final Pattern SEGMENT = Pattern.compile("seg-(\\d{6})\\.log");
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+
+    private final boolean enabled;
+    private final Path dir;
+    private final int segmentBytes;
+    private final JsonFactory json = new JsonFactory();
+
+    private final List<ArchiveSegment> segments = new CopyOnWriteArrayList<>();   // oldest first, last = open
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    private final LongAdder appended    = new LongAdder();
+    private final LongAdder rawBytes    = new LongAdder();
+    private final LongAdder storedBytes = new LongAdder();
+
+    public RawMatchArchive(@Value("${steam.archive.enabled:true}") boolean enabled,
+                           @Value("${steam.archive.dir:data/raw-archive}") String dir,
+                           @Value("${steam.archive.segment-mb:256}") int segmentMb) throws IOException {
+        this.enabled      = enabled;
+        this.dir          = Path.of(dir);
+        this.segmentBytes = segmentMb << 20;
+        if (enabled) open();
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(dir);
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(f -> {
+                Matcher m = SEGMENT.matcher(f.getFileName().toString());
+                if (m.matches()) ids.add(Integer.parseInt(m.group(1)));
+            });
+        }
+        Collections.sort(ids);
+        for (int i = 0; i < ids.size() - 1; i++) segments.add(ArchiveSegment.openSealed(dir, ids.get(i)));
+        segments.add(ArchiveSegment.openForAppend(dir, ids.isEmpty() ? 1 : ids.get(ids.size() - 1), segmentBytes));
+
+        long records = segments.stream().mapToLong(ArchiveSegment::records).sum();
+        log.info("Raw match archive {}: {} segments, {} records", dir.toAbsolutePath(), segments.size(), records);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Archives the matches of one {@code GetMatchHistoryBySequenceNum} body
+     * accepted by {@code keep}, durably. A body that cannot be sliced is
+     * logged and skipped – archiving never fails an ingest.
+     */
+    public void appendPage(byte[] body, LongPredicate keep) {
+        if (!enabled || body == null) return;
+
+        List<MatchSlicer.Slice> slices;
+        try {
+            slices = MatchSlicer.slice(json, body, keep);
+        } catch (IOException e) {
+            log.warn("Cannot slice page for the archive", e);
+            return;
+        }
+        if (slices.isEmpty()) return;
+
+        // compress on the caller's thread, only the copy into the map is serialized
+        Deflater d = DEFLATER.get();
+        byte[][] packed = new byte[slices.size()][];
+        int[] lens = new int[slices.size()];
+        for (int i = 0; i < slices.size(); i++) {
+            MatchSlicer.Slice s = slices.get(i);
+            packed[i] = deflate(d, body, s.from(), s.length());
+            lens[i]   = packed[i].length;
+        }
+
+        appendLock.lock();
+        try {
+            ArchiveSegment seg = segments.get(segments.size() - 1);
+            for (int i = 0; i < slices.size(); i++) {
+                MatchSlicer.Slice s = slices.get(i);
+                if (!seg.append(s.matchId(), s.length(), packed[i], lens[i])) {
+                    seg = roll(seg);
+                    if (!seg.append(s.matchId(), s.length(), packed[i], lens[i]))
+                        throw new IllegalStateException("match " + s.matchId() + " does not fit in a segment");
+                }
+                appended.increment();
+                rawBytes.add(s.length());
+                storedBytes.add(lens[i]);
+            }
+            seg.force();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /** The match's raw JSON as archived last, or {@code null}. */
+    public byte[] read(long matchId) {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            ArchiveSegment s = segments.get(i);
+            int off = s.find(matchId);
+            if (off >= 0) return inflate(s, off);
+        }
+        return null;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("segments", segments.size());
+        m.put("records", segments.stream().mapToLong(ArchiveSegment::records).sum());
+        m.put("appended", appended.sum());
+        long raw = rawBytes.sum();
+        m.put("compression_ratio", raw == 0 ? 0.0 : Math.round(100.0 * storedBytes.sum() / raw) / 100.0);
+        return m;
+    }
+
+    // ---------- for ArchiveReplay ----------
+
+    List<ArchiveSegment> segments() {
+        return List.copyOf(segments);
+    }
+
+    /** Whether the record at {@code off} of {@code seg} is the newest copy of its match. */
+    boolean isLatest(ArchiveSegment seg, int off) {
+        long matchId = seg.matchIdAt(off);
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            ArchiveSegment s = segments.get(i);
+            int found = s.find(matchId);
+            if (found >= 0) return s == seg && found == off;
+        }
+        return false;
+    }
+
+    static byte[] inflate(ArchiveSegment seg, int off) {
+        byte[] comp = new byte[seg.compLenAt(off)];
+        seg.payload(off, comp);
+        byte[] raw = new byte[seg.rawLenAt(off)];
+        Inflater inf = new Inflater();
+        try {
+            inf.setInput(comp);
+            int n = inf.inflate(raw);
+            if (n != raw.length) throw new IllegalStateException("short record in " + seg + " @" + off);
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("corrupt record in " + seg + " @" + off, e);
+        } finally {
+            inf.end();
+        }
+    }
+
+    // ---------- internals ----------
+
+    private ArchiveSegment roll(ArchiveSegment full) {
+        full.seal(dir);
+        try {
+            ArchiveSegment next = ArchiveSegment.openForAppend(dir, full.id + 1, segmentBytes);
+            segments.add(next);
+            log.info("Raw match archive: sealed {}, now appending to {}", full, next);
+            return next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot open archive segment " + (full.id + 1), e);
+        }
+    }
+
+    private static byte[] deflate(Deflater d, byte[] src, int off, int len) {
+        d.reset();
+        d.setInput(src, off, len);
+        d.finish();
+        byte[] out = new byte[Math.max(64, len / 3)];
+        int n = 0;
+        while (!d.finished()) {
+            if (n == out.length) out = Arrays.copyOf(out, out.length * 2);
+            n += d.deflate(out, n, out.length - n);
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    @PreDestroy
+    void close() {
+        appendLock.lock();
+        try {
+            for (ArchiveSegment s : segments) {
+                try {
+                    s.close();
+                } catch (IOException e) {
+                    log.warn("Cannot close {}", s, e);
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.myorg.dota.dto.PlayerMatchDto;
 import com.myorg.dota.dto.TeamResultDto;
 import com.myorg.dota.dto.ItemDto;
 import com.myorg.dota.dto.MatchOverviewDto;
+import com.myorg.dota.dto.MatchPageDto;
 
 import com.myorg.dota.service.MatchService;
 
@@ -14,8 +15,10 @@ import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,10 +33,23 @@ public class MatchServiceImpl implements MatchService {
 
     @Override
     public List<MatchSummaryDto> findRecentMatches(long accountId, int limit) {
+        return findMatchPage(accountId, limit, null).getMatches();
+    }
+
+    /**
+     * Keyset по {@code (start_time, match_id)} на idx_player_recent: сторінка
+     * читає лише свої рядки, скільки б матчів не мав гравець. Курсор –
+     * base64url від "start_time:match_id" останнього матчу сторінки.
+     */
+    @Override
+    public MatchPageDto findMatchPage(long accountId, int limit, String cursor) {
+        long[] after = cursor == null || cursor.isBlank() ? null : decodeCursor(cursor);
+        if (limit <= 0) return new MatchPageDto(new ArrayList<>(), null);
+
         var sql = """
        SELECT
          pm.match_id,
-         m.start_time,
+         pm.start_time,
          m.duration_sec,
          m.game_mode,
          pm.hero_id,
@@ -42,18 +58,24 @@ public class MatchServiceImpl implements MatchService {
          pm.kills,
          pm.deaths,
          pm.assists,
-         pm.gpm,             
-         pm.xpm  
+         pm.gpm,
+         pm.xpm
        FROM fact_player_match pm
        JOIN fact_matches m ON pm.match_id = m.match_id
        WHERE pm.account_id = :accountId
-       ORDER BY m.start_time DESC
+       %s
+       ORDER BY pm.start_time DESC, pm.match_id DESC
        LIMIT :limit
-       """;
+       """.formatted(after == null ? "" :
+                "AND (pm.start_time < :afterTime OR (pm.start_time = :afterTime AND pm.match_id < :afterId))");
 
         var params = new MapSqlParameterSource()
                 .addValue("accountId", accountId)
-                .addValue("limit", limit);
+                .addValue("limit", (long) limit + 1);            // +1: чи є наступна сторінка
+        if (after != null) {
+            params.addValue("afterTime", new Timestamp(after[0] * 1000));
+            params.addValue("afterId", after[1]);
+        }
 
         List<MatchSummaryDto> result = jdbc.query(
                 sql,
@@ -76,17 +98,28 @@ public class MatchServiceImpl implements MatchService {
                 }
         );
 
-        // ───── Підвантажуємо предмети ─────
+        String next = null;
+        if (result.size() > limit) {
+            result = new ArrayList<>(result.subList(0, limit));
+            MatchSummaryDto last = result.get(limit - 1);
+            next = encodeCursor(Timestamp.valueOf(last.getStartTime()).getTime() / 1000, last.getMatchId());
+        }
+        if (result.isEmpty()) return new MatchPageDto(result, null);
+
+        // ───── Предмети лише для матчів сторінки ─────
         var sqlItems = """
         SELECT match_id, slot_index, i.item_id, i.name_en, i.description, i.img_lg
         FROM fact_player_items fpi
         JOIN dim_items i ON i.item_id = fpi.item_id
-        WHERE fpi.account_id = :accountId
+        WHERE fpi.match_id IN (:matchIds)
+          AND fpi.account_id = :accountId
     """;
 
         Map<Long, List<ItemDto>> itemsByMatch = new HashMap<>();
 
-        jdbc.query(sqlItems, params, rs -> {
+        jdbc.query(sqlItems, new MapSqlParameterSource()
+                .addValue("accountId", accountId)
+                .addValue("matchIds", result.stream().map(MatchSummaryDto::getMatchId).toList()), rs -> {
             long matchId = rs.getLong("match_id");
             itemsByMatch
                     .computeIfAbsent(matchId, k -> new ArrayList<>())
@@ -104,7 +137,22 @@ public class MatchServiceImpl implements MatchService {
                 match.setItems(itemsByMatch.getOrDefault(match.getMatchId(), List.of()))
         );
 
-        return result;
+        return new MatchPageDto(result, next);
+    }
+
+    private static String encodeCursor(long startTime, long matchId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((startTime + ":" + matchId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static long[] decodeCursor(String cursor) {
+        try {
+            String s = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int c = s.indexOf(':');
+            return new long[] { Long.parseLong(s, 0, c, 10), Long.parseLong(s, c + 1, s.length(), 10) };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("bad cursor: " + cursor);
+        }
     }
 
 
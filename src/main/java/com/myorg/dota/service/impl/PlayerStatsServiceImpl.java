@@ -1,112 +1,164 @@
 package com.myorg.dota.service.impl;
 
 import com.myorg.dota.dto.HeroStatsDto;
-import com.myorg.dota.dto.MatchSummaryDto;
 import com.myorg.dota.dto.PlayerStatsDto;
-import com.myorg.dota.service.MatchService;
 import com.myorg.dota.service.PlayerStatsService;
+import com.myorg.dota.service.analytics.ColumnarStore;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
+/**
+ * Статистика гравця.
+ * <p>
+ * За весь час (або коли limit покриває всі ігри) – готові підсумки з
+ * {@code player_rollups} / {@code player_hero_rollups}, тобто пошук за ключем.
+ * Останні N ігор – агрегат над обмеженим діапазоном {@code idx_player_recent},
+ * без списку match_id.
+ * <p>
+ * З увімкненим і завантаженим {@link ColumnarStore} останні N ігор рахуються
+ * в пам'яті.
+ */
 @Service
 public class PlayerStatsServiceImpl implements PlayerStatsService {
     private final NamedParameterJdbcTemplate jdbc;
-    private final MatchService matchService;
-
-    public PlayerStatsServiceImpl(NamedParameterJdbcTemplate jdbc, MatchService matchService) {
+    private final ObjectProvider<ColumnarStore> columnar;
+
+    /** Останні :limit рядків гравця; fact_player_match.is_radiant + fact_matches.radiant_win дають перемогу. */
+    private static final String RECENT = """
+            SELECT pm.hero_id, pm.kills, pm.deaths, pm.assists, pm.gpm, pm.xpm, pm.start_time,
+                   pm.is_radiant = m.radiant_win AS won
+            FROM (SELECT match_id, hero_id, is_radiant, kills, deaths, assists, gpm, xpm, start_time
+                  FROM fact_player_match
+                  WHERE account_id = :accountId
+                  ORDER BY start_time DESC, match_id DESC
+                  LIMIT :limit) pm
+            JOIN fact_matches m ON m.match_id = pm.match_id
+            """;
+
+    public PlayerStatsServiceImpl(NamedParameterJdbcTemplate jdbc, ObjectProvider<ColumnarStore> columnar) {
         this.jdbc = jdbc;
-        this.matchService = matchService;
+        this.columnar = columnar;
     }
 
     @Override
     public PlayerStatsDto aggregateStats(long accountId, int limit) {
-
-        List<MatchSummaryDto> recent = matchService.findRecentMatches(accountId, limit);
-        if (recent.isEmpty()) {
+        var params = new MapSqlParameterSource()
+                .addValue("accountId", accountId)
+                .addValue("limit", limit);
+
+        List<PlayerStatsDto> all = jdbc.query("""
+                SELECT games, wins, kills, deaths, assists, gpm_sum, xpm_sum, first_match
+                FROM player_rollups
+                WHERE account_id = :accountId
+                """, params, (rs, rn) -> {
+            int games = rs.getInt("games");
+            return new PlayerStatsDto(
+                    games,
+                    ratio(rs.getInt("wins"), games),
+                    ratio(rs.getLong("kills"), games),
+                    ratio(rs.getLong("deaths"), games),
+                    ratio(rs.getLong("assists"), games),
+                    ratio(rs.getLong("gpm_sum"), games),
+                    ratio(rs.getLong("xpm_sum"), games),
+                    rs.getInt("wins"),
+                    toLocal(rs.getTimestamp("first_match")));
+        });
+        if (all.isEmpty() || all.get(0).getGamesPlayed() <= 0) {
             return new PlayerStatsDto(0, 0, 0, 0, 0, 0, 0, 0, null);
         }
-
-        List<Long> matchIds = recent.stream()
-                .map(MatchSummaryDto::getMatchId)
-                .toList();
+        if (limit <= 0 || limit >= all.get(0).getGamesPlayed()) {
+            return all.get(0);
+        }
+        ColumnarStore store = columnar.getIfAvailable();
+        if (store != null && store.isReady()) {
+            return store.playerStats(accountId, limit);
+        }
 
         String sql = """
         SELECT
-          COUNT(*)                                    AS games_played,
-          SUM(pm.is_radiant = m.radiant_win)          AS wins,
-          AVG(pm.kills)                               AS avg_kills,
-          AVG(pm.deaths)                              AS avg_deaths,
-          AVG(pm.assists)                             AS avg_assists,
-          AVG(pm.gpm)                                 AS avg_gpm,
-          AVG(pm.xpm)                                 AS avg_xpm,
-          MIN(m.start_time)                           AS first_match
-        FROM fact_player_match pm
-        JOIN fact_matches m ON pm.match_id = m.match_id
-        WHERE pm.account_id = :accountId
-          AND pm.match_id   IN (:matchIds)
-        """;
-
-        var params = new MapSqlParameterSource()
-                .addValue("accountId", accountId)
-                .addValue("matchIds", matchIds);
+          COUNT(*)          AS games_played,
+          SUM(won)          AS wins,
+          AVG(kills)        AS avg_kills,
+          AVG(deaths)       AS avg_deaths,
+          AVG(assists)      AS avg_assists,
+          AVG(gpm)          AS avg_gpm,
+          AVG(xpm)          AS avg_xpm,
+          MIN(start_time)   AS first_match
+        FROM (""" + RECENT + ") r";
 
         return jdbc.queryForObject(sql, params, (rs, rn) -> {
             int games   = rs.getInt("games_played");
             int wins    = rs.getInt("wins");
-            double wr   = games == 0 ? 0 : (double) wins / games;
 
             return new PlayerStatsDto(
                     games,
-                    wr,
+                    ratio(wins, games),
                     rs.getDouble("avg_kills"),
                     rs.getDouble("avg_deaths"),
                     rs.getDouble("avg_assists"),
                     rs.getDouble("avg_gpm"),
                     rs.getDouble("avg_xpm"),
                     wins,
-                    rs.getTimestamp("first_match").toLocalDateTime()
+                    toLocal(rs.getTimestamp("first_match"))
             );
         });
     }
 
     @Override
     public List<HeroStatsDto> heroStats(long accountId, int limit) {
-        // беремо останні limit матчів, як ми вже маємо…
-        List<MatchSummaryDto> recent = matchService.findRecentMatches(accountId, limit);
-        if (recent.isEmpty()) return List.of();
-
-        List<Long> ids = recent.stream()
-                .map(MatchSummaryDto::getMatchId)
-                .toList();
-
-        String sql = """
+        var params = new MapSqlParameterSource()
+                .addValue("accountId", accountId)
+                .addValue("limit", limit);
+
+        Integer games = limit <= 0 ? null : jdbc.query(
+                "SELECT games FROM player_rollups WHERE account_id = :accountId", params,
+                rs -> rs.next() ? rs.getInt(1) : 0);
+
+        ColumnarStore store = columnar.getIfAvailable();
+        String sql;
+        if (games != null && limit < games && store != null && store.isReady()) {
+            return store.playerHeroStats(accountId, limit);
+        } else if (games == null || limit >= games) {
+            sql = """
                      SELECT
-                       pm.hero_id AS heroId,
+                       r.hero_id AS heroId,
                        h.name_en AS heroName,
                        h.img_portrait AS heroImg,
-                       COUNT(*)   AS gamesPlayed,
-                       AVG(pm.is_radiant = m.radiant_win) AS winRate,
-                       AVG(pm.kills)     AS avgKills,
-                       AVG(pm.deaths)    AS avgDeaths,
-                       AVG(pm.assists)   AS avgAssists
-                     FROM fact_player_match pm
-                     JOIN fact_matches m ON pm.match_id = m.match_id
-                     JOIN dim_heroes h ON pm.hero_id = h.hero_id
-                     WHERE pm.account_id = :accountId
-                       AND pm.match_id IN (:matchIds)
-                     GROUP BY pm.hero_id
+                       r.games   AS gamesPlayed,
+                       r.wins    / r.games AS winRate,
+                       r.kills   / r.games AS avgKills,
+                       r.deaths  / r.games AS avgDeaths,
+                       r.assists / r.games AS avgAssists
+                     FROM player_hero_rollups r
+                     JOIN dim_heroes h ON r.hero_id = h.hero_id
+                     WHERE r.account_id = :accountId
+                       AND r.games > 0
                      ORDER BY gamesPlayed DESC
                      """;
-
-
-
-        var params = new MapSqlParameterSource()
-                .addValue("accountId", accountId)
-                .addValue("matchIds", ids);
+        } else {
+            sql = """
+                     SELECT
+                       r.hero_id AS heroId,
+                       h.name_en AS heroName,
+                       h.img_portrait AS heroImg,
+                       COUNT(*)       AS gamesPlayed,
+                       AVG(r.won)     AS winRate,
+                       AVG(r.kills)   AS avgKills,
+                       AVG(r.deaths)  AS avgDeaths,
+                       AVG(r.assists) AS avgAssists
+                     FROM (""" + RECENT + """
+                     ) r
+                     JOIN dim_heroes h ON r.hero_id = h.hero_id
+                     GROUP BY r.hero_id
+                     ORDER BY gamesPlayed DESC
+                     """;
+        }
 
         return jdbc.query(
                 sql,
@@ -123,4 +175,12 @@ public class PlayerStatsServiceImpl implements PlayerStatsService {
                 )
         );
     }
+
+    private static double ratio(long sum, int games) {
+        return games == 0 ? 0 : (double) sum / games;
+    }
+
+    private static LocalDateTime toLocal(Timestamp ts) {
+        return ts == null ? null : ts.toLocalDateTime();
+    }
 }
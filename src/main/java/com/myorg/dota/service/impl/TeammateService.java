@@ -1,12 +1,14 @@
 package com.myorg.dota.service.impl;
 
 import com.myorg.dota.dto.TeammateDto;
-import org.springframework.http.CacheControl;
+import com.myorg.dota.service.steam.SteamClient;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -15,33 +17,54 @@ import java.util.concurrent.ConcurrentHashMap;
 public class TeammateService {
 
     private final JdbcTemplate jdbc;
-    private final RestTemplate rest;
+    private final SteamClient steam;
 
     private final Map<Long, CachedProfile> cache = new ConcurrentHashMap<>();
 
-    public TeammateService(JdbcTemplate jdbc) {
-        this.jdbc = jdbc;
-        this.rest = new RestTemplate();
+    public TeammateService(JdbcTemplate jdbc, SteamClient steam) {
+        this.jdbc  = jdbc;
+        this.steam = steam;
     }
 
 
 
+    /** Найчастіші союзники – top-K з player_pair_stats по idx_pair_top. */
     public List<TeammateDto> findTopTeammates(long accountId, int limit) {
+        return topPairs(accountId, true, limit);
+    }
+
+    /** Найчастіші суперники; wins – перемоги accountId над ними. */
+    public List<TeammateDto> findTopOpponents(long accountId, int limit) {
+        return topPairs(accountId, false, limit);
+    }
+
+    /** Ігри та перемоги accountId разом з otherId ("with") і проти нього ("against"). */
+    public Map<String, Object> headToHead(long accountId, long otherId) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("with",    Map.of("games", 0, "wins", 0));
+        out.put("against", Map.of("games", 0, "wins", 0));
+        jdbc.query("""
+                 SELECT ally, games, wins
+                 FROM   player_pair_stats
+                 WHERE  account_id = ? AND other_id = ? AND ally IN (0, 1)
+                 """,
+                rs -> {
+                    out.put(rs.getBoolean("ally") ? "with" : "against",
+                            Map.of("games", rs.getInt("games"), "wins", rs.getInt("wins")));
+                },
+                accountId, otherId);
+        return out;
+    }
+
+    private List<TeammateDto> topPairs(long accountId, boolean ally, int limit) {
         var raw = jdbc.query("""
-                 SELECT p2.account_id           AS id,
-                        COUNT(*)                AS games,
-                         SUM(
-                           CASE WHEN p2.is_radiant = m.radiant_win
-                                THEN 1 ELSE 0 END)                     AS wins
-                 FROM   fact_player_match p1
-                 JOIN   fact_player_match p2
-                        ON  p1.match_id = p2.match_id
-                        AND p1.is_radiant = p2.is_radiant              -- союзник
-                        AND p2.account_id <> p1.account_id
-                         AND p2.account_id <> 4294967295
-                 JOIN   fact_matches m ON m.match_id = p1.match_id
-                 WHERE  p1.account_id = ?
-                 GROUP  BY p2.account_id
+                 SELECT other_id AS id,
+                        games,
+                        wins
+                 FROM   player_pair_stats
+                 WHERE  account_id = ?
+                   AND  ally = ?
+                   AND  games > 0
                  ORDER  BY games DESC
                  LIMIT  ?
                  """,
@@ -50,14 +73,14 @@ public class TeammateService {
                         rs.getInt("games"),
                         rs.getInt("wins")
                 ),
-                accountId, limit);
+                accountId, ally, limit);
+        Map<Long, Profile> profiles = getProfiles(raw.stream().map(RawMate::id).toList());
         return raw.stream()
-                .map(this::enrichWithProfile)
+                .map(m -> enrichWithProfile(m, profiles.getOrDefault(m.id, new Profile("—", ""))))
                 .toList();
     }
 
-    private TeammateDto enrichWithProfile(RawMate m) {
-        var profile = getProfile(m.id);
+    private TeammateDto enrichWithProfile(RawMate m, Profile profile) {
         return new TeammateDto(
                 m.id,
                 profile.name(),
@@ -67,27 +90,26 @@ public class TeammateService {
         );
     }
 
-    private Profile getProfile(long accountId) {
+    /** Cached profiles; the misses go out as one rate-limited GetPlayerSummaries call per 100 ids. */
+    private Map<Long, Profile> getProfiles(List<Long> accountIds) {
         var now = System.currentTimeMillis();
-        var cached = cache.get(accountId);
-        if (cached != null && now - cached.timestamp() < Duration.ofHours(24).toMillis()) {
-            return cached.profile();
+        Map<Long, Profile> out = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (long id : accountIds) {
+            var cached = cache.get(id);
+            if (cached != null && now - cached.timestamp() < Duration.ofHours(24).toMillis())
+                out.put(id, cached.profile());
+            else
+                missing.add(id);
         }
+        if (missing.isEmpty()) return out;
 
-        try {
-            var url   = "https://api.opendota.com/api/players/" + accountId;
-            var node  = rest.getForObject(url, com.fasterxml.jackson.databind.JsonNode.class);
-            var prof  = node != null && node.hasNonNull("profile") ? node.get("profile") : null;
-            var name  = prof != null && prof.hasNonNull("personaname")
-                    ? prof.get("personaname").asText() : "—";
-            var avatar= prof != null && prof.hasNonNull("avatarfull")
-                    ? prof.get("avatarfull").asText() : "";
-            var p     = new Profile(name, avatar);
-            cache.put(accountId, new CachedProfile(p, now));
-            return p;
-        } catch (Exception e) {
-            return new Profile("—", "");
-        }
+        steam.playerSummaries(missing).forEach((id, dto) -> {
+            var p = new Profile(dto.getPersonaName(), dto.getAvatarFull());
+            cache.put(id, new CachedProfile(p, now));
+            out.put(id, p);
+        });
+        return out;
     }
 
     private record RawMate(long id, int games, int wins) { }
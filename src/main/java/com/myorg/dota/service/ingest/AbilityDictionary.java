@@ -0,0 +1,167 @@
+package com.myorg.dota.service.ingest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Steam ability id → name. {@code fact_ability_upgrades} stores the id
+ * itself, a {@code SMALLINT} key into {@code dim_ability_keys}.
+ * <p>
+ * Loaded once at startup into a plain {@code String[]} indexed by id: first
+ * the bundled dotaconstants snapshot ({@value #SNAPSHOT}, refreshed with
+ * {@code gradle abilitySnapshot}; downloaded from {@value #SNAPSHOT_URL} by a
+ * build without it), then {@code dim_ability_keys}, which also
+ * holds ids registered by earlier runs. Snapshot ids the table lacks are
+ * added in one batch. While ingesting, {@link #register} only checks the
+ * chunk's ids against a {@code boolean[]}; an id never seen before (a new
+ * patch) is inserted as {@code id_<n>} once and named on the next snapshot.
+ */
+@Component
+public class AbilityDictionary {
+
+    private static final Logger log = LoggerFactory.getLogger(AbilityDictionary.class);
+
+    static final String SNAPSHOT = "dotaconstants/ability_ids.json";
+    static final String SNAPSHOT_URL = "https://raw.githubusercontent.com/odota/dotaconstants/master/build/ability_ids.json";
+
+    private final JdbcTemplate jdbc;
+
+    private volatile String[] names = new String[0];
+    private volatile boolean[] registered = new boolean[0];
+
+    public AbilityDictionary(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        String[] snapshot = readSnapshot();
+        String[][] n = { snapshot.clone() };
+        boolean[][] r = { new boolean[snapshot.length] };
+        List<Object[]> upserts = new ArrayList<>();
+
+        jdbc.query("SELECT ability_id, ability_name FROM dim_ability_keys", rs -> {
+            int id = rs.getInt(1);
+            String name = rs.getString(2);
+            if (id >= n[0].length) {
+                n[0] = Arrays.copyOf(n[0], id + 1);
+                r[0] = Arrays.copyOf(r[0], id + 1);
+            }
+            r[0][id] = true;
+            if (n[0][id] == null) n[0][id] = name;
+            else if (!n[0][id].equals(name)) upserts.add(new Object[] { id, n[0][id] });   // a stub, now named
+        });
+        for (int id = 0; id < snapshot.length; id++)
+            if (snapshot[id] != null && !r[0][id]) upserts.add(new Object[] { id, snapshot[id] });
+
+        if (!upserts.isEmpty()) {
+            jdbc.batchUpdate("""
+                INSERT INTO dim_ability_keys (ability_id, ability_name) VALUES (?,?)
+                ON DUPLICATE KEY UPDATE ability_name = VALUES(ability_name)""", upserts);
+            for (Object[] u : upserts) r[0][(int) u[0]] = true;
+        }
+
+        names      = n[0];
+        registered = r[0];
+        log.info("Ability dictionary: {} ids, {} from the snapshot ({} written to dim_ability_keys)",
+                Arrays.stream(n[0]).filter(Objects::nonNull).count(),
+                Arrays.stream(snapshot).filter(Objects::nonNull).count(), upserts.size());
+    }
+
+    public String name(int id) {
+        String[] n = names;
+        String s = id >= 0 && id < n.length ? n[id] : null;
+        return s != null ? s : "id_" + id;
+    }
+
+    /**
+     * Makes sure every ability id of the chunk exists in
+     * {@code dim_ability_keys}. Ids are marked registered once the caller's
+     * transaction commits, so a rolled-back insert is retried with the chunk.
+     */
+    public void register(UpgradeColumns upgrades) {
+        boolean[] r = registered;
+        int[] missing = null;
+        int m = 0;
+        for (int i = 0; i < upgrades.size(); i++) {
+            int id = upgrades.abilityId[i];
+            if (id >= 0 && id < r.length && r[id]) continue;
+            if (missing == null) missing = new int[8];
+            else if (m == missing.length) missing = Arrays.copyOf(missing, m * 2);
+            missing[m++] = id;
+        }
+        if (m == 0) return;
+
+        int[] ids = Arrays.stream(missing, 0, m).distinct().toArray();
+        List<Object[]> rows = new ArrayList<>(ids.length);
+        for (int id : ids) rows.add(new Object[] { id, name(id) });
+        jdbc.batchUpdate("INSERT IGNORE INTO dim_ability_keys (ability_id, ability_name) VALUES (?,?)", rows);
+        log.info("Registered {} new ability ids: {}", ids.length, Arrays.toString(ids));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() { markRegistered(ids); }
+            });
+        } else {
+            markRegistered(ids);
+        }
+    }
+
+    private synchronized void markRegistered(int[] ids) {
+        boolean[] r = registered;
+        int max = Arrays.stream(ids).max().orElse(-1);
+        if (max >= r.length) r = Arrays.copyOf(r, max + 1);
+        else r = r.clone();
+        for (int id : ids) r[id] = true;
+        registered = r;
+    }
+
+    /**
+     * The bundled snapshot as an id-indexed array, or the live file when none
+     * is bundled; empty when neither can be read – stubs written meanwhile
+     * are named by the next load that gets one.
+     */
+    public static String[] readSnapshot() {
+        ClassPathResource res = new ClassPathResource(SNAPSHOT);
+        if (res.exists()) {
+            try (InputStream in = res.getInputStream()) {
+                return parse(in);
+            } catch (IOException | RuntimeException e) {
+                log.error("‼ cannot read bundled {}", SNAPSHOT, e);
+            }
+        }
+        log.warn("No bundled {} – downloading {}", SNAPSHOT, SNAPSHOT_URL);
+        try (InputStream in = URI.create(SNAPSHOT_URL).toURL().openStream()) {
+            return parse(in);
+        } catch (IOException | RuntimeException e) {
+            log.error("‼ cannot load ability_ids.json – ability names come from dim_ability_keys only", e);
+            return new String[0];
+        }
+    }
+
+    private static String[] parse(InputStream in) throws IOException {
+        Map<String, String> raw = new ObjectMapper().readValue(in, new TypeReference<>() {});
+        int max = raw.keySet().stream().mapToInt(Integer::parseInt).max().orElse(-1);
+        String[] n = new String[max + 1];
+        raw.forEach((k, v) -> n[Integer.parseInt(k)] = v);
+        return n;
+    }
+}
@@ -0,0 +1,59 @@
+package com.myorg.dota.service.ingest;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Per-account {@code ingest_watermarks}: the newest match id of the last
+ * complete full-history run. Everything at or below it has been paged
+ * already, so the next run can stop there.
+ * <p>
+ * A history handed to {@code ingest_work} is not complete until its items
+ * are: {@link #queue} parks the run's newest match id, and {@link #promoteQueued}
+ * moves it into the watermark only once no item of the account is left –
+ * neither pending nor out of attempts.
+ */
+@Component
+public class AccountWatermarks {
+
+    private final JdbcTemplate jdbc;
+
+    public AccountWatermarks(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** 0 when the account was never fully ingested. */
+    public long get(long accountId) {
+        List<Long> v = jdbc.queryForList(
+                "SELECT newest_match_id FROM ingest_watermarks WHERE account_id=?", Long.class, accountId);
+        return v.isEmpty() ? 0 : v.get(0);
+    }
+
+    /** Never moves a watermark backwards. */
+    public void advance(long accountId, long newestMatchId) {
+        jdbc.update("""
+            INSERT INTO ingest_watermarks (account_id, newest_match_id) VALUES (?,?)
+            ON DUPLICATE KEY UPDATE newest_match_id = GREATEST(newest_match_id, VALUES(newest_match_id))""",
+                accountId, newestMatchId);
+    }
+
+    /** Parks {@code newestMatchId} until the account's queued items are done. */
+    public void queue(long accountId, long newestMatchId) {
+        jdbc.update("""
+            INSERT INTO ingest_watermarks (account_id, newest_match_id, queued_match_id) VALUES (?,0,?)
+            ON DUPLICATE KEY UPDATE queued_match_id = GREATEST(COALESCE(queued_match_id, 0), VALUES(queued_match_id))""",
+                accountId, newestMatchId);
+    }
+
+    /** Moves the parked id into the watermark if the account has nothing left in {@code ingest_work}. */
+    public void promoteQueued(long accountId) {
+        jdbc.update("""
+            UPDATE ingest_watermarks
+            SET newest_match_id = GREATEST(newest_match_id, queued_match_id), queued_match_id = NULL
+            WHERE account_id = ? AND queued_match_id IS NOT NULL
+              AND NOT EXISTS (SELECT 1 FROM ingest_work WHERE account_id = ?)""",
+                accountId, accountId);
+    }
+}
@@ -0,0 +1,64 @@
+package com.myorg.dota.service.ingest;
+
+import com.mysql.cj.jdbc.JdbcStatement;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * Bulk write path for large chunks: each fact table is rendered into an
+ * in-memory {@link TsvBuffer} and streamed to MySQL with
+ * {@code LOAD DATA LOCAL INFILE}, the stream handed to Connector/J through
+ * {@link JdbcStatement#setLocalInfileInputStream} – no temp files.
+ * <p>
+ * Only for chunks none of whose matches is stored yet – {@link FactChunkWriter}
+ * takes this path only then. The {@code fact_matches} rows it has just claimed
+ * for the chunk are rewritten by {@code REPLACE}; no other rows of these
+ * matches exist. The chunk's ability ids must be registered in
+ * {@code dim_ability_keys}.
+ * Needs {@code allowLoadLocalInfile=true} on the JDBC URL and
+ * {@code local_infile=ON} on the server.
+ */
+@Component
+public class BulkLoader {
+
+    private final JdbcTemplate jdbc;
+
+    /** One reusable TSV body per writer thread. */
+    private final ThreadLocal<TsvBuffer> buffers = ThreadLocal.withInitial(() -> new TsvBuffer(1 << 20));
+
+    public BulkLoader(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Loads the chunk parent-first, so the foreign keys hold after every table. */
+    public void load(ChunkRows rows) {
+        load(MatchColumns.LOAD_SQL,   rows.matches.size(),  rows.matches::writeTsv);
+        load(TeamColumns.LOAD_SQL,    rows.teams.size(),    rows.teams::writeTsv);
+        load(PlayerColumns.LOAD_SQL,  rows.players.size(),  rows.players::writeTsv);
+        load(ItemColumns.LOAD_SQL,    rows.items.size(),    rows.items::writeTsv);
+        load(UpgradeColumns.LOAD_SQL, rows.upgrades.size(), rows.upgrades::writeTsv);
+        load(PickColumns.LOAD_SQL,    rows.picks.size(),    rows.picks::writeTsv);
+    }
+
+    private void load(String sql, int expected, Consumer<TsvBuffer> writer) {
+        if (expected == 0) return;
+        TsvBuffer tsv = buffers.get();
+        tsv.reset();
+        writer.accept(tsv);
+
+        Integer loaded = jdbc.execute((StatementCallback<Integer>) st -> {
+            st.unwrap(JdbcStatement.class).setLocalInfileInputStream(tsv.stream());
+            return st.executeUpdate(sql);
+        });
+
+        // With LOCAL the server turns bad or conflicting rows into warnings and
+        // skips them; the batch path would have failed, so fail here as well.
+        // REPLACE counts a replaced row twice, hence "fewer than", not "not equal".
+        if (loaded == null || loaded < expected)
+            throw new IllegalStateException("LOAD DATA loaded " + loaded + " of " + expected
+                    + " rows: " + sql.lines().skip(1).findFirst().orElse(sql).trim());
+    }
+}
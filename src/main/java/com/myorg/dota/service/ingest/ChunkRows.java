@@ -0,0 +1,87 @@
+package com.myorg.dota.service.ingest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fact rows accumulated by the writer stage until the next chunk flush,
+ * one columnar buffer per fact table. Buffers are reused after
+ * {@link #clear()}, so a steady-state ingest allocates no per-row objects.
+ */
+public class ChunkRows {
+
+    public final MatchColumns   matches;
+    public final TeamColumns    teams;
+    public final PlayerColumns  players;
+    public final ItemColumns    items;
+    public final UpgradeColumns upgrades;
+    public final PickColumns    picks;
+
+    public ChunkRows() {
+        this(64);
+    }
+
+    /** Pre-sizes the buffers for roughly {@code expectedMatches} ranked matches. */
+    public ChunkRows(int expectedMatches) {
+        int n = Math.max(1, expectedMatches);
+        matches  = new MatchColumns(n);
+        teams    = new TeamColumns(2 * n);
+        players  = new PlayerColumns(10 * n);
+        items    = new ItemColumns(64 * n);
+        upgrades = new UpgradeColumns(256 * n);
+        picks    = new PickColumns(24 * n);
+    }
+
+    public int matchCount() { return matches.size(); }
+
+    public List<Long> matchIds() {
+        List<Long> ids = new ArrayList<>(matches.size());
+        for (int i = 0; i < matches.size(); i++) ids.add(matches.matchId[i]);
+        return ids;
+    }
+
+    /** Emits the rows of one fully decoded match. */
+    public void append(MatchScratch m) {
+        long mid = m.matchId;
+        matches.add(m);
+
+        int netRadiant = 0, netDire = 0;
+        for (int i = 0; i < m.playerCount; i++) {
+            MatchScratch.Player pl = m.player(i);
+            if (pl.slot < 128) netRadiant += pl.netWorth;
+            else               netDire    += pl.netWorth;
+        }
+        teams.add(mid, true,  m.towerRadiant, m.barracksRadiant, netRadiant);
+        teams.add(mid, false, m.towerDire,    m.barracksDire,    netDire);
+
+        for (int i = 0; i < m.playerCount; i++) {
+            MatchScratch.Player pl = m.player(i);
+            players.add(mid, m.startTime, pl);
+
+            for (int s = 0; s <= 9; s++)
+                if (pl.items[s] != 0)
+                    items.add(mid, pl.heroId, pl.accountId, s, pl.items[s]);
+
+            for (int u = 0; u < pl.upCount; u++)
+                upgrades.add(mid, pl.heroId, pl.accountId, u + 1,
+                        pl.upAbility[u], pl.upTime[u], pl.upLevel[u]);
+        }
+
+        for (int k = 0; k < m.pickCount; k++)
+            picks.add(mid, m.pickOrder[k], m.pickIsPick[k], m.pickTeam[k] == 0, m.pickHero[k]);
+    }
+
+    public void addAll(ChunkRows other) {
+        matches.addAll(other.matches);
+        teams.addAll(other.teams);
+        players.addAll(other.players);
+        items.addAll(other.items);
+        upgrades.addAll(other.upgrades);
+        picks.addAll(other.picks);
+    }
+
+    public void clear() {
+        matches.clear(); teams.clear(); players.clear();
+        items.clear();   upgrades.clear(); picks.clear();
+    }
+}
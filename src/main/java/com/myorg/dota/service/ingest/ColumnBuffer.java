@@ -0,0 +1,57 @@
+package com.myorg.dota.service.ingest;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Base of the per-table columnar row buffers: one primitive array per column,
+ * grown by doubling and reused across chunks ({@link #clear()} only resets
+ * the size). Subclasses are their own {@code BatchPreparedStatementSetter}s
+ * and know their table key, so a chunk can be diffed against stored rows.
+ */
+public abstract class ColumnBuffer {
+
+    protected int size;
+    private int capacity;
+
+    protected ColumnBuffer(int capacity) {
+        this.capacity = Math.max(capacity, 8);
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public void clear() { size = 0; }
+
+    protected int capacity() { return capacity; }
+
+    /** Returns the index of a new row, growing the columns when needed. */
+    protected final int nextRow() {
+        if (size == capacity) reserve(1);
+        return size++;
+    }
+
+    protected final void reserve(int extra) {
+        if (size + extra <= capacity) return;
+        capacity = Math.max(capacity * 2, size + extra);
+        grow(capacity);
+    }
+
+    /** Re-allocates every column to {@code newCapacity}, keeping the first {@code size} rows. */
+    protected abstract void grow(int newCapacity);
+
+    // row identity for the diffing writer (FactChunkWriter)
+
+    /** {@code match_id} of row {@code i}. */
+    public abstract long matchIdAt(int i);
+
+    /** Rest of the table key of row {@code i}, packed into an int (0 for one row per match). */
+    public abstract int subKey(int i);
+
+    /** Whether row {@code i} and row {@code j} of {@code other} (same table) hold equal values. */
+    public abstract boolean sameRow(int i, ColumnBuffer other, int j);
+
+    /** Binds the table key of row {@code i} to the table's {@code DELETE_SQL}. */
+    public abstract void setKey(PreparedStatement ps, int i) throws SQLException;
+}
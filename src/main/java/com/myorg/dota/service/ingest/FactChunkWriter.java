@@ -0,0 +1,324 @@
+package com.myorg.dota.service.ingest;
+
+import com.myorg.dota.service.analytics.ColumnarStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.LongPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Writes one chunk of fact rows in a single transaction.
+ * <p>
+ * Every write first claims the chunk's {@code fact_matches} rows: the stored
+ * ones {@code FOR UPDATE}, the missing ones by {@code INSERT IGNORE}, both in
+ * match id order. From then on this transaction holds every match of the
+ * chunk, so a concurrent writer of the same match – another node, or the
+ * firehose next to a per-player run – waits for it and then sees its rows as
+ * stored. A match counts as stored when it has committed player rows.
+ * <p>
+ * Chunks with no stored match take the fast path: plain inserts (or
+ * {@link BulkLoader} for bulk runs). For matches already stored, the current
+ * rows are read back and diffed against the chunk with {@link RowDiff}: only new or changed rows are
+ * upserted, and only child rows whose key really disappeared are deleted.
+ * Re-ingesting unchanged matches therefore writes nothing.
+ * <p>
+ * {@link PlayerRollups}, {@link PlayerPairs} and the {@link HeroMetaCube} are
+ * moved by the same chunk in the same transaction; an enabled {@link ColumnarStore}
+ * gets the chunk once it commits.
+ * <p>
+ * A separate bean so that {@link Transactional} goes through the proxy. Joins
+ * the caller's transaction when there is one (a Spring Batch chunk commits the
+ * rows together with its checkpoint), otherwise opens its own.
+ */
+@Component
+public class FactChunkWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(FactChunkWriter.class);
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final BulkLoader bulkLoader;
+    private final KnownMatchIndex known;
+    private final AbilityDictionary abilities;
+    private final PlayerRollups rollups;
+    private final PlayerPairs pairs;
+    private final HeroMetaCube cube;
+    private final ObjectProvider<ColumnarStore> columnar;
+
+    public FactChunkWriter(NamedParameterJdbcTemplate jdbc, BulkLoader bulkLoader,
+                           KnownMatchIndex known, AbilityDictionary abilities,
+                           PlayerRollups rollups, PlayerPairs pairs, HeroMetaCube cube,
+                           ObjectProvider<ColumnarStore> columnar) {
+        this.jdbc       = jdbc;
+        this.bulkLoader = bulkLoader;
+        this.known      = known;
+        this.abilities  = abilities;
+        this.rollups    = rollups;
+        this.pairs      = pairs;
+        this.cube       = cube;
+        this.columnar   = columnar;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public void write(ChunkRows rows, boolean bulk) {
+        if (rows.matchCount() == 0) return;
+
+        abilities.register(rows.upgrades);      // in memory; a DB round trip only for ids never seen
+
+        List<Long> storedIds = claim(rows);
+        ChunkRows stored = new ChunkRows(0);
+        LongPredicate changed = id -> true;
+
+        if (storedIds.isEmpty()) {
+            if (bulk) bulkLoader.load(rows);
+            else      insertAll(rows);
+            aggregates(rows, stored);
+            log.info("✓ Committed next {} matches (new{})", rows.matchCount(), bulk ? ", LOAD DATA" : "");
+        } else {
+            MapSqlParameterSource cp = new MapSqlParameterSource("m", storedIds);
+            loadMatches(cp, stored);
+            loadChildren(cp, stored);
+            Diffs d = diff(rows, stored);
+            apply(d, rows, stored);
+            if (d.players().upserts + d.players().deletes + d.matches().upserts > 0) aggregates(rows, stored);
+            changed = changedMatches(d, rows, stored)::contains;
+            log.info("✓ Committed next {} matches ({} stored; rows +{} -{} ={})",
+                    rows.matchCount(), stored.matchCount(), d.upserts(), d.deletes(), d.unchanged());
+        }
+
+        known.addAfterCommit(Arrays.copyOf(rows.matches.matchId, rows.matchCount()));
+        LongPredicate appended = changed;
+        columnar.ifAvailable(store -> store.addAfterCommit(rows, appended));
+    }
+
+    /** Matches whose {@code fact_matches} or {@code fact_player_match} rows the diff changes. */
+    private static Set<Long> changedMatches(Diffs d, ChunkRows rows, ChunkRows stored) {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < d.matches().upserts; i++) ids.add(rows.matches.matchId[d.matches().upsert[i]]);
+        for (int i = 0; i < d.players().upserts; i++) ids.add(rows.players.matchId[d.players().upsert[i]]);
+        for (int i = 0; i < d.players().deletes; i++) ids.add(stored.players.matchId[d.players().delete[i]]);
+        return ids;
+    }
+
+    /**
+     * Deletes the chunk's matches (child rows go with them by cascade) and
+     * writes them anew – for a rebuild from the raw archive, where the stored
+     * rows are exactly what should not be trusted.
+     */
+    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.READ_COMMITTED)
+    public void replace(ChunkRows rows, boolean bulk) {
+        if (rows.matchCount() == 0) return;
+        List<Long> storedIds = claim(rows);
+        if (!storedIds.isEmpty()) {                     // their totals go out with them
+            MapSqlParameterSource sp = new MapSqlParameterSource("m", storedIds);
+            ChunkRows stored = new ChunkRows(0);
+            loadMatches(sp, stored);
+            loadPlayers(sp, stored);
+            aggregates(new ChunkRows(0), stored);
+        }
+        int deleted = jdbc.update("DELETE FROM fact_matches WHERE match_id IN (:m)",
+                new MapSqlParameterSource("m", rows.matchIds()));
+        if (deleted > 0) log.debug("Replacing {} stored matches", deleted);
+        write(rows, bulk);
+    }
+
+    /**
+     * Locks every match of the chunk, inserting the {@code fact_matches} rows
+     * that are missing, and returns the ids whose player rows another
+     * transaction has already committed. Existing rows are locked before the
+     * inserts, so two writers meeting on a stored match queue on its row lock
+     * instead of both holding the shared lock a duplicate insert takes.
+     */
+    private List<Long> claim(ChunkRows rows) {
+        int[] order = IntStream.range(0, rows.matchCount()).boxed()
+                .sorted(Comparator.comparingLong(i -> rows.matches.matchId[i]))
+                .mapToInt(Integer::intValue).toArray();
+        MapSqlParameterSource cp = new MapSqlParameterSource("m", rows.matchIds());
+        jdbc.queryForList("SELECT match_id FROM fact_matches WHERE match_id IN (:m) ORDER BY match_id FOR UPDATE",
+                cp, Long.class);
+        batch(MatchColumns.INSERT_IGNORE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                rows.matches.setValues(ps, order[i]);
+            }
+
+            @Override
+            public int getBatchSize() { return order.length; }
+        });
+        return jdbc.queryForList("SELECT DISTINCT match_id FROM fact_player_match WHERE match_id IN (:m)",
+                cp, Long.class);
+    }
+
+    /** Rollups, pairs and cube by {@code rows − stored}; shared rows, so last before the commit. */
+    private void aggregates(ChunkRows rows, ChunkRows stored) {
+        rollups.apply(rows, stored);
+        pairs.apply(rows, stored);
+        cube.apply(rows, stored);
+    }
+
+    private void insertAll(ChunkRows rows) {
+        batch(MatchColumns.UPSERT_SQL,   rows.matches);
+        batch(TeamColumns.UPSERT_SQL,    rows.teams);
+        batch(PlayerColumns.UPSERT_SQL,  rows.players);
+        batch(ItemColumns.UPSERT_SQL,    rows.items);
+        batch(UpgradeColumns.UPSERT_SQL, rows.upgrades);
+        batch(PickColumns.UPSERT_SQL,    rows.picks);
+    }
+
+    // ---------- stored rows ----------
+
+    private void loadMatches(MapSqlParameterSource cp, ChunkRows s) {
+        MatchScratch m = new MatchScratch();
+        jdbc.query(MatchColumns.SELECT_SQL + " FOR UPDATE", cp, rs -> {
+            m.reset();
+            m.matchId      = rs.getLong(1);
+            m.startTime    = rs.getTimestamp(2).getTime() / 1000;
+            m.duration     = rs.getInt(3);
+            m.preGame      = rs.getInt(4);
+            m.radiantWin   = rs.getBoolean(5);
+            m.radiantScore = rs.getInt(6);
+            m.direScore    = rs.getInt(7);
+            m.cluster      = rs.getInt(8);
+            m.lobbyType    = rs.getInt(9);
+            m.gameMode     = rs.getInt(10);
+            m.engine       = rs.getInt(11);
+            s.matches.add(m);
+        });
+    }
+
+    private void loadChildren(MapSqlParameterSource cp, ChunkRows s) {
+        jdbc.query(TeamColumns.SELECT_SQL, cp, rs -> {
+            s.teams.add(rs.getLong(1), rs.getBoolean(2), rs.getInt(3), rs.getInt(4), rs.getInt(5));
+        });
+
+        loadPlayers(cp, s);
+
+        jdbc.query(ItemColumns.SELECT_SQL, cp, rs -> {
+            s.items.add(rs.getLong(1), rs.getInt(2), rs.getLong(3), rs.getInt(4), rs.getInt(5));
+        });
+
+        jdbc.query(UpgradeColumns.SELECT_SQL, cp, rs -> {
+            s.upgrades.add(rs.getLong(1), rs.getInt(2), rs.getLong(3), rs.getInt(4),
+                    rs.getInt(5), rs.getInt(6), rs.getInt(7));
+        });
+
+        jdbc.query(PickColumns.SELECT_SQL, cp, rs -> {
+            s.picks.add(rs.getLong(1), rs.getInt(2), rs.getBoolean(3), rs.getBoolean(4), rs.getInt(5));
+        });
+    }
+
+    private void loadPlayers(MapSqlParameterSource cp, ChunkRows s) {
+        MatchScratch m = new MatchScratch();
+        jdbc.query(PlayerColumns.SELECT_SQL, cp, rs -> {
+            m.reset();
+            MatchScratch.Player p = m.nextPlayer();
+            p.accountId    = rs.getLong(2);
+            p.slot         = rs.getInt(3);
+            p.heroId       = rs.getInt(4);
+            p.kills        = rs.getInt(5);
+            p.deaths       = rs.getInt(6);
+            p.assists      = rs.getInt(7);
+            p.gpm          = rs.getInt(8);
+            p.xpm          = rs.getInt(9);
+            p.heroDamage   = rs.getInt(10);
+            p.towerDamage  = rs.getInt(11);
+            p.heroHealing  = rs.getInt(12);
+            p.netWorth     = rs.getInt(13);
+            p.level        = rs.getInt(14);
+            p.lastHits     = rs.getInt(15);
+            p.denies       = rs.getInt(16);
+            p.leaverStatus = rs.getInt(17);
+            s.players.add(rs.getLong(1), rs.getTimestamp(18).getTime() / 1000, p);
+        });
+    }
+
+    // ---------- diff ----------
+
+    private record Diffs(RowDiff matches, RowDiff teams, RowDiff players,
+                         RowDiff items, RowDiff upgrades, RowDiff picks) {
+
+        int upserts() {
+            return matches.upserts + teams.upserts + players.upserts
+                 + items.upserts + upgrades.upserts + picks.upserts;
+        }
+
+        int deletes() {
+            return teams.deletes + players.deletes + items.deletes + upgrades.deletes + picks.deletes;
+        }
+
+        int unchanged() {
+            return matches.unchanged + teams.unchanged + players.unchanged
+                 + items.unchanged + upgrades.unchanged + picks.unchanged;
+        }
+    }
+
+    private Diffs diff(ChunkRows rows, ChunkRows stored) {
+        Map<Long, Integer> ordinal = new HashMap<>(rows.matchCount() * 2);
+        for (int i = 0; i < rows.matchCount(); i++) ordinal.putIfAbsent(rows.matches.matchId[i], ordinal.size());
+
+        return new Diffs(
+                RowDiff.of(rows.matches,  stored.matches,  ordinal),
+                RowDiff.of(rows.teams,    stored.teams,    ordinal),
+                RowDiff.of(rows.players,  stored.players,  ordinal),
+                RowDiff.of(rows.items,    stored.items,    ordinal),
+                RowDiff.of(rows.upgrades, stored.upgrades, ordinal),
+                RowDiff.of(rows.picks,    stored.picks,    ordinal));
+    }
+
+    private void apply(Diffs d, ChunkRows rows, ChunkRows stored) {
+        // children first, so the foreign keys hold in between
+        delete(PickColumns.DELETE_SQL,    stored.picks,    d.picks());
+        delete(UpgradeColumns.DELETE_SQL, stored.upgrades, d.upgrades());
+        delete(ItemColumns.DELETE_SQL,    stored.items,    d.items());
+        delete(PlayerColumns.DELETE_SQL,  stored.players,  d.players());
+        delete(TeamColumns.DELETE_SQL,    stored.teams,    d.teams());
+
+        batch(MatchColumns.UPSERT_SQL,   rowsAt(rows.matches,  d.matches()));
+        batch(TeamColumns.UPSERT_SQL,    rowsAt(rows.teams,    d.teams()));
+        batch(PlayerColumns.UPSERT_SQL,  rowsAt(rows.players,  d.players()));
+        batch(ItemColumns.UPSERT_SQL,    rowsAt(rows.items,    d.items()));
+        batch(UpgradeColumns.UPSERT_SQL, rowsAt(rows.upgrades, d.upgrades()));
+        batch(PickColumns.UPSERT_SQL,    rowsAt(rows.picks,    d.picks()));
+    }
+
+    private static BatchPreparedStatementSetter rowsAt(BatchPreparedStatementSetter all, RowDiff d) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                all.setValues(ps, d.upsert[i]);
+            }
+
+            @Override
+            public int getBatchSize() { return d.upserts; }
+        };
+    }
+
+    private void delete(String sql, ColumnBuffer stored, RowDiff d) {
+        batch(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                stored.setKey(ps, d.delete[i]);
+            }
+
+            @Override
+            public int getBatchSize() { return d.deletes; }
+        });
+    }
+
+    /** No retry here: a failed statement fails the chunk transaction, which the caller retries whole. */
+    private void batch(String sql, BatchPreparedStatementSetter rows) {
+        if (rows.getBatchSize() == 0) return;
+        jdbc.getJdbcOperations().batchUpdate(sql, rows);
+    }
+}
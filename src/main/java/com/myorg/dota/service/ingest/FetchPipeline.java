@@ -0,0 +1,124 @@
+package com.myorg.dota.service.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Two-stage fetch → write pipeline.
+ * <p>
+ * {@code concurrency} virtual-thread fetchers pull inputs from a shared source
+ * and put results on a bounded queue; a single writer (the calling thread)
+ * drains it. When the writer is slower than the fetchers the queue fills up
+ * and fetchers block on {@code put} – that is the backpressure, so at most
+ * {@code queueDepth} fetched payloads are ever held in memory.
+ * <p>
+ * Fetchers take turns on the source under a {@link ReentrantLock}, not a
+ * monitor: a source may block on Steam itself (a history page), and a virtual
+ * thread blocking inside {@code synchronized} pins its carrier. A failing
+ * {@code fetch} only loses its input; a failing source fails the run.
+ */
+public final class FetchPipeline<T, R> {
+
+    private static final Logger log = LoggerFactory.getLogger(FetchPipeline.class);
+    private static final Object END = new Object();
+
+    private final int concurrency;
+    private final int queueDepth;
+
+    public FetchPipeline(int concurrency, int queueDepth) {
+        if (concurrency < 1 || queueDepth < 1)
+            throw new IllegalArgumentException("concurrency and queueDepth must be >= 1");
+        this.concurrency = concurrency;
+        this.queueDepth  = queueDepth;
+    }
+
+    /**
+     * Runs the pipeline to completion. {@code fetch} may return {@code null}
+     * to skip an input; {@code sink} is only ever called from this thread.
+     */
+    @SuppressWarnings("unchecked")
+    public void run(Iterator<? extends T> source,
+                    Function<? super T, ? extends R> fetch,
+                    Consumer<? super R> sink) {
+
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueDepth);
+        ReentrantLock sourceLock = new ReentrantLock();
+
+        try (ExecutorService fetchers = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("steam-fetch-", 0).factory())) {
+
+            for (int i = 0; i < concurrency; i++)
+                fetchers.submit(() -> fetchLoop(source, sourceLock, fetch, queue));
+
+            int finished = 0;
+            try {
+                while (finished < concurrency) {
+                    Object item = queue.take();
+                    if (item == END) { finished++; continue; }
+                    if (item instanceof SourceFailed f) throw new IllegalStateException("ingest source failed", f.error());
+                    sink.accept((R) item);
+                }
+            } catch (InterruptedException ie) {
+                fetchers.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("ingest pipeline interrupted", ie);
+            } catch (RuntimeException ex) {
+                fetchers.shutdownNow();           // writer is dead – stop fetching
+                throw ex;
+            }
+        }
+    }
+
+    private void fetchLoop(Iterator<? extends T> source, ReentrantLock sourceLock,
+                           Function<? super T, ? extends R> fetch,
+                           BlockingQueue<Object> queue) {
+        try {
+            while (true) {
+                T in;
+                try {
+                    in = next(source, sourceLock);
+                } catch (RuntimeException ex) {
+                    log.error("ingest source failed", ex);
+                    queue.put(new SourceFailed(ex));
+                    return;
+                }
+                if (in == null) break;
+                R out;
+                try {
+                    out = fetch.apply(in);
+                } catch (RuntimeException ex) {
+                    log.error("fetch failed for {}", in, ex);
+                    continue;
+                }
+                if (out != null) queue.put(out);  // blocks while the writer catches up
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();  // cancelled by the writer
+        } finally {
+            if (!Thread.currentThread().isInterrupted()) {
+                try { queue.put(END); }
+                catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
+            }
+        }
+    }
+
+    private T next(Iterator<? extends T> source, ReentrantLock sourceLock) {
+        sourceLock.lock();
+        try {
+            return source.hasNext() ? source.next() : null;
+        } finally {
+            sourceLock.unlock();
+        }
+    }
+
+    private record SourceFailed(RuntimeException error) { }
+}
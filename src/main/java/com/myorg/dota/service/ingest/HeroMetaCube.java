@@ -0,0 +1,117 @@
+package com.myorg.dota.service.ingest;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Keeps {@code hero_meta_cube} (hero × day × lobby_type × game_mode) in step
+ * with {@code fact_player_match}, the same way {@link PlayerRollups} does:
+ * a chunk adds what its rows contribute minus what the stored rows they
+ * replace contributed. The day is the match's {@code DATE(start_time)}.
+ * <p>
+ * Cube rows are shared by every chunk of the day, so they are written last in
+ * the chunk's transaction and in key order.
+ */
+@Component
+public class HeroMetaCube {
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO hero_meta_cube
+          (day,lobby_type,game_mode,hero_id,games,wins,kda_games,kda_sum,duration_sum,gpm_sum,xpm_sum)
+        VALUES (?,?,?,?,?,?,?,?,?,?,?)
+        ON DUPLICATE KEY UPDATE
+          games        = games        + VALUES(games),
+          wins         = wins         + VALUES(wins),
+          kda_games    = kda_games    + VALUES(kda_games),
+          kda_sum      = kda_sum      + VALUES(kda_sum),
+          duration_sum = duration_sum + VALUES(duration_sum),
+          gpm_sum      = gpm_sum      + VALUES(gpm_sum),
+          xpm_sum      = xpm_sum      + VALUES(xpm_sum)""";
+
+    /** games, wins, kda games, kda sum (×10⁴, as MySQL's 4-digit division), duration, gpm, xpm. */
+    private static final int SUMS = 7;
+
+    private final JdbcTemplate jdbc;
+
+    public HeroMetaCube(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Applies {@code now − before}; {@code before} holds the stored rows {@code now} replaces (empty for new matches). */
+    public void apply(ChunkRows now, ChunkRows before) {
+        SortedMap<Long, long[]> cells = new TreeMap<>();   // epoch day << 32 | lobby << 24 | mode << 16 | hero
+        add(now, +1, cells);
+        add(before, -1, cells);
+        cells.values().removeIf(HeroMetaCube::isZero);
+        if (cells.isEmpty()) return;
+
+        long[] keys = cells.keySet().stream().mapToLong(Long::longValue).toArray();
+        long[][] sums = cells.values().toArray(long[][]::new);
+        jdbc.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                long k = keys[i];
+                long[] s = sums[i];
+                ps.setDate(1, Date.valueOf(LocalDate.ofEpochDay(k >>> 32)));
+                ps.setInt(2, (byte) (k >>> 24));
+                ps.setInt(3, (byte) (k >>> 16));
+                ps.setInt(4, (int) (k & 0xFFFF));
+                ps.setLong(5, s[0]);
+                ps.setLong(6, s[1]);
+                ps.setLong(7, s[2]);
+                ps.setBigDecimal(8, BigDecimal.valueOf(s[3], 4));
+                ps.setLong(9, s[4]);
+                ps.setLong(10, s[5]);
+                ps.setLong(11, s[6]);
+            }
+
+            @Override
+            public int getBatchSize() { return keys.length; }
+        });
+    }
+
+    private static void add(ChunkRows rows, int sign, Map<Long, long[]> cells) {
+        if (rows.players.size() == 0) return;
+        MatchColumns m = rows.matches;
+        Map<Long, Integer> matchAt = new HashMap<>(rows.matchCount() * 2);
+        long[] matchKey = new long[rows.matchCount()];
+        for (int i = 0; i < rows.matchCount(); i++) {
+            matchAt.put(m.matchId[i], i);
+            long day = Math.floorDiv(m.startTime[i], 86_400);           // UTC day, like DATE(start_time)
+            matchKey[i] = day << 32 | (m.lobbyType[i] & 0xFFL) << 24 | (m.gameMode[i] & 0xFFL) << 16;
+        }
+
+        PlayerColumns p = rows.players;
+        for (int i = 0; i < p.size(); i++) {
+            Integer mi = matchAt.get(p.matchId[i]);
+            if (mi == null) continue;
+            long[] s = cells.computeIfAbsent(matchKey[mi] | p.heroId[i], k -> new long[SUMS]);
+            s[0] += sign;
+            if ((p.slot[i] < 128) == m.radiantWin[mi]) s[1] += sign;
+            if (p.deaths[i] > 0) {
+                s[2] += sign;
+                // ROUND(x, 4) of MySQL: half away from zero; x ≥ 0 here
+                s[3] += sign * ((p.kills[i] + p.assists[i]) * 10_000L * 2 / p.deaths[i] + 1) / 2;
+            }
+            s[4] += sign * (long) m.duration[mi];
+            s[5] += sign * p.gpm[i];
+            s[6] += sign * p.xpm[i];
+        }
+    }
+
+    private static boolean isZero(long[] s) {
+        for (long v : s) if (v != 0) return false;
+        return true;
+    }
+}
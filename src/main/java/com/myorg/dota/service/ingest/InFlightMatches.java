@@ -0,0 +1,149 @@
+package com.myorg.dota.service.ingest;
+
+import com.myorg.dota.service.MatchRef;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Match ids some ingest run is currently fetching and writing.
+ * <p>
+ * A run {@link Claim#take takes} its refs before planning. Refs already claimed
+ * by another run are left to that run: this one neither fetches nor writes
+ * them, and after finishing its own work waits for those runs instead. Two
+ * overlapping ingests therefore cost one Steam call and one write per match,
+ * and never race on the same rows.
+ * <p>
+ * Ids are {@link Claim#release released} as their chunk commits and the rest
+ * when the claim is closed (which also wakes its waiters), so a match that
+ * stops being in flight is already visible to {@link KnownMatchIndex}, and a
+ * long run only holds the ids it has not written yet.
+ */
+@Component
+public class InFlightMatches {
+
+    private final Map<Long, Claim> flights = new ConcurrentHashMap<>();
+
+    private final LongAdder claimed   = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder joinedRuns = new LongAdder();
+
+    public final class Claim implements AutoCloseable {
+
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final Set<Long> held = ConcurrentHashMap.newKeySet();
+        private final Set<CompletableFuture<Void>> others = ConcurrentHashMap.newKeySet();
+        private final Set<Long> joined = ConcurrentHashMap.newKeySet();
+
+        /** Claims the refs no other run holds and returns them – the ones this run fetches itself. */
+        public List<MatchRef> take(List<MatchRef> refs) {
+            List<MatchRef> owned = new ArrayList<>(refs.size());
+            int joinedNow = 0;
+            boolean first = joined.isEmpty();
+            for (MatchRef r : refs) {
+                if (held.contains(r.matchId())) continue;
+                Claim holder = flights.putIfAbsent(r.matchId(), this);
+                if (holder == null) {
+                    held.add(r.matchId());
+                    owned.add(r);
+                } else if (holder != this && joined.add(r.matchId())) {
+                    joinedNow++;
+                    others.add(holder.done);
+                }
+            }
+            claimed.add(owned.size());
+            coalesced.add(joinedNow);
+            if (joinedNow > 0 && first) joinedRuns.increment();
+            return owned;
+        }
+
+        /**
+         * Claims a single id, for a run that only learns its matches while
+         * decoding; false if another run holds it, which is then joined.
+         */
+        public boolean take(long matchId) {
+            if (held.contains(matchId)) return true;
+            Claim holder = flights.putIfAbsent(matchId, this);
+            if (holder == null) {
+                held.add(matchId);
+                claimed.increment();
+                return true;
+            }
+            if (holder == this) return true;
+            if (joined.isEmpty()) joinedRuns.increment();
+            if (joined.add(matchId)) coalesced.increment();
+            others.add(holder.done);
+            return false;
+        }
+
+        /** Refs left to other runs in flight. */
+        public int joined() { return joined.size(); }
+
+        /**
+         * Joined ids that are still not stored – the runs holding them failed or
+         * were cancelled. Meaningful once {@link #awaitOthers} has returned.
+         */
+        public List<Long> joinedMissing(KnownMatchIndex known) {
+            List<Long> missing = new ArrayList<>();
+            for (Long id : joined) if (!known.contains(id)) missing.add(id);
+            return missing;
+        }
+
+        /** Gives up ids whose chunk has committed. */
+        public void release(long[] ids, int n) {
+            for (int i = 0; i < n; i++) {
+                if (held.remove(ids[i])) flights.remove(ids[i], this);
+            }
+        }
+
+        /**
+         * Waits for the runs holding the joined refs, polling {@code cancelled}
+         * every second. Their failures are theirs: a failed run's matches are
+         * simply not stored.
+         */
+        public void awaitOthers(BooleanSupplier cancelled) {
+            if (others.isEmpty()) return;
+            CompletableFuture<Void> all = CompletableFuture.allOf(others.toArray(CompletableFuture[]::new));
+            while (!cancelled.getAsBoolean()) {
+                try {
+                    all.get(1, TimeUnit.SECONDS);
+                    return;
+                } catch (TimeoutException e) {
+                    // poll cancellation
+                } catch (ExecutionException e) {
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            for (Long id : held) flights.remove(id, this);
+            held.clear();
+            done.complete(null);
+        }
+    }
+
+    public Claim open() {
+        return new Claim();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("in_flight", flights.size());
+        m.put("claimed_matches", claimed.sum());
+        m.put("coalesced_matches", coalesced.sum());
+        m.put("runs_joined", joinedRuns.sum());
+        return m;
+    }
+}
@@ -0,0 +1,34 @@
+package com.myorg.dota.service.ingest;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Named checkpoints in {@code ingest_cursors}: the next match_seq_num a
+ * sequence cursor (the firehose) reads. Everything below it is written.
+ */
+@Component
+public class IngestCursors {
+
+    private final JdbcTemplate jdbc;
+
+    public IngestCursors(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** -1 when the cursor was never saved. */
+    public long get(String name) {
+        List<Long> v = jdbc.queryForList(
+                "SELECT next_seq FROM ingest_cursors WHERE cursor_name=?", Long.class, name);
+        return v.isEmpty() ? -1 : v.get(0);
+    }
+
+    public void save(String name, long nextSeq) {
+        jdbc.update("""
+            INSERT INTO ingest_cursors (cursor_name, next_seq) VALUES (?,?)
+            ON DUPLICATE KEY UPDATE next_seq = VALUES(next_seq)""",
+                name, nextSeq);
+    }
+}
@@ -0,0 +1,133 @@
+package com.myorg.dota.service.ingest;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One asynchronous ingest run, tracked by {@link IngestJobRegistry}. The
+ * ingest reports into it through {@link IngestProgress}; readers take a
+ * {@link #snapshot()}.
+ */
+public final class IngestJob implements IngestProgress {
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED, CANCELLED;
+
+        public boolean finished() { return this != QUEUED && this != RUNNING; }
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String type;
+    private final long accountId;
+    private final long scope;
+    private final Instant createdAt = Instant.now();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile String phase = "queued";
+    private volatile String error;
+    private volatile long startedNanos;
+    private volatile Instant startedAt, finishedAt;
+    private volatile boolean cancelRequested;
+
+    private final AtomicInteger total   = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger fetched = new AtomicInteger();
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger failed  = new AtomicInteger();
+    private final AtomicInteger joiners = new AtomicInteger();
+
+    /** SSE subscribers, pushed to by the registry's ticker. */
+    final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    IngestJob(String type, long accountId, long scope) {
+        this.type      = type;
+        this.accountId = accountId;
+        this.scope     = scope;
+    }
+
+    public String id()        { return id; }
+    public String type()      { return type; }
+    public long accountId()   { return accountId; }
+    /** How many of the newest matches the job covers; {@code Long.MAX_VALUE} = full history. */
+    public long scope()       { return scope; }
+    public Status status()    { return status; }
+    public Instant finishedAt() { return finishedAt; }
+
+    public void phase(String phase) {
+        this.phase = phase;
+    }
+
+    // ---------- IngestProgress ----------
+
+    @Override
+    public void planned(int toFetch, int skipped) {
+        this.total.addAndGet(toFetch);
+        this.skipped.addAndGet(skipped);
+        phase = "fetching";
+    }
+
+    @Override public void fetched(int matches) { fetched.addAndGet(matches); }
+    @Override public void written(int matches) { written.addAndGet(matches); }
+    @Override public void failed(int matches)  { failed.addAndGet(matches); }
+    @Override public boolean cancelled()       { return cancelRequested; }
+
+    // ---------- lifecycle, driven by the registry ----------
+
+    void joined() {
+        joiners.incrementAndGet();
+    }
+
+    void cancel() {
+        cancelRequested = true;
+    }
+
+    void start() {
+        startedNanos = System.nanoTime();
+        startedAt    = Instant.now();
+        status       = Status.RUNNING;
+    }
+
+    void finish(Status s, String error) {
+        this.error      = error;
+        this.finishedAt = Instant.now();
+        this.phase      = s.name().toLowerCase();
+        this.status     = s;
+    }
+
+    public Map<String, Object> snapshot() {
+        int t = total.get(), w = written.get(), f = failed.get();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("jobId", id);
+        m.put("type", type);
+        m.put("accountId", accountId);
+        m.put("status", status.name());
+        m.put("phase", phase);
+        m.put("total", t);
+        m.put("skipped", skipped.get());
+        m.put("fetched", fetched.get());
+        m.put("written", w);
+        m.put("failed", f);
+        m.put("etaSeconds", etaSeconds(t, w, f));
+        m.put("coalescedRequests", joiners.get());
+        m.put("createdAt", createdAt.toString());
+        m.put("startedAt", startedAt == null ? null : startedAt.toString());
+        m.put("finishedAt", finishedAt == null ? null : finishedAt.toString());
+        m.put("error", error);
+        return m;
+    }
+
+    /** Remaining matches at the write rate so far; {@code null} until something is written. */
+    private Long etaSeconds(int total, int written, int failed) {
+        if (status != Status.RUNNING || written == 0) return null;
+        double elapsed = (System.nanoTime() - startedNanos) / 1e9;
+        int left = Math.max(0, total - written - failed);
+        return Math.round(left * elapsed / written);
+    }
+}
@@ -0,0 +1,212 @@
+package com.myorg.dota.service.ingest;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs ingests off the request thread and keeps their progress.
+ * <p>
+ * Each job gets a virtual thread; at most {@code steam.ingest.jobs.max-concurrent}
+ * run at once, the rest wait as QUEUED (all Steam calls share one
+ * {@code SteamRateController} anyway). Subscribers of {@link #stream} get a
+ * {@code progress} event every {@link #TICK_MS} while the job runs and one
+ * {@code done} event at the end. Finished jobs are kept for
+ * {@link #RETAIN} so their status can still be read.
+ * <p>
+ * A request for an account that already has a running job of the same type
+ * covering at least the same {@code scope} joins that job instead of starting
+ * a second one: the caller gets the running job's id and shares its result.
+ * Jobs of different types never join each other – a "recent" request on the
+ * interactive lane does not wait behind a backfill "full" job, and neither
+ * gets the result of a "queue" job, which only fills {@code ingest_work}. Overlap between
+ * jobs that do not cover each other is deduplicated per match by
+ * {@link InFlightMatches}.
+ */
+@Component
+public class IngestJobRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestJobRegistry.class);
+
+    private static final long TICK_MS = 500;
+    private static final Duration RETAIN = Duration.ofHours(1);
+    private static final int MAX_FINISHED = 200;
+    private static final long SSE_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    private final Map<String, IngestJob> jobs = new ConcurrentHashMap<>();
+    private final Map<ActiveKey, IngestJob> active = new ConcurrentHashMap<>();   // newest unfinished per account and type
+    private final LongAdder coalesced = new LongAdder();
+    private final Semaphore slots;
+    private final ExecutorService workers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("ingest-job-", 0).factory());
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("ingest-sse").daemon().factory());
+
+    public IngestJobRegistry(@Value("${steam.ingest.jobs.max-concurrent:4}") int maxConcurrent) {
+        this.slots = new Semaphore(Math.max(1, maxConcurrent), true);
+        ticker.scheduleWithFixedDelay(this::tick, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues {@code body}, or returns the account's running job when that one
+     * covers at least {@code scope} newest matches. {@code body} reports into
+     * and polls cancellation from the job it is given.
+     */
+    public IngestJob submit(String type, long accountId, long scope, Consumer<IngestJob> body) {
+        IngestJob[] created = { null };
+        IngestJob job = active.compute(new ActiveKey(accountId, type), (k, cur) -> {
+            if (cur != null && !cur.status().finished() && !cur.cancelled() && cur.scope() >= scope) return cur;
+            created[0] = new IngestJob(type, accountId, scope);
+            jobs.put(created[0].id(), created[0]);     // visible before any joiner gets its id
+            return created[0];
+        });
+        if (created[0] == null) {
+            job.joined();
+            coalesced.increment();
+            log.info("Ingest request for {} joined running job {}", accountId, job.id());
+            return job;
+        }
+        workers.execute(() -> run(job, body));
+        return job;
+    }
+
+    /** True while the account has a queued or running job of any type. */
+    public boolean isActive(long accountId) {
+        return active.keySet().stream().anyMatch(k -> k.accountId() == accountId);
+    }
+
+    public Optional<IngestJob> get(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /** Asks the job to stop; it commits what it already fetched. False for unknown or finished jobs. */
+    public boolean cancel(String id) {
+        IngestJob job = jobs.get(id);
+        if (job == null || job.status().finished()) return false;
+        job.cancel();
+        return true;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("running", jobs.values().stream().filter(j -> j.status() == IngestJob.Status.RUNNING).count());
+        m.put("queued", jobs.values().stream().filter(j -> j.status() == IngestJob.Status.QUEUED).count());
+        m.put("coalesced_requests", coalesced.sum());
+        return m;
+    }
+
+    public Optional<SseEmitter> stream(String id) {
+        IngestJob job = jobs.get(id);
+        if (job == null) return Optional.empty();
+
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+        emitter.onCompletion(() -> job.emitters.remove(emitter));
+        emitter.onTimeout(() -> job.emitters.remove(emitter));
+        emitter.onError(e -> job.emitters.remove(emitter));
+
+        if (job.status().finished()) {
+            send(job, emitter, "done");
+            emitter.complete();
+        } else {
+            send(job, emitter, "progress");
+            job.emitters.add(emitter);
+        }
+        return Optional.of(emitter);
+    }
+
+    private void run(IngestJob job, Consumer<IngestJob> body) {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish(IngestJob.Status.FAILED, "interrupted");
+            active.remove(new ActiveKey(job.accountId(), job.type()), job);
+            return;
+        }
+        try {
+            if (job.cancelled()) {
+                job.finish(IngestJob.Status.CANCELLED, null);
+                return;
+            }
+            job.start();
+            log.info("Ingest job {} ({} {}) started", job.id(), job.type(), job.accountId());
+            body.accept(job);
+            job.finish(job.cancelled() ? IngestJob.Status.CANCELLED : IngestJob.Status.DONE, null);
+            log.info("✓ Ingest job {} {}", job.id(), job.status());
+        } catch (RuntimeException e) {
+            log.error("Ingest job {} failed", job.id(), e);
+            job.finish(IngestJob.Status.FAILED, e.getMessage());
+        } finally {
+            slots.release();
+            active.remove(new ActiveKey(job.accountId(), job.type()), job);
+        }
+    }
+
+    private record ActiveKey(long accountId, String type) { }
+
+    // ---------- SSE push + eviction ----------
+
+    private void tick() {
+        try {
+            for (IngestJob job : jobs.values()) {
+                if (job.emitters.isEmpty()) continue;
+                boolean finished = job.status().finished();
+                for (SseEmitter e : job.emitters) {
+                    send(job, e, finished ? "done" : "progress");
+                    if (finished) e.complete();
+                }
+                if (finished) job.emitters.clear();
+            }
+            evict();
+        } catch (RuntimeException e) {
+            log.warn("Ingest job tick failed", e);     // keep the ticker alive
+        }
+    }
+
+    private void send(IngestJob job, SseEmitter emitter, String event) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(job.snapshot()));
+        } catch (IOException | IllegalStateException e) {
+            // client went away
+            job.emitters.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void evict() {
+        Instant cutoff = Instant.now().minus(RETAIN);
+        jobs.values().removeIf(j -> j.status().finished() && j.emitters.isEmpty()
+                && j.finishedAt().isBefore(cutoff));
+
+        long finished = jobs.values().stream().filter(j -> j.status().finished()).count();
+        if (finished > MAX_FINISHED) {
+            jobs.values().stream()
+                    .filter(j -> j.status().finished() && j.emitters.isEmpty())
+                    .sorted(Comparator.comparing(IngestJob::finishedAt))
+                    .limit(finished - MAX_FINISHED)
+                    .toList()
+                    .forEach(j -> jobs.remove(j.id()));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobs.values().forEach(IngestJob::cancel);
+        ticker.shutdownNow();
+        workers.shutdown();
+    }
+}
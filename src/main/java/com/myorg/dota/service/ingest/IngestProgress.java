@@ -0,0 +1,23 @@
+package com.myorg.dota.service.ingest;
+
+/**
+ * Progress callbacks of one ingest run, called from the fetcher and writer
+ * threads. {@link #cancelled()} is polled between windows: a cancelled run
+ * stops issuing Steam calls and still commits what it already fetched.
+ */
+public interface IngestProgress {
+
+    IngestProgress NONE = new IngestProgress() { };
+
+    /** Refs left to fetch after dropping {@code skipped} already stored ones. */
+    default void planned(int toFetch, int skipped) { }
+
+    default void fetched(int matches) { }
+
+    default void written(int matches) { }
+
+    /** Matches Steam did not return, or that could not be decoded. */
+    default void failed(int matches) { }
+
+    default boolean cancelled() { return false; }
+}
@@ -0,0 +1,171 @@
+package com.myorg.dota.service.ingest;
+
+import com.myorg.dota.service.MatchRef;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code ingest_work}: ranges of MatchRefs any instance can ingest. An item is
+ * ready while nobody holds a live lease on it and it has attempts left;
+ * {@link #done} deletes it, {@link #retry} hands it back. Items out of
+ * attempts stay in the table with their {@code last_error} until the
+ * account's next history run {@link #dropExhausted drops} and re-queues them.
+ */
+@Component
+public class IngestWorkQueue {
+
+    /** An item leased to this node. */
+    public record Item(long workId, long accountId, List<MatchRef> refs, boolean bulk, boolean force, int attempt) { }
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final WorkLeases leases;
+    private final TransactionTemplate tx;
+    private final int itemRefs;
+    private final int maxAttempts;
+
+    private final LongAdder enqueued  = new LongAdder();
+    private final LongAdder claimed   = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder retried   = new LongAdder();
+
+    public IngestWorkQueue(NamedParameterJdbcTemplate jdbc, WorkLeases leases, PlatformTransactionManager txManager,
+                           @Value("${steam.work.item-refs:500}") int itemRefs,
+                           @Value("${steam.work.max-attempts:3}") int maxAttempts) {
+        this.jdbc        = jdbc;
+        this.leases      = leases;
+        this.tx          = new TransactionTemplate(txManager);
+        this.tx.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.itemRefs    = Math.max(1, itemRefs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public int itemRefs() {
+        return itemRefs;
+    }
+
+    /** Queues {@code refs} in items of {@code steam.work.item-refs}, each sorted by seq. Returns the item count. */
+    public int enqueue(long accountId, List<MatchRef> refs, boolean bulk, boolean force) {
+        List<SqlParameterSource> rows = new ArrayList<>();
+        for (int i = 0; i < refs.size(); i += itemRefs) {
+            List<MatchRef> part = new ArrayList<>(refs.subList(i, Math.min(i + itemRefs, refs.size())));
+            part.sort(Comparator.comparingLong(MatchRef::seqNum));
+            rows.add(new MapSqlParameterSource()
+                    .addValue("a", accountId)
+                    .addValue("refs", encode(part))
+                    .addValue("bulk", bulk)
+                    .addValue("force", force));
+        }
+        if (rows.isEmpty()) return 0;
+        jdbc.batchUpdate("""
+                INSERT INTO ingest_work (account_id, match_refs, bulk, force_fetch)
+                VALUES (:a, :refs, :bulk, :force)""", rows.toArray(SqlParameterSource[]::new));
+        enqueued.add(rows.size());
+        return rows.size();
+    }
+
+    /** Leases up to {@code limit} ready items, oldest first, skipping rows other nodes are claiming right now. */
+    public List<Item> claim(int limit) {
+        List<Item> items = tx.execute(s -> {
+            MapSqlParameterSource p = new MapSqlParameterSource()
+                    .addValue("n", limit)
+                    .addValue("max", maxAttempts)
+                    .addValue("me", leases.nodeId())
+                    .addValue("leaseSeconds", leases.leaseSeconds());
+            List<Long> ids = jdbc.queryForList("""
+                    SELECT work_id FROM ingest_work
+                    WHERE attempts < :max AND (lease_until IS NULL OR lease_until < NOW(3))
+                    ORDER BY work_id
+                    LIMIT :n
+                    FOR UPDATE SKIP LOCKED""", p, Long.class);
+            if (ids.isEmpty()) return List.<Item>of();
+
+            p.addValue("ids", ids);
+            jdbc.update("UPDATE ingest_work SET lease_owner = :me, lease_until = " + leases.leaseUntilSql()
+                    + ", attempts = attempts + 1 WHERE work_id IN (:ids)", p);
+            return jdbc.query("""
+                    SELECT work_id, account_id, match_refs, bulk, force_fetch, attempts
+                    FROM ingest_work WHERE work_id IN (:ids) ORDER BY work_id""", p,
+                    (rs, i) -> new Item(rs.getLong(1), rs.getLong(2), decode(rs.getString(3)),
+                            rs.getBoolean(4), rs.getBoolean(5), rs.getInt(6)));
+        });
+        claimed.add(items.size());
+        return items;
+    }
+
+    /**
+     * Deletes the account's items that ran out of attempts; a new history run
+     * queues their refs again, as the watermark has not moved past them.
+     */
+    public int dropExhausted(long accountId) {
+        return jdbc.update("""
+                DELETE FROM ingest_work
+                WHERE account_id = :a AND attempts >= :max AND (lease_until IS NULL OR lease_until < NOW(3))""",
+                new MapSqlParameterSource().addValue("a", accountId).addValue("max", maxAttempts));
+    }
+
+    public void done(Item item) {
+        jdbc.update("DELETE FROM ingest_work WHERE work_id = :id AND lease_owner = :me", owned(item));
+        completed.increment();
+    }
+
+    /** Gives the item back; it is claimed again while it has attempts left. */
+    public void retry(Item item, String error) {
+        jdbc.update("""
+                UPDATE ingest_work SET lease_owner = NULL, lease_until = NULL, last_error = :err
+                WHERE work_id = :id AND lease_owner = :me""",
+                owned(item).addValue("err", error.length() > 255 ? error.substring(0, 255) : error));
+        retried.increment();
+    }
+
+    public Map<String, Object> stats() {
+        MapSqlParameterSource p = new MapSqlParameterSource()
+                .addValue("max", maxAttempts)
+                .addValue("me", leases.nodeId());
+        Map<String, Object> m = new LinkedHashMap<>(jdbc.queryForMap("""
+                SELECT COUNT(CASE WHEN attempts < :max AND (lease_until IS NULL OR lease_until < NOW(3)) THEN 1 END) AS ready,
+                       COUNT(CASE WHEN lease_until >= NOW(3) THEN 1 END)                                           AS leased,
+                       COUNT(CASE WHEN lease_until >= NOW(3) AND lease_owner = :me THEN 1 END)                     AS leased_here,
+                       COUNT(CASE WHEN attempts >= :max AND (lease_until IS NULL OR lease_until < NOW(3)) THEN 1 END) AS failed
+                FROM ingest_work""", p));
+        m.put("enqueued", enqueued.sum());
+        m.put("claimed", claimed.sum());
+        m.put("completed", completed.sum());
+        m.put("retried", retried.sum());
+        return m;
+    }
+
+    private MapSqlParameterSource owned(Item item) {
+        return new MapSqlParameterSource()
+                .addValue("id", item.workId())
+                .addValue("me", leases.nodeId());
+    }
+
+    // match_refs: "match_id:seq_num,…" in seqNum order, as in ingest_backfill_windows
+
+    private static String encode(List<MatchRef> refs) {
+        StringBuilder sb = new StringBuilder(refs.size() * 24);
+        for (MatchRef r : refs) {
+            if (!sb.isEmpty()) sb.append(',');
+            sb.append(r.matchId()).append(':').append(r.seqNum());
+        }
+        return sb.toString();
+    }
+
+    private static List<MatchRef> decode(String s) {
+        List<MatchRef> refs = new ArrayList<>();
+        for (String part : s.split(",")) {
+            int c = part.indexOf(':');
+            refs.add(new MatchRef(Long.parseLong(part, 0, c, 10), Long.parseLong(part, c + 1, part.length(), 10)));
+        }
+        return refs;
+    }
+}
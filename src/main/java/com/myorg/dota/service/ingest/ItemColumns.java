@@ -0,0 +1,107 @@
+package com.myorg.dota.service.ingest;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/** Column buffer for {@code fact_player_items}. */
+public final class ItemColumns extends ColumnBuffer implements BatchPreparedStatementSetter {
+
+    public static final String UPSERT_SQL = """
+        INSERT INTO fact_player_items
+          (match_id,hero_id,account_id,slot_index,item_id)
+        VALUES (?,?,?,?,?)
+        ON DUPLICATE KEY UPDATE
+          account_id=VALUES(account_id),
+          item_id=VALUES(item_id)""";
+
+    public static final String SELECT_SQL = """
+        SELECT match_id,hero_id,account_id,slot_index,item_id
+          FROM fact_player_items WHERE match_id IN (:m)""";
+
+    public static final String DELETE_SQL =
+        "DELETE FROM fact_player_items WHERE match_id=? AND hero_id=? AND slot_index=?";
+
+    /** Bulk path ({@link BulkLoader}): same columns in MySQL's default TSV layout. */
+    public static final String LOAD_SQL = """
+        LOAD DATA LOCAL INFILE 'fact_player_items.tsv'
+        REPLACE INTO TABLE fact_player_items CHARACTER SET utf8mb4
+          (match_id,hero_id,account_id,slot_index,item_id)""";
+
+    public long[] matchId, accountId;
+    public int[] heroId, slotIndex, itemId;
+
+    public ItemColumns(int capacity) {
+        super(capacity);
+        grow(capacity());
+    }
+
+    public void add(long mid, int hero, long account, int slot, int item) {
+        int i = nextRow();
+        matchId[i]   = mid;
+        heroId[i]    = hero;
+        accountId[i] = account;
+        slotIndex[i] = slot;
+        itemId[i]    = item;
+    }
+
+    public void addAll(ItemColumns o) {
+        reserve(o.size);
+        int n = o.size, at = size;
+        System.arraycopy(o.matchId, 0, matchId, at, n);
+        System.arraycopy(o.heroId, 0, heroId, at, n);
+        System.arraycopy(o.accountId, 0, accountId, at, n);
+        System.arraycopy(o.slotIndex, 0, slotIndex, at, n);
+        System.arraycopy(o.itemId, 0, itemId, at, n);
+        size += n;
+    }
+
+    @Override
+    protected void grow(int n) {
+        matchId   = matchId == null ? new long[n] : Arrays.copyOf(matchId, n);
+        accountId = accountId == null ? new long[n] : Arrays.copyOf(accountId, n);
+        heroId    = heroId == null ? new int[n] : Arrays.copyOf(heroId, n);
+        slotIndex = slotIndex == null ? new int[n] : Arrays.copyOf(slotIndex, n);
+        itemId    = itemId == null ? new int[n] : Arrays.copyOf(itemId, n);
+    }
+
+    public void writeTsv(TsvBuffer out) {
+        for (int i = 0; i < size; i++) {
+            out.col(matchId[i]).col(heroId[i]).col(accountId[i]).col(slotIndex[i]).col(itemId[i])
+               .endRow();
+        }
+    }
+
+    @Override
+    public void setValues(PreparedStatement ps, int i) throws SQLException {
+        ps.setLong(1, matchId[i]);
+        ps.setInt(2, heroId[i]);
+        ps.setLong(3, accountId[i]);
+        ps.setInt(4, slotIndex[i]);
+        ps.setInt(5, itemId[i]);
+    }
+
+    @Override
+    public int getBatchSize() { return size; }
+
+    @Override
+    public long matchIdAt(int i) { return matchId[i]; }
+
+    @Override
+    public int subKey(int i) { return heroId[i] << 4 | slotIndex[i]; }
+
+    @Override
+    public boolean sameRow(int i, ColumnBuffer other, int j) {
+        ItemColumns o = (ItemColumns) other;
+        return accountId[i] == o.accountId[j] && itemId[i] == o.itemId[j];
+    }
+
+    @Override
+    public void setKey(PreparedStatement ps, int i) throws SQLException {
+        ps.setLong(1, matchId[i]);
+        ps.setInt(2, heroId[i]);
+        ps.setInt(3, slotIndex[i]);
+    }
+}
@@ -0,0 +1,142 @@
+package com.myorg.dota.service.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory set of every {@code fact_matches.match_id}, so refs we already
+ * store are dropped before any Steam call or DB write.
+ * <p>
+ * Kept as two sorted primitive arrays – a large base and a small delta of
+ * recently committed ids – published together as one immutable snapshot:
+ * readers never lock, and a commit only copies the delta until it outgrows
+ * {@link #MERGE_AT}, when both are merged into a new base. 8 bytes per match.
+ * <p>
+ * Until the startup load finishes nothing is reported as known, so early
+ * requests simply ingest as before.
+ */
+@Component
+public class KnownMatchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(KnownMatchIndex.class);
+
+    static final int MERGE_AT = 4_096;
+
+    private record Snapshot(long[] base, long[] delta) {
+        int size() { return base.length + delta.length; }
+    }
+
+    private final JdbcTemplate jdbc;
+    private volatile Snapshot snap = new Snapshot(new long[0], new long[0]);
+    private volatile boolean ready;
+    private final AtomicLong skipped = new AtomicLong();
+
+    public KnownMatchIndex(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long t0 = System.nanoTime();
+        long[][] buf = { new long[1 << 16] };
+        int[] n = { 0 };
+        jdbc.query("SELECT match_id FROM fact_matches ORDER BY match_id", rs -> {
+            if (n[0] == buf[0].length) buf[0] = Arrays.copyOf(buf[0], n[0] * 2);
+            buf[0][n[0]++] = rs.getLong(1);
+        });
+        long[] base = Arrays.copyOf(buf[0], n[0]);
+        synchronized (this) {
+            // ids committed while loading sit in the delta; fold them in
+            Snapshot s = snap;
+            snap = new Snapshot(merge(base, s.base, s.delta), new long[0]);
+            ready = true;
+        }
+        log.info("Known-match index: {} matches in {} ms", n[0], (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean contains(long matchId) {
+        if (!ready) return false;
+        Snapshot s = snap;
+        return Arrays.binarySearch(s.base, matchId) >= 0
+            || Arrays.binarySearch(s.delta, matchId) >= 0;
+    }
+
+    /** Counts refs the ingest dropped because they are already stored. */
+    public void recordSkipped(int n) {
+        skipped.addAndGet(n);
+    }
+
+    /**
+     * Adds ids once the current transaction commits (right away when there is
+     * none), so a rolled-back chunk is never reported as stored.
+     */
+    public void addAfterCommit(long[] ids) {
+        if (ids.length == 0) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() { add(ids); }
+            });
+        } else {
+            add(ids);
+        }
+    }
+
+    public synchronized void add(long[] ids) {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        Snapshot s = snap;
+        long[] delta = merge(s.delta, sorted);
+        snap = delta.length >= MERGE_AT && ready
+                ? new Snapshot(merge(s.base, delta), new long[0])
+                : new Snapshot(s.base, delta);
+    }
+
+    public Map<String, Object> stats() {
+        Snapshot s = snap;
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("ready", ready);
+        m.put("size", s.size());
+        m.put("delta", s.delta.length);
+        m.put("skipped_refs", skipped.get());
+        return m;
+    }
+
+    /** Sorted, de-duplicated union of sorted arrays. */
+    private static long[] merge(long[]... parts) {
+        int total = 0;
+        for (long[] p : parts) total += p.length;
+        long[] out = new long[total];
+        int n = 0;
+        int[] pos = new int[parts.length];
+        while (true) {
+            int pick = -1;
+            long min = 0;
+            for (int k = 0; k < parts.length; k++) {
+                if (pos[k] < parts[k].length && (pick < 0 || parts[k][pos[k]] < min)) {
+                    pick = k;
+                    min = parts[k][pos[k]];
+                }
+            }
+            if (pick < 0) break;
+            pos[pick]++;
+            if (n == 0 || out[n - 1] != min) out[n++] = min;
+        }
+        return n == total ? out : Arrays.copyOf(out, n);
+    }
+}
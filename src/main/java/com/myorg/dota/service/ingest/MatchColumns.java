@@ -0,0 +1,158 @@
+package com.myorg.dota.service.ingest;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+/** Column buffer for {@code fact_matches}. */
+public final class MatchColumns extends ColumnBuffer implements BatchPreparedStatementSetter {
+
+    public static final String UPSERT_SQL = """
+        INSERT INTO fact_matches
+          (match_id,start_time,duration_sec,pre_game_sec,
+           radiant_win,radiant_score,dire_score,
+           cluster,lobby_type,game_mode,engine)
+        VALUES (?,?,?,?,?,?,?,?,?,?,?)
+        ON DUPLICATE KEY UPDATE
+          start_time=VALUES(start_time),
+          duration_sec=VALUES(duration_sec),
+          pre_game_sec=VALUES(pre_game_sec),
+          radiant_win=VALUES(radiant_win),
+          radiant_score=VALUES(radiant_score),
+          dire_score=VALUES(dire_score),
+          cluster=VALUES(cluster),
+          lobby_type=VALUES(lobby_type),
+          game_mode=VALUES(game_mode),
+          engine=VALUES(engine)""";
+
+    /** Claims a match row for {@link FactChunkWriter}; a row already there is left alone. */
+    public static final String INSERT_IGNORE_SQL = """
+        INSERT IGNORE INTO fact_matches
+          (match_id,start_time,duration_sec,pre_game_sec,
+           radiant_win,radiant_score,dire_score,
+           cluster,lobby_type,game_mode,engine)
+        VALUES (?,?,?,?,?,?,?,?,?,?,?)""";
+
+    public static final String SELECT_SQL = """
+        SELECT match_id,start_time,duration_sec,pre_game_sec,
+               radiant_win,radiant_score,dire_score,
+               cluster,lobby_type,game_mode,engine
+          FROM fact_matches WHERE match_id IN (:m)""";
+
+    public static final String DELETE_SQL = "DELETE FROM fact_matches WHERE match_id=?";
+
+    /** Bulk path ({@link BulkLoader}): same columns in MySQL's default TSV layout. */
+    public static final String LOAD_SQL = """
+        LOAD DATA LOCAL INFILE 'fact_matches.tsv'
+        REPLACE INTO TABLE fact_matches CHARACTER SET utf8mb4
+          (match_id,start_time,duration_sec,pre_game_sec,
+           radiant_win,radiant_score,dire_score,
+           cluster,lobby_type,game_mode,engine)""";
+
+    public long[] matchId, startTime;                 // start_time in epoch seconds
+    public int[] duration, preGame, radiantScore, direScore, cluster, lobbyType, gameMode, engine;
+    public boolean[] radiantWin;
+
+    public MatchColumns(int capacity) {
+        super(capacity);
+        grow(capacity());
+    }
+
+    public void add(MatchScratch m) {
+        int i = nextRow();
+        matchId[i]      = m.matchId;
+        startTime[i]    = m.startTime;
+        duration[i]     = m.duration;
+        preGame[i]      = m.preGame;
+        radiantWin[i]   = m.radiantWin;
+        radiantScore[i] = m.radiantScore;
+        direScore[i]    = m.direScore;
+        cluster[i]      = m.cluster;
+        lobbyType[i]    = m.lobbyType;
+        gameMode[i]     = m.gameMode;
+        engine[i]       = m.engine;
+    }
+
+    public void addAll(MatchColumns o) {
+        reserve(o.size);
+        int n = o.size, at = size;
+        System.arraycopy(o.matchId, 0, matchId, at, n);
+        System.arraycopy(o.startTime, 0, startTime, at, n);
+        System.arraycopy(o.duration, 0, duration, at, n);
+        System.arraycopy(o.preGame, 0, preGame, at, n);
+        System.arraycopy(o.radiantWin, 0, radiantWin, at, n);
+        System.arraycopy(o.radiantScore, 0, radiantScore, at, n);
+        System.arraycopy(o.direScore, 0, direScore, at, n);
+        System.arraycopy(o.cluster, 0, cluster, at, n);
+        System.arraycopy(o.lobbyType, 0, lobbyType, at, n);
+        System.arraycopy(o.gameMode, 0, gameMode, at, n);
+        System.arraycopy(o.engine, 0, engine, at, n);
+        size += n;
+    }
+
+    @Override
+    protected void grow(int n) {
+        matchId      = matchId == null ? new long[n] : Arrays.copyOf(matchId, n);
+        startTime    = startTime == null ? new long[n] : Arrays.copyOf(startTime, n);
+        duration     = duration == null ? new int[n] : Arrays.copyOf(duration, n);
+        preGame      = preGame == null ? new int[n] : Arrays.copyOf(preGame, n);
+        radiantWin   = radiantWin == null ? new boolean[n] : Arrays.copyOf(radiantWin, n);
+        radiantScore = radiantScore == null ? new int[n] : Arrays.copyOf(radiantScore, n);
+        direScore    = direScore == null ? new int[n] : Arrays.copyOf(direScore, n);
+        cluster      = cluster == null ? new int[n] : Arrays.copyOf(cluster, n);
+        lobbyType    = lobbyType == null ? new int[n] : Arrays.copyOf(lobbyType, n);
+        gameMode     = gameMode == null ? new int[n] : Arrays.copyOf(gameMode, n);
+        engine       = engine == null ? new int[n] : Arrays.copyOf(engine, n);
+    }
+
+    public void writeTsv(TsvBuffer out) {
+        for (int i = 0; i < size; i++) {
+            out.col(matchId[i]).dateTime(startTime[i]).col(duration[i]).col(preGame[i])
+               .col(radiantWin[i]).col(radiantScore[i]).col(direScore[i])
+               .col(cluster[i]).col(lobbyType[i]).col(gameMode[i]).col(engine[i])
+               .endRow();
+        }
+    }
+
+    @Override
+    public void setValues(PreparedStatement ps, int i) throws SQLException {
+        ps.setLong(1, matchId[i]);
+        ps.setTimestamp(2, new Timestamp(startTime[i] * 1000));
+        ps.setInt(3, duration[i]);
+        ps.setInt(4, preGame[i]);
+        ps.setBoolean(5, radiantWin[i]);
+        ps.setInt(6, radiantScore[i]);
+        ps.setInt(7, direScore[i]);
+        ps.setInt(8, cluster[i]);
+        ps.setInt(9, lobbyType[i]);
+        ps.setInt(10, gameMode[i]);
+        ps.setInt(11, engine[i]);
+    }
+
+    @Override
+    public int getBatchSize() { return size; }
+
+    @Override
+    public long matchIdAt(int i) { return matchId[i]; }
+
+    @Override
+    public int subKey(int i) { return 0; }
+
+    @Override
+    public boolean sameRow(int i, ColumnBuffer other, int j) {
+        MatchColumns o = (MatchColumns) other;
+        return startTime[i] == o.startTime[j] && duration[i] == o.duration[j]
+            && preGame[i] == o.preGame[j] && radiantWin[i] == o.radiantWin[j]
+            && radiantScore[i] == o.radiantScore[j] && direScore[i] == o.direScore[j]
+            && cluster[i] == o.cluster[j] && lobbyType[i] == o.lobbyType[j]
+            && gameMode[i] == o.gameMode[j] && engine[i] == o.engine[j];
+    }
+
+    @Override
+    public void setKey(PreparedStatement ps, int i) throws SQLException {
+        ps.setLong(1, matchId[i]);
+    }
+}
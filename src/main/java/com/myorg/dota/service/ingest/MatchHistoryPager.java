@@ -0,0 +1,103 @@
+package com.myorg.dota.service.ingest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.myorg.dota.service.MatchRef;
+import com.myorg.dota.service.steam.SteamClient;
+import com.myorg.dota.service.steam.SteamLane;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An account's GetMatchHistory, newest first, one page per {@link #next()}.
+ * Pages are fetched lazily, so only the current page is ever held.
+ * <p>
+ * Stops at the first match at or below {@code watermark} (0 = none): older
+ * history was covered by an earlier complete run. {@link #complete()} tells
+ * a clean end from a failed call, which also ends the iteration.
+ */
+public final class MatchHistoryPager implements Iterator<List<MatchRef>> {
+
+    private static final int PAGE = 100;
+
+    private final SteamClient steam;
+    private final SteamLane lane;
+    private final long accountId;
+    private final long watermark;
+
+    private long startAt;
+    private int shortPageStreak;
+    private boolean done, failed;
+    private long newest;
+    private List<MatchRef> next;
+
+    public MatchHistoryPager(SteamClient steam, SteamLane lane, long accountId, long watermark) {
+        this.steam     = steam;
+        this.lane      = lane;
+        this.accountId = accountId;
+        this.watermark = watermark;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) next = fetch();
+        return next != null;
+    }
+
+    @Override
+    public List<MatchRef> next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        List<MatchRef> page = next;
+        next = null;
+        return page;
+    }
+
+    /** Newest match id seen; 0 before the first page. */
+    public long newestMatchId() {
+        return newest;
+    }
+
+    /** True once the history (or the watermark) was reached without a failed call. */
+    public boolean complete() {
+        return done && !failed;
+    }
+
+    private List<MatchRef> fetch() {
+        while (!done) {
+            JsonNode root = steam.matchHistory(lane, accountId, PAGE, startAt);
+            if (root.isMissingNode()) {
+                failed = done = true;
+                return null;
+            }
+            JsonNode arr = root.path("result").path("matches");
+            if (!arr.isArray() || arr.isEmpty()) {
+                done = true;
+                return null;
+            }
+
+            List<MatchRef> page = new ArrayList<>(arr.size());
+            for (JsonNode m : arr) {
+                long id = m.path("match_id").asLong();
+                if (id <= watermark) {
+                    done = true;
+                    break;
+                }
+                if (newest == 0) newest = id;
+                page.add(new MatchRef(id, m.path("match_seq_num").asLong()));
+            }
+
+            if (!done) {
+                if (arr.size() < PAGE) {
+                    if (++shortPageStreak > 5) done = true;
+                } else {
+                    shortPageStreak = 0;
+                }
+                startAt = arr.get(arr.size() - 1).path("match_id").asLong() - 1;
+            }
+            if (!page.isEmpty()) return page;
+        }
+        return null;
+    }
+}
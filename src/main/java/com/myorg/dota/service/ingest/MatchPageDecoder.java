@@ -0,0 +1,34 @@
+package com.myorg.dota.service.ingest;
+
+import java.io.IOException;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Turns one {@code GetMatchHistoryBySequenceNum} response body into fact rows.
+ */
+public interface MatchPageDecoder {
+
+    /**
+     * Appends the rows of every match accepted by {@code wanted} to {@code out}.
+     * {@code wanted} is called exactly once per match in the page.
+     */
+    default DecodedPage decode(byte[] body, LongPredicate wanted, ChunkRows out) throws IOException {
+        return decode(body, wanted, m -> true, out);
+    }
+
+    /**
+     * Same, also dropping wanted matches {@code keep} rejects once they are
+     * read – e.g. by lobby type or game mode, which only the match body has.
+     */
+    DecodedPage decode(byte[] body, LongPredicate wanted, Predicate<MatchScratch> keep, ChunkRows out)
+            throws IOException;
+
+    /**
+     * @param returned matches in the page (wanted or not)
+     * @param lastSeq  match_seq_num of the last match, or -1 for an empty page
+     */
+    record DecodedPage(int returned, long lastSeq) {
+        public static final DecodedPage EMPTY = new DecodedPage(0, -1);
+    }
+}
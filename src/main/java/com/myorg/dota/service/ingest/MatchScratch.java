@@ -0,0 +1,97 @@
+package com.myorg.dota.service.ingest;
+
+import java.util.Arrays;
+
+/**
+ * Reusable per-match decode buffer. Decoders fill it field by field in
+ * whatever order the payload delivers them and {@link ChunkRows#append}
+ * turns it into fact rows once the whole match object has been read.
+ * Absent fields stay 0 / false, same as {@code JsonNode.asInt()}.
+ */
+public final class MatchScratch {
+
+    public long matchId, seqNum, startTime;
+    public int duration, preGame, radiantScore, direScore;
+    public int cluster, lobbyType, gameMode, engine;
+    public int towerRadiant, towerDire, barracksRadiant, barracksDire;
+    public boolean radiantWin;
+
+    private Player[] players = new Player[10];
+    public int playerCount;
+
+    public int[] pickOrder = new int[24], pickHero = new int[24], pickTeam = new int[24];
+    public boolean[] pickIsPick = new boolean[24];
+    public int pickCount;
+
+    public void reset() {
+        matchId = seqNum = startTime = 0;
+        duration = preGame = radiantScore = direScore = 0;
+        cluster = lobbyType = gameMode = engine = 0;
+        towerRadiant = towerDire = barracksRadiant = barracksDire = 0;
+        radiantWin = false;
+        playerCount = 0;
+        pickCount = 0;
+    }
+
+    public Player player(int i) { return players[i]; }
+
+    public Player nextPlayer() {
+        if (playerCount == players.length)
+            players = Arrays.copyOf(players, playerCount * 2);
+        Player p = players[playerCount];
+        if (p == null) players[playerCount] = p = new Player();
+        playerCount++;
+        p.reset();
+        return p;
+    }
+
+    public void addPick(int order, boolean isPick, int team, int heroId) {
+        if (pickCount == pickOrder.length) {
+            int n = pickCount * 2;
+            pickOrder  = Arrays.copyOf(pickOrder, n);
+            pickHero   = Arrays.copyOf(pickHero, n);
+            pickTeam   = Arrays.copyOf(pickTeam, n);
+            pickIsPick = Arrays.copyOf(pickIsPick, n);
+        }
+        pickOrder[pickCount]  = order;
+        pickIsPick[pickCount] = isPick;
+        pickTeam[pickCount]   = team;
+        pickHero[pickCount]   = heroId;
+        pickCount++;
+    }
+
+    public static final class Player {
+        public long accountId;
+        public int slot, heroId;
+        public int kills, deaths, assists, gpm, xpm;
+        public int heroDamage, towerDamage, heroHealing, netWorth;
+        public int level, lastHits, denies, leaverStatus;
+        public final int[] items = new int[10];            // item_0 … item_9
+
+        public int[] upAbility = new int[32], upTime = new int[32], upLevel = new int[32];
+        public int upCount;
+
+        void reset() {
+            accountId = 0;
+            slot = heroId = 0;
+            kills = deaths = assists = gpm = xpm = 0;
+            heroDamage = towerDamage = heroHealing = netWorth = 0;
+            level = lastHits = denies = leaverStatus = 0;
+            Arrays.fill(items, 0);
+            upCount = 0;
+        }
+
+        public void addUpgrade(int ability, int time, int level) {
+            if (upCount == upAbility.length) {
+                int n = upCount * 2;
+                upAbility = Arrays.copyOf(upAbility, n);
+                upTime    = Arrays.copyOf(upTime, n);
+                upLevel   = Arrays.copyOf(upLevel, n);
+            }
+            upAbility[upCount] = ability;
+            upTime[upCount]    = time;
+            upLevel[upCount]   = level;
+            upCount++;
+        }
+    }
+}
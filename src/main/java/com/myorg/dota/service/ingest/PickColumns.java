@@ -0,0 +1,106 @@
+package com.myorg.dota.service.ingest;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/** Column buffer for {@code fact_picks_bans}. */
+public final class PickColumns extends ColumnBuffer implements BatchPreparedStatementSetter {
+
+    public static final String UPSERT_SQL = """
+        INSERT INTO fact_picks_bans
+          (match_id,order_idx,is_pick,team,hero_id)
+        VALUES (?,?,?,?,?)
+        ON DUPLICATE KEY UPDATE
+          is_pick=VALUES(is_pick),team=VALUES(team),hero_id=VALUES(hero_id)""";
+
+    public static final String SELECT_SQL = """
+        SELECT match_id,order_idx,is_pick,team,hero_id
+          FROM fact_picks_bans WHERE match_id IN (:m)""";
+
+    public static final String DELETE_SQL =
+        "DELETE FROM fact_picks_bans WHERE match_id=? AND order_idx=?";
+
+    /** Bulk path ({@link BulkLoader}): same columns in MySQL's default TSV layout. */
+    public static final String LOAD_SQL = """
+        LOAD DATA LOCAL INFILE 'fact_picks_bans.tsv'
+        REPLACE INTO TABLE fact_picks_bans CHARACTER SET utf8mb4
+          (match_id,order_idx,is_pick,team,hero_id)""";
+
+    public long[] matchId;
+    public int[] orderIdx, heroId;
+    public boolean[] isPick, radiant;               // team: TRUE = Radiant
+
+    public PickColumns(int capacity) {
+        super(capacity);
+        grow(capacity());
+    }
+
+    public void add(long mid, int order, boolean pick, boolean rad, int hero) {
+        int i = nextRow();
+        matchId[i]  = mid;
+        orderIdx[i] = order;
+        isPick[i]   = pick;
+        radiant[i]  = rad;
+        heroId[i]   = hero;
+    }
+
+    public void addAll(PickColumns o) {
+        reserve(o.size);
+        int n = o.size, at = size;
+        System.arraycopy(o.matchId, 0, matchId, at, n);
+        System.arraycopy(o.orderIdx, 0, orderIdx, at, n);
+        System.arraycopy(o.isPick, 0, isPick, at, n);
+        System.arraycopy(o.radiant, 0, radiant, at, n);
+        System.arraycopy(o.heroId, 0, heroId, at, n);
+        size += n;
+    }
+
+    @Override
+    protected void grow(int n) {
+        matchId  = matchId == null ? new long[n] : Arrays.copyOf(matchId, n);
+        orderIdx = orderIdx == null ? new int[n] : Arrays.copyOf(orderIdx, n);
+        heroId   = heroId == null ? new int[n] : Arrays.copyOf(heroId, n);
+        isPick   = isPick == null ? new boolean[n] : Arrays.copyOf(isPick, n);
+        radiant  = radiant == null ? new boolean[n] : Arrays.copyOf(radiant, n);
+    }
+
+    public void writeTsv(TsvBuffer out) {
+        for (int i = 0; i < size; i++) {
+            out.col(matchId[i]).col(orderIdx[i]).col(isPick[i]).col(radiant[i]).col(heroId[i])
+               .endRow();
+        }
+    }
+
+    @Override
+    public void setValues(PreparedStatement ps, int i) throws SQLException {
+        ps.setLong(1, matchId[i]);
+        ps.setInt(2, orderIdx[i]);
+        ps.setBoolean(3, isPick[i]);
+        ps.setBoolean(4, radiant[i]);
+        ps.setInt(5, heroId[i]);
+    }
+
+    @Override
+    public int getBatchSize() { return size; }
+
+    @Override
+    public long matchIdAt(int i) { return matchId[i]; }
+
+    @Override
+    public int subKey(int i) { return orderIdx[i]; }
+
+    @Override
+    public boolean sameRow(int i, ColumnBuffer other, int j) {
+        PickColumns o = (PickColumns) other;
+        return isPick[i] == o.isPick[j] && radiant[i] == o.radiant[j] && heroId[i] == o.heroId[j];
+    }
+
+    @Override
+    public void setKey(PreparedStatement ps, int i) throws SQLException {
+        ps.setLong(1, matchId[i]);
+        ps.setInt(2, orderIdx[i]);
+    }
+}
@@ -0,0 +1,201 @@
+package com.myorg.dota.service.ingest;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+/** Column buffer for {@code fact_player_match}. */
+public final class PlayerColumns extends ColumnBuffer implements BatchPreparedStatementSetter {
+
+    public static final String UPSERT_SQL = """
+        INSERT INTO fact_player_match
+          (match_id,account_id,player_slot,is_radiant,hero_id,
+           kills,deaths,assists,gpm,xpm,
+           hero_damage,tower_damage,hero_healing,net_worth,
+           level,last_hits,denies,leaver_status,start_time)
+        VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)
+        ON DUPLICATE KEY UPDATE
+          account_id    = VALUES(account_id),
+          is_radiant    = VALUES(is_radiant),
+          hero_id       = VALUES(hero_id),
+          kills         = VALUES(kills),
+          deaths        = VALUES(deaths),
+          assists       = VALUES(assists),
+          gpm           = VALUES(gpm),
+          xpm           = VALUES(xpm),
+          hero_damage   = VALUES(hero_damage),
+          tower_damage  = VALUES(tower_damage),
+          hero_healing  = VALUES(hero_healing),
+          net_worth     = VALUES(net_worth),
+          level         = VALUES(level),
+          last_hits     = VALUES(last_hits),
+          denies        = VALUES(denies),
+          leaver_status = VALUES(leaver_status),
+          start_time    = VALUES(start_time)""";
+
+    public static final String SELECT_SQL = """
+        SELECT match_id,account_id,player_slot,hero_id,
+               kills,deaths,assists,gpm,xpm,
+               hero_damage,tower_damage,hero_healing,net_worth,
+               level,last_hits,denies,leaver_status,start_time
+          FROM fact_player_match WHERE match_id IN (:m)""";
+
+    public static final String DELETE_SQL =
+        "DELETE FROM fact_player_match WHERE match_id=? AND player_slot=?";
+
+    /** Bulk path ({@link BulkLoader}): same columns in MySQL's default TSV layout. */
+    public static final String LOAD_SQL = """
+        LOAD DATA LOCAL INFILE 'fact_player_match.tsv'
+        REPLACE INTO TABLE fact_player_match CHARACTER SET utf8mb4
+          (match_id,account_id,player_slot,is_radiant,hero_id,
+           kills,deaths,assists,gpm,xpm,
+           hero_damage,tower_damage,hero_healing,net_worth,
+           level,last_hits,denies,leaver_status,start_time)""";
+
+    public long[] matchId, accountId;
+    public long[] startTime;                          // the match's, epoch seconds – keyset paging by player
+    public int[] slot, heroId, kills, deaths, assists, gpm, xpm;
+    public int[] heroDamage, towerDamage, heroHealing, netWorth;
+    public int[] level, lastHits, denies, leaverStatus;
+
+    public PlayerColumns(int capacity) {
+        super(capacity);
+        grow(capacity());
+    }
+
+    public void add(long mid, long start, MatchScratch.Player p) {
+        int i = nextRow();
+        matchId[i]      = mid;
+        startTime[i]    = start;
+        accountId[i]    = p.accountId;
+        slot[i]         = p.slot;
+        heroId[i]       = p.heroId;
+        kills[i]        = p.kills;
+        deaths[i]       = p.deaths;
+        assists[i]      = p.assists;
+        gpm[i]          = p.gpm;
+        xpm[i]          = p.xpm;
+        heroDamage[i]   = p.heroDamage;
+        towerDamage[i]  = p.towerDamage;
+        heroHealing[i]  = p.heroHealing;
+        netWorth[i]     = p.netWorth;
+        level[i]        = p.level;
+        lastHits[i]     = p.lastHits;
+        denies[i]       = p.denies;
+        leaverStatus[i] = p.leaverStatus;
+    }
+
+    public void addAll(PlayerColumns o) {
+        reserve(o.size);
+        int n = o.size, at = size;
+        System.arraycopy(o.matchId, 0, matchId, at, n);
+        System.arraycopy(o.accountId, 0, accountId, at, n);
+        System.arraycopy(o.startTime, 0, startTime, at, n);
+        System.arraycopy(o.slot, 0, slot, at, n);
+        System.arraycopy(o.heroId, 0, heroId, at, n);
+        System.arraycopy(o.kills, 0, kills, at, n);
+        System.arraycopy(o.deaths, 0, deaths, at, n);
+        System.arraycopy(o.assists, 0, assists, at, n);
+        System.arraycopy(o.gpm, 0, gpm, at, n);
+        System.arraycopy(o.xpm, 0, xpm, at, n);
+        System.arraycopy(o.heroDamage, 0, heroDamage, at, n);
+        System.arraycopy(o.towerDamage, 0, towerDamage, at, n);
+        System.arraycopy(o.heroHealing, 0, heroHealing, at, n);
+        System.arraycopy(o.netWorth, 0, netWorth, at, n);
+        System.arraycopy(o.level, 0, level, at, n);
+        System.arraycopy(o.lastHits, 0, lastHits, at, n);
+        System.arraycopy(o.denies, 0, denies, at, n);
+        System.arraycopy(o.leaverStatus, 0, leaverStatus, at, n);
+        size += n;
+    }
+
+    @Override
+    protected void grow(int n) {
+        matchId      = matchId == null ? new long[n] : Arrays.copyOf(matchId, n);
+        accountId    = accountId == null ? new long[n] : Arrays.copyOf(accountId, n);
+        startTime    = startTime == null ? new long[n] : Arrays.copyOf(startTime, n);
+        slot         = copy(slot, n);
+        heroId       = copy(heroId, n);
+        kills        = copy(kills, n);
+        deaths       = copy(deaths, n);
+        assists      = copy(assists, n);
+        gpm          = copy(gpm, n);
+        xpm          = copy(xpm, n);
+        heroDamage   = copy(heroDamage, n);
+        towerDamage  = copy(towerDamage, n);
+        heroHealing  = copy(heroHealing, n);
+        netWorth     = copy(netWorth, n);
+        level        = copy(level, n);
+        lastHits     = copy(lastHits, n);
+        denies       = copy(denies, n);
+        leaverStatus = copy(leaverStatus, n);
+    }
+
+    private static int[] copy(int[] a, int n) {
+        return a == null ? new int[n] : Arrays.copyOf(a, n);
+    }
+
+    public void writeTsv(TsvBuffer out) {
+        for (int i = 0; i < size; i++) {
+            out.col(matchId[i]).col(accountId[i]).col(slot[i]).col(slot[i] < 128).col(heroId[i])
+               .col(kills[i]).col(deaths[i]).col(assists[i]).col(gpm[i]).col(xpm[i])
+               .col(heroDamage[i]).col(towerDamage[i]).col(heroHealing[i]).col(netWorth[i])
+               .col(level[i]).col(lastHits[i]).col(denies[i]).col(leaverStatus[i]).dateTime(startTime[i])
+               .endRow();
+        }
+    }
+
+    @Override
+    public void setValues(PreparedStatement ps, int i) throws SQLException {
+        ps.setLong(1, matchId[i]);
+        ps.setLong(2, accountId[i]);
+        ps.setInt(3, slot[i]);
+        ps.setBoolean(4, slot[i] < 128);
+        ps.setInt(5, heroId[i]);
+        ps.setInt(6, kills[i]);
+        ps.setInt(7, deaths[i]);
+        ps.setInt(8, assists[i]);
+        ps.setInt(9, gpm[i]);
+        ps.setInt(10, xpm[i]);
+        ps.setInt(11, heroDamage[i]);
+        ps.setInt(12, towerDamage[i]);
+        ps.setInt(13, heroHealing[i]);
+        ps.setInt(14, netWorth[i]);
+        ps.setInt(15, level[i]);
+        ps.setInt(16, lastHits[i]);
+        ps.setInt(17, denies[i]);
+        ps.setInt(18, leaverStatus[i]);
+        ps.setTimestamp(19, new Timestamp(startTime[i] * 1000));
+    }
+
+    @Override
+    public int getBatchSize() { return size; }
+
+    @Override
+    public long matchIdAt(int i) { return matchId[i]; }
+
+    @Override
+    public int subKey(int i) { return slot[i]; }
+
+    @Override
+    public boolean sameRow(int i, ColumnBuffer other, int j) {
+        PlayerColumns o = (PlayerColumns) other;
+        return accountId[i] == o.accountId[j] && heroId[i] == o.heroId[j]
+            && kills[i] == o.kills[j] && deaths[i] == o.deaths[j] && assists[i] == o.assists[j]
+            && gpm[i] == o.gpm[j] && xpm[i] == o.xpm[j]
+            && heroDamage[i] == o.heroDamage[j] && towerDamage[i] == o.towerDamage[j]
+            && heroHealing[i] == o.heroHealing[j] && netWorth[i] == o.netWorth[j]
+            && level[i] == o.level[j] && lastHits[i] == o.lastHits[j]
+            && denies[i] == o.denies[j] && leaverStatus[i] == o.leaverStatus[j]
+            && startTime[i] == o.startTime[j];
+    }
+
+    @Override
+    public void setKey(PreparedStatement ps, int i) throws SQLException {
+        ps.setLong(1, matchId[i]);
+        ps.setInt(2, slot[i]);
+    }
+}
@@ -0,0 +1,90 @@
+package com.myorg.dota.service.ingest;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Keeps {@code player_pair_stats} in step with {@code fact_player_match}: for
+ * every two known players of a match, one row each way, as allies or as
+ * opponents. Changes are applied by delta like {@link PlayerRollups}, in
+ * primary-key order.
+ */
+@Component
+public class PlayerPairs {
+
+    private static final String UPSERT_SQL = """
+        INSERT INTO player_pair_stats (account_id,ally,other_id,games,wins)
+        VALUES (?,?,?,?,?)
+        ON DUPLICATE KEY UPDATE
+          games = games + VALUES(games),
+          wins  = wins  + VALUES(wins)""";
+
+    private record Pair(long accountId, boolean ally, long otherId) { }
+
+    private static final Comparator<Pair> PK_ORDER = Comparator.comparingLong(Pair::accountId)
+            .thenComparing(Pair::ally)
+            .thenComparingLong(Pair::otherId);
+
+    private final JdbcTemplate jdbc;
+
+    public PlayerPairs(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Applies {@code now − before}; {@code before} holds the stored rows {@code now} replaces (empty for new matches). */
+    public void apply(ChunkRows now, ChunkRows before) {
+        SortedMap<Pair, int[]> pairs = new TreeMap<>(PK_ORDER);   // games, wins
+        add(now, +1, pairs);
+        add(before, -1, pairs);
+        pairs.values().removeIf(d -> d[0] == 0 && d[1] == 0);
+        if (pairs.isEmpty()) return;
+
+        Pair[] keys = pairs.keySet().toArray(Pair[]::new);
+        int[][] deltas = pairs.values().toArray(int[][]::new);
+        jdbc.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, keys[i].accountId());
+                ps.setBoolean(2, keys[i].ally());
+                ps.setLong(3, keys[i].otherId());
+                ps.setInt(4, deltas[i][0]);
+                ps.setInt(5, deltas[i][1]);
+            }
+
+            @Override
+            public int getBatchSize() { return keys.length; }
+        });
+    }
+
+    private static void add(ChunkRows rows, int sign, Map<Pair, int[]> pairs) {
+        if (rows.players.size() == 0) return;
+        Map<Long, Boolean> radiantWin = new HashMap<>(rows.matchCount() * 2);
+        for (int i = 0; i < rows.matchCount(); i++) radiantWin.put(rows.matches.matchId[i], rows.matches.radiantWin[i]);
+
+        PlayerColumns p = rows.players;
+        Map<Long, List<Integer>> byMatch = new HashMap<>(rows.matchCount() * 2);
+        for (int i = 0; i < p.size(); i++) {
+            if (p.accountId[i] == PlayerRollups.ANONYMOUS) continue;
+            byMatch.computeIfAbsent(p.matchId[i], k -> new ArrayList<>(10)).add(i);
+        }
+
+        for (Map.Entry<Long, List<Integer>> e : byMatch.entrySet()) {
+            boolean rw = radiantWin.getOrDefault(e.getKey(), false);
+            for (int i : e.getValue()) {
+                boolean radiant = p.slot[i] < 128;
+                for (int j : e.getValue()) {
+                    if (p.accountId[j] == p.accountId[i]) continue;
+                    int[] d = pairs.computeIfAbsent(
+                            new Pair(p.accountId[i], radiant == (p.slot[j] < 128), p.accountId[j]), k -> new int[2]);
+                    d[0] += sign;
+                    if (radiant == rw) d[1] += sign;
+                }
+            }
+        }
+    }
+}
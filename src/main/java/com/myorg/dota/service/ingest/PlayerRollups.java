@@ -0,0 +1,140 @@
+package com.myorg.dota.service.ingest;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * Keeps {@code player_rollups} and {@code player_hero_rollups} in step with
+ * {@code fact_player_match}, inside the transaction that writes the chunk.
+ * <p>
+ * The change of a chunk is what its rows contribute minus what the stored rows
+ * they replace contributed, so re-ingesting unchanged matches adds nothing
+ * and a corrected match moves its players' totals by the difference. Rows
+ * are upserted in key order, so concurrent chunks lock shared players in the
+ * same order. {@code first_match} / {@code last_match} only ever widen.
+ */
+@Component
+public class PlayerRollups {
+
+    /** Account id Steam gives players with a private profile. */
+    static final long ANONYMOUS = 4294967295L;
+
+    private static final String UPSERT_TAIL = """
+        ON DUPLICATE KEY UPDATE
+          games       = games   + VALUES(games),
+          wins        = wins    + VALUES(wins),
+          kills       = kills   + VALUES(kills),
+          deaths      = deaths  + VALUES(deaths),
+          assists     = assists + VALUES(assists),
+          gpm_sum     = gpm_sum + VALUES(gpm_sum),
+          xpm_sum     = xpm_sum + VALUES(xpm_sum),
+          first_match = COALESCE(LEAST(first_match, VALUES(first_match)), first_match, VALUES(first_match)),
+          last_match  = COALESCE(GREATEST(last_match, VALUES(last_match)), last_match, VALUES(last_match))""";
+
+    private static final String PLAYER_SQL = """
+        INSERT INTO player_rollups
+          (account_id,games,wins,kills,deaths,assists,gpm_sum,xpm_sum,first_match,last_match)
+        VALUES (?,?,?,?,?,?,?,?,?,?)
+        """ + UPSERT_TAIL;
+
+    private static final String HERO_SQL = """
+        INSERT INTO player_hero_rollups
+          (account_id,hero_id,games,wins,kills,deaths,assists,gpm_sum,xpm_sum,first_match,last_match)
+        VALUES (?,?,?,?,?,?,?,?,?,?,?)
+        """ + UPSERT_TAIL;
+
+    /** games, wins, kills, deaths, assists, gpm, xpm; first/last start time of added rows. */
+    private static final class Delta {
+        final long[] sum = new long[7];
+        long first = Long.MAX_VALUE, last;
+
+        boolean isZero() {
+            for (long v : sum) if (v != 0) return false;
+            return true;
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+
+    public PlayerRollups(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Applies {@code now − before}; {@code before} holds the stored rows {@code now} replaces (empty for new matches). */
+    public void apply(ChunkRows now, ChunkRows before) {
+        SortedMap<Long, Delta> byPlayer = new TreeMap<>();
+        SortedMap<Long, Delta> byHero   = new TreeMap<>();      // account_id << 16 | hero_id
+        add(now, +1, byPlayer, byHero);
+        add(before, -1, byPlayer, byHero);
+        byPlayer.values().removeIf(Delta::isZero);
+        byHero.values().removeIf(Delta::isZero);
+
+        upsert(PLAYER_SQL, byPlayer, false);
+        upsert(HERO_SQL, byHero, true);
+    }
+
+    private static void add(ChunkRows rows, int sign, Map<Long, Delta> byPlayer, Map<Long, Delta> byHero) {
+        if (rows.players.size() == 0) return;
+        Map<Long, Boolean> radiantWin = new HashMap<>(rows.matchCount() * 2);
+        for (int i = 0; i < rows.matchCount(); i++) radiantWin.put(rows.matches.matchId[i], rows.matches.radiantWin[i]);
+
+        PlayerColumns p = rows.players;
+        for (int i = 0; i < p.size(); i++) {
+            if (p.accountId[i] == ANONYMOUS) continue;
+            boolean win = (p.slot[i] < 128) == radiantWin.getOrDefault(p.matchId[i], false);
+            Delta dp = byPlayer.computeIfAbsent(p.accountId[i], k -> new Delta());
+            Delta dh = byHero.computeIfAbsent(p.accountId[i] << 16 | p.heroId[i], k -> new Delta());
+            for (Delta d : List.of(dp, dh)) {
+                d.sum[0] += sign;
+                d.sum[1] += win ? sign : 0;
+                d.sum[2] += sign * p.kills[i];
+                d.sum[3] += sign * p.deaths[i];
+                d.sum[4] += sign * p.assists[i];
+                d.sum[5] += sign * p.gpm[i];
+                d.sum[6] += sign * p.xpm[i];
+                if (sign > 0) {
+                    d.first = Math.min(d.first, p.startTime[i]);
+                    d.last  = Math.max(d.last, p.startTime[i]);
+                }
+            }
+        }
+    }
+
+    private void upsert(String sql, SortedMap<Long, Delta> deltas, boolean hero) {
+        if (deltas.isEmpty()) return;
+        long[] keys = deltas.keySet().stream().mapToLong(Long::longValue).toArray();
+        Delta[] values = deltas.values().toArray(Delta[]::new);
+
+        jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Delta d = values[i];
+                int c = 1;
+                if (hero) {
+                    ps.setLong(c++, keys[i] >>> 16);
+                    ps.setInt(c++, (int) (keys[i] & 0xFFFF));
+                } else {
+                    ps.setLong(c++, keys[i]);
+                }
+                for (long v : d.sum) ps.setLong(c++, v);
+                if (d.first == Long.MAX_VALUE) {
+                    ps.setNull(c++, Types.TIMESTAMP);
+                    ps.setNull(c, Types.TIMESTAMP);
+                } else {
+                    ps.setTimestamp(c++, new Timestamp(d.first * 1000));
+                    ps.setTimestamp(c, new Timestamp(d.last * 1000));
+                }
+            }
+
+            @Override
+            public int getBatchSize() { return keys.length; }
+        });
+    }
+}
@@ -0,0 +1,73 @@
+package com.myorg.dota.service.ingest;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Row-level diff of one fact table: the chunk's fresh rows against the rows
+ * stored for the same matches, matched on the table key
+ * ({@code match_id} + {@link ColumnBuffer#subKey}).
+ * <p>
+ * Both sides are sorted as packed {@code long}s – match ordinal, sub-key and
+ * row index – and merged in one pass, so no per-row key objects are built.
+ */
+final class RowDiff {
+
+    private static final int IDX_BITS = 23, SUB_BITS = 24, ORD_BITS = 16;
+
+    /** Fresh rows to insert or update. */
+    final int[] upsert;
+    int upserts;
+    /** Stored rows whose key is gone from the fresh data. */
+    final int[] delete;
+    int deletes;
+    int unchanged;
+
+    private RowDiff(int fresh, int stored) {
+        upsert = new int[fresh];
+        delete = new int[stored];
+    }
+
+    /**
+     * @param ordinal position of each chunk match id; every row on both sides
+     *                must belong to one of those matches
+     */
+    static RowDiff of(ColumnBuffer fresh, ColumnBuffer stored, Map<Long, Integer> ordinal) {
+        RowDiff d = new RowDiff(fresh.size(), stored.size());
+        long[] a = keys(fresh, ordinal);
+        long[] b = keys(stored, ordinal);
+        int i = 0, j = 0;
+        while (i < a.length || j < b.length) {
+            long ka = i < a.length ? a[i] >>> IDX_BITS : Long.MAX_VALUE;
+            long kb = j < b.length ? b[j] >>> IDX_BITS : Long.MAX_VALUE;
+            if (ka < kb) {
+                d.upsert[d.upserts++] = row(a[i++]);
+            } else if (ka > kb) {
+                d.delete[d.deletes++] = row(b[j++]);
+            } else {
+                int fi = row(a[i++]), sj = row(b[j++]);
+                if (fresh.sameRow(fi, stored, sj)) d.unchanged++;
+                else d.upsert[d.upserts++] = fi;
+            }
+        }
+        return d;
+    }
+
+    private static long[] keys(ColumnBuffer rows, Map<Long, Integer> ordinal) {
+        int n = rows.size();
+        if (n >= 1 << IDX_BITS || ordinal.size() >= 1 << ORD_BITS)
+            throw new IllegalArgumentException("chunk too large to diff: " + n + " rows");
+        long[] k = new long[n];
+        for (int r = 0; r < n; r++) {
+            long ord = ordinal.get(rows.matchIdAt(r));
+            long sub = rows.subKey(r) & ((1L << SUB_BITS) - 1);
+            k[r] = ord << (SUB_BITS + IDX_BITS) | sub << IDX_BITS | r;
+        }
+        Arrays.sort(k);
+        return k;
+    }
+
+    private static int row(long key) {
+        return (int) (key & ((1L << IDX_BITS) - 1));
+    }
+}
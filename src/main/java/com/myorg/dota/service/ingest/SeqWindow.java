@@ -0,0 +1,15 @@
+package com.myorg.dota.service.ingest;
+
+import com.myorg.dota.service.MatchRef;
+
+import java.util.List;
+
+/**
+ * One {@code GetMatchHistoryBySequenceNum} call: {@code requested} matches
+ * starting at {@code startSeq}, of which only {@code refs} are wanted.
+ * {@code refs} are sorted by seqNum and {@code refs.get(0).seqNum() == startSeq}.
+ */
+public record SeqWindow(long startSeq, int requested, List<MatchRef> refs) {
+
+    public long lastSeq() { return refs.get(refs.size() - 1).seqNum(); }
+}
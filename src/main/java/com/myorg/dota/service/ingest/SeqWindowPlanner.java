@@ -0,0 +1,88 @@
+package com.myorg.dota.service.ingest;
+
+import com.myorg.dota.service.MatchRef;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Groups {@link MatchRef}s into {@link SeqWindow}s so that matches close to
+ * each other in sequence-number space are fetched with a single
+ * {@code GetMatchHistoryBySequenceNum} call (up to {@value #MAX_MATCHES}).
+ * <p>
+ * Sequence numbers are not perfectly dense – a span of N seq numbers usually
+ * holds fewer than N matches. The planner keeps a running estimate of
+ * seq numbers per returned match and sizes windows with it: sparse wanted
+ * refs end up in single-match windows, dense ones share one call.
+ */
+@Component
+public class SeqWindowPlanner {
+
+    public static final int MAX_MATCHES = 100;
+
+    /** Smoothed seq numbers per returned match, always >= 1. */
+    private volatile double seqPerMatch = 1.0;
+
+    private final AtomicLong naiveCalls  = new AtomicLong();
+    private final AtomicLong issuedCalls = new AtomicLong();
+    private final AtomicLong wantedFound = new AtomicLong();
+    private final AtomicLong wantedMissed = new AtomicLong();
+
+    public List<SeqWindow> plan(Collection<MatchRef> refs) {
+        Map<Long, MatchRef> unique = new HashMap<>(refs.size() * 2);
+        for (MatchRef r : refs) unique.putIfAbsent(r.matchId(), r);
+
+        List<MatchRef> sorted = new ArrayList<>(unique.values());
+        sorted.sort(Comparator.comparingLong(MatchRef::seqNum));
+        naiveCalls.addAndGet(sorted.size());
+
+        double density = seqPerMatch;
+        List<SeqWindow> out = new ArrayList<>();
+        int i = 0;
+        while (i < sorted.size()) {
+            long start = sorted.get(i).seqNum();
+            int j = i + 1;
+            while (j < sorted.size()
+                   && matchesFor(start, sorted.get(j).seqNum(), density) <= MAX_MATCHES) {
+                j++;
+            }
+            long last = sorted.get(j - 1).seqNum();
+            out.add(new SeqWindow(start, matchesFor(start, last, density),
+                    List.copyOf(sorted.subList(i, j))));
+            i = j;
+        }
+        return out;
+    }
+
+    private static int matchesFor(long startSeq, long lastSeq, double density) {
+        long span = lastSeq - startSeq + 1;
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, (long) Math.ceil(span / density)));
+    }
+
+    /** Counts one GetMatchHistoryBySequenceNum call, whatever it returns. */
+    public void issued() { issuedCalls.incrementAndGet(); }
+
+    /** Feeds back one response so the next plans size windows better. */
+    public void observe(long firstSeq, long lastSeq, int returned) {
+        if (returned < 2) return;
+        double sample = Math.max(1.0, (double) (lastSeq - firstSeq + 1) / returned);
+        seqPerMatch = 0.8 * seqPerMatch + 0.2 * sample;
+    }
+
+    public void found(int n)  { wantedFound.addAndGet(n); }
+    public void missed(int n) { wantedMissed.addAndGet(n); }
+
+    public Map<String, Object> stats() {
+        long naive  = naiveCalls.get();
+        long issued = issuedCalls.get();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("naive_calls",    naive);
+        m.put("issued_calls",   issued);
+        m.put("calls_saved",    naive - issued);
+        m.put("matches_found",  wantedFound.get());
+        m.put("matches_missed", wantedMissed.get());
+        m.put("seq_per_match",  seqPerMatch);
+        return m;
+    }
+}
@@ -0,0 +1,191 @@
+package com.myorg.dota.service.ingest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Token-streaming decoder: one pass over the response with a
+ * {@link JsonParser}, no {@code JsonNode} tree. Field values go straight into
+ * a reused {@link MatchScratch}, so decoding itself allocates next to nothing
+ * per match.
+ * <p>
+ * Steam puts {@code match_id} after {@code players}, which is why rows are
+ * emitted at the end of each match object and not while reading players.
+ */
+public final class StreamingMatchDecoder implements MatchPageDecoder {
+
+    private final JsonFactory factory;
+
+    public StreamingMatchDecoder(JsonFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public DecodedPage decode(byte[] body, LongPredicate wanted, Predicate<MatchScratch> keep, ChunkRows out)
+            throws IOException {
+        try (JsonParser p = factory.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return DecodedPage.EMPTY;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String f = p.currentName();
+                JsonToken t = p.nextToken();
+                if ("result".equals(f) && t == JsonToken.START_OBJECT) return decodeResult(p, wanted, keep, out);
+                p.skipChildren();
+            }
+            return DecodedPage.EMPTY;
+        }
+    }
+
+    private DecodedPage decodeResult(JsonParser p, LongPredicate wanted, Predicate<MatchScratch> keep,
+                                     ChunkRows out) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String f = p.currentName();
+            JsonToken t = p.nextToken();
+            if ("matches".equals(f) && t == JsonToken.START_ARRAY) return decodeMatches(p, wanted, keep, out);
+            p.skipChildren();
+        }
+        return DecodedPage.EMPTY;
+    }
+
+    private DecodedPage decodeMatches(JsonParser p, LongPredicate wanted, Predicate<MatchScratch> keep,
+                                      ChunkRows out) throws IOException {
+        MatchScratch m = new MatchScratch();
+        int returned = 0;
+        long lastSeq = -1;
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            readMatch(p, m);
+            returned++;
+            lastSeq = m.seqNum;
+            if (wanted.test(m.matchId) && keep.test(m)) out.append(m);
+        }
+        return new DecodedPage(returned, lastSeq);
+    }
+
+    private static void readMatch(JsonParser p, MatchScratch m) throws IOException {
+        m.reset();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String f = p.currentName();
+            JsonToken t = p.nextToken();
+            switch (f) {
+                case "match_id"                -> m.matchId = l(p);
+                case "match_seq_num"           -> m.seqNum = l(p);
+                case "start_time"              -> m.startTime = l(p);
+                case "duration"                -> m.duration = i(p);
+                case "pre_game_duration"       -> m.preGame = i(p);
+                case "radiant_win"             -> m.radiantWin = b(p);
+                case "radiant_score"           -> m.radiantScore = i(p);
+                case "dire_score"              -> m.direScore = i(p);
+                case "cluster"                 -> m.cluster = i(p);
+                case "lobby_type"              -> m.lobbyType = i(p);
+                case "game_mode"               -> m.gameMode = i(p);
+                case "engine"                  -> m.engine = i(p);
+                case "tower_status_radiant"    -> m.towerRadiant = i(p);
+                case "tower_status_dire"       -> m.towerDire = i(p);
+                case "barracks_status_radiant" -> m.barracksRadiant = i(p);
+                case "barracks_status_dire"    -> m.barracksDire = i(p);
+                case "players" -> {
+                    if (t != JsonToken.START_ARRAY) { p.skipChildren(); break; }
+                    while (p.nextToken() == JsonToken.START_OBJECT) readPlayer(p, m.nextPlayer());
+                }
+                case "picks_bans" -> {
+                    if (t != JsonToken.START_ARRAY) { p.skipChildren(); break; }
+                    while (p.nextToken() == JsonToken.START_OBJECT) readPick(p, m);
+                }
+                default -> p.skipChildren();
+            }
+        }
+    }
+
+    private static void readPlayer(JsonParser p, MatchScratch.Player pl) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String f = p.currentName();
+            JsonToken t = p.nextToken();
+            switch (f) {
+                case "account_id"    -> pl.accountId = l(p);
+                case "player_slot"   -> pl.slot = i(p);
+                case "hero_id"       -> pl.heroId = i(p);
+                case "kills"         -> pl.kills = i(p);
+                case "deaths"        -> pl.deaths = i(p);
+                case "assists"       -> pl.assists = i(p);
+                case "gold_per_min"  -> pl.gpm = i(p);
+                case "xp_per_min"    -> pl.xpm = i(p);
+                case "hero_damage"   -> pl.heroDamage = i(p);
+                case "tower_damage"  -> pl.towerDamage = i(p);
+                case "hero_healing"  -> pl.heroHealing = i(p);
+                case "net_worth"     -> pl.netWorth = i(p);
+                case "level"         -> pl.level = i(p);
+                case "last_hits"     -> pl.lastHits = i(p);
+                case "denies"        -> pl.denies = i(p);
+                case "leaver_status" -> pl.leaverStatus = i(p);
+                case "item_0" -> pl.items[0] = i(p);
+                case "item_1" -> pl.items[1] = i(p);
+                case "item_2" -> pl.items[2] = i(p);
+                case "item_3" -> pl.items[3] = i(p);
+                case "item_4" -> pl.items[4] = i(p);
+                case "item_5" -> pl.items[5] = i(p);
+                case "item_6" -> pl.items[6] = i(p);
+                case "item_7" -> pl.items[7] = i(p);
+                case "item_8" -> pl.items[8] = i(p);
+                case "item_9" -> pl.items[9] = i(p);
+                case "ability_upgrades" -> {
+                    if (t != JsonToken.START_ARRAY) { p.skipChildren(); break; }
+                    while (p.nextToken() == JsonToken.START_OBJECT) readUpgrade(p, pl);
+                }
+                default -> p.skipChildren();
+            }
+        }
+    }
+
+    private static void readUpgrade(JsonParser p, MatchScratch.Player pl) throws IOException {
+        int ability = 0, time = 0, level = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String f = p.currentName();
+            p.nextToken();
+            switch (f) {
+                case "ability" -> ability = i(p);
+                case "time"    -> time = i(p);
+                case "level"   -> level = i(p);
+                default        -> p.skipChildren();
+            }
+        }
+        pl.addUpgrade(ability, time, level);
+    }
+
+    private static void readPick(JsonParser p, MatchScratch m) throws IOException {
+        int order = 0, team = 0, hero = 0;
+        boolean isPick = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String f = p.currentName();
+            p.nextToken();
+            switch (f) {
+                case "order"   -> order = i(p);
+                case "is_pick" -> isPick = b(p);
+                case "team"    -> team = i(p);
+                case "hero_id" -> hero = i(p);
+                default        -> p.skipChildren();
+            }
+        }
+        m.addPick(order, isPick, team, hero);
+    }
+
+    // scalar readers: a nested structure where a number was expected counts as 0
+
+    private static int i(JsonParser p) throws IOException {
+        if (p.currentToken().isStructStart()) { p.skipChildren(); return 0; }
+        return p.getValueAsInt();
+    }
+
+    private static long l(JsonParser p) throws IOException {
+        if (p.currentToken().isStructStart()) { p.skipChildren(); return 0; }
+        return p.getValueAsLong();
+    }
+
+    private static boolean b(JsonParser p) throws IOException {
+        if (p.currentToken().isStructStart()) { p.skipChildren(); return false; }
+        return p.getValueAsBoolean();
+    }
+}
@@ -0,0 +1,110 @@
+package com.myorg.dota.service.ingest;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/** Column buffer for {@code fact_team_results}. */
+public final class TeamColumns extends ColumnBuffer implements BatchPreparedStatementSetter {
+
+    public static final String UPSERT_SQL = """
+        INSERT INTO fact_team_results
+          (match_id,is_radiant,tower_status,barracks_status,net_worth)
+        VALUES (?,?,?,?,?)
+        ON DUPLICATE KEY UPDATE
+          tower_status    = VALUES(tower_status),
+          barracks_status = VALUES(barracks_status),
+          net_worth       = VALUES(net_worth)""";
+
+    public static final String SELECT_SQL = """
+        SELECT match_id,is_radiant,tower_status,barracks_status,net_worth
+          FROM fact_team_results WHERE match_id IN (:m)""";
+
+    public static final String DELETE_SQL =
+        "DELETE FROM fact_team_results WHERE match_id=? AND is_radiant=?";
+
+    /** Bulk path ({@link BulkLoader}): same columns in MySQL's default TSV layout. */
+    public static final String LOAD_SQL = """
+        LOAD DATA LOCAL INFILE 'fact_team_results.tsv'
+        REPLACE INTO TABLE fact_team_results CHARACTER SET utf8mb4
+          (match_id,is_radiant,tower_status,barracks_status,net_worth)""";
+
+    public long[] matchId;
+    public boolean[] isRadiant;
+    public int[] towerStatus, barracksStatus, netWorth;
+
+    public TeamColumns(int capacity) {
+        super(capacity);
+        grow(capacity());
+    }
+
+    public void add(long mid, boolean radiant, int tower, int barracks, int net) {
+        int i = nextRow();
+        matchId[i]        = mid;
+        isRadiant[i]      = radiant;
+        towerStatus[i]    = tower;
+        barracksStatus[i] = barracks;
+        netWorth[i]       = net;
+    }
+
+    public void addAll(TeamColumns o) {
+        reserve(o.size);
+        int n = o.size, at = size;
+        System.arraycopy(o.matchId, 0, matchId, at, n);
+        System.arraycopy(o.isRadiant, 0, isRadiant, at, n);
+        System.arraycopy(o.towerStatus, 0, towerStatus, at, n);
+        System.arraycopy(o.barracksStatus, 0, barracksStatus, at, n);
+        System.arraycopy(o.netWorth, 0, netWorth, at, n);
+        size += n;
+    }
+
+    @Override
+    protected void grow(int n) {
+        matchId        = matchId == null ? new long[n] : Arrays.copyOf(matchId, n);
+        isRadiant      = isRadiant == null ? new boolean[n] : Arrays.copyOf(isRadiant, n);
+        towerStatus    = towerStatus == null ? new int[n] : Arrays.copyOf(towerStatus, n);
+        barracksStatus = barracksStatus == null ? new int[n] : Arrays.copyOf(barracksStatus, n);
+        netWorth       = netWorth == null ? new int[n] : Arrays.copyOf(netWorth, n);
+    }
+
+    public void writeTsv(TsvBuffer out) {
+        for (int i = 0; i < size; i++) {
+            out.col(matchId[i]).col(isRadiant[i]).col(towerStatus[i])
+               .col(barracksStatus[i]).col(netWorth[i])
+               .endRow();
+        }
+    }
+
+    @Override
+    public void setValues(PreparedStatement ps, int i) throws SQLException {
+        ps.setLong(1, matchId[i]);
+        ps.setBoolean(2, isRadiant[i]);
+        ps.setInt(3, towerStatus[i]);
+        ps.setInt(4, barracksStatus[i]);
+        ps.setInt(5, netWorth[i]);
+    }
+
+    @Override
+    public int getBatchSize() { return size; }
+
+    @Override
+    public long matchIdAt(int i) { return matchId[i]; }
+
+    @Override
+    public int subKey(int i) { return isRadiant[i] ? 1 : 0; }
+
+    @Override
+    public boolean sameRow(int i, ColumnBuffer other, int j) {
+        TeamColumns o = (TeamColumns) other;
+        return towerStatus[i] == o.towerStatus[j] && barracksStatus[i] == o.barracksStatus[j]
+            && netWorth[i] == o.netWorth[j];
+    }
+
+    @Override
+    public void setKey(PreparedStatement ps, int i) throws SQLException {
+        ps.setLong(1, matchId[i]);
+        ps.setBoolean(2, isRadiant[i]);
+    }
+}
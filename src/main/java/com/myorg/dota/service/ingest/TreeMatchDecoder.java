@@ -0,0 +1,87 @@
+package com.myorg.dota.service.ingest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * The original decoding path: materialise the page as a {@link JsonNode}
+ * tree and walk it with {@code path()}. Kept for comparison with
+ * {@link StreamingMatchDecoder} ({@code steam.ingest.decoder=tree}).
+ */
+public final class TreeMatchDecoder implements MatchPageDecoder {
+
+    private final ObjectMapper om;
+
+    public TreeMatchDecoder(ObjectMapper om) {
+        this.om = om;
+    }
+
+    @Override
+    public DecodedPage decode(byte[] body, LongPredicate wanted, Predicate<MatchScratch> keep, ChunkRows out)
+            throws IOException {
+        JsonNode arr = om.readTree(body).path("result").path("matches");
+        if (!arr.isArray() || arr.isEmpty()) return DecodedPage.EMPTY;
+
+        MatchScratch m = new MatchScratch();
+        long lastSeq = -1;
+        for (JsonNode match : arr) {
+            lastSeq = match.path("match_seq_num").asLong();
+            if (!wanted.test(match.path("match_id").asLong())) continue;
+            fill(match, m);
+            if (keep.test(m)) out.append(m);
+        }
+        return new DecodedPage(arr.size(), lastSeq);
+    }
+
+    static void fill(JsonNode match, MatchScratch m) {
+        m.reset();
+        m.matchId      = match.path("match_id").asLong();
+        m.seqNum       = match.path("match_seq_num").asLong();
+        m.startTime    = match.path("start_time").asLong();
+        m.duration     = match.path("duration").asInt();
+        m.preGame      = match.path("pre_game_duration").asInt();
+        m.radiantWin   = match.path("radiant_win").asBoolean();
+        m.radiantScore = match.path("radiant_score").asInt();
+        m.direScore    = match.path("dire_score").asInt();
+        m.cluster      = match.path("cluster").asInt();
+        m.lobbyType    = match.path("lobby_type").asInt();
+        m.gameMode     = match.path("game_mode").asInt();
+        m.engine       = match.path("engine").asInt();
+        m.towerRadiant    = match.path("tower_status_radiant").asInt();
+        m.towerDire       = match.path("tower_status_dire").asInt();
+        m.barracksRadiant = match.path("barracks_status_radiant").asInt();
+        m.barracksDire    = match.path("barracks_status_dire").asInt();
+
+        for (JsonNode pl : match.path("players")) {
+            MatchScratch.Player p = m.nextPlayer();
+            p.slot         = pl.path("player_slot").asInt();
+            p.accountId    = pl.path("account_id").asLong();
+            p.heroId       = pl.path("hero_id").asInt();
+            p.kills        = pl.path("kills").asInt();
+            p.deaths       = pl.path("deaths").asInt();
+            p.assists      = pl.path("assists").asInt();
+            p.gpm          = pl.path("gold_per_min").asInt();
+            p.xpm          = pl.path("xp_per_min").asInt();
+            p.heroDamage   = pl.path("hero_damage").asInt();
+            p.towerDamage  = pl.path("tower_damage").asInt();
+            p.heroHealing  = pl.path("hero_healing").asInt();
+            p.netWorth     = pl.path("net_worth").asInt();
+            p.level        = pl.path("level").asInt();
+            p.lastHits     = pl.path("last_hits").asInt();
+            p.denies       = pl.path("denies").asInt();
+            p.leaverStatus = pl.path("leaver_status").asInt();
+            for (int s = 0; s <= 9; s++)
+                p.items[s] = pl.path("item_" + s).asInt(0);
+            for (JsonNode up : pl.path("ability_upgrades"))
+                p.addUpgrade(up.path("ability").asInt(), up.path("time").asInt(), up.path("level").asInt());
+        }
+
+        for (JsonNode pb : match.path("picks_bans"))
+            m.addPick(pb.path("order").asInt(), pb.path("is_pick").asBoolean(),
+                    pb.path("team").asInt(), pb.path("hero_id").asInt());
+    }
+}
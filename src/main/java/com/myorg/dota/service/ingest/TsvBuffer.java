@@ -0,0 +1,132 @@
+package com.myorg.dota.service.ingest;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Reusable in-memory TSV body for {@code LOAD DATA LOCAL INFILE}, in MySQL's
+ * default format: tab-separated fields, {@code \n} rows, backslash escapes.
+ * Numbers are written digit by digit, so filling it allocates nothing.
+ */
+public final class TsvBuffer {
+
+    private byte[] buf;
+    private int len;
+    private boolean rowStart = true;
+
+    public TsvBuffer(int capacity) {
+        buf = new byte[Math.max(capacity, 1024)];
+    }
+
+    public void reset() {
+        len = 0;
+        rowStart = true;
+    }
+
+    public int length() { return len; }
+
+    public InputStream stream() {
+        return new ByteArrayInputStream(buf, 0, len);
+    }
+
+    public TsvBuffer col(long v) {
+        sep();
+        if (v < 0) {
+            if (v == Long.MIN_VALUE) return raw(Long.toString(v));
+            put((byte) '-');
+            v = -v;
+        }
+        ensure(20);
+        int start = len;
+        do {
+            buf[len++] = (byte) ('0' + (v % 10));
+            v /= 10;
+        } while (v != 0);
+        for (int i = start, j = len - 1; i < j; i++, j--) {
+            byte t = buf[i]; buf[i] = buf[j]; buf[j] = t;
+        }
+        return this;
+    }
+
+    public TsvBuffer col(int v) { return col((long) v); }
+
+    public TsvBuffer col(boolean v) {
+        sep();
+        put(v ? (byte) '1' : (byte) '0');
+        return this;
+    }
+
+    /** DATETIME column from epoch seconds, as {@code yyyy-MM-dd HH:mm:ss} UTC. */
+    public TsvBuffer dateTime(long epochSec) {
+        LocalDateTime t = LocalDateTime.ofEpochSecond(epochSec, 0, ZoneOffset.UTC);
+        sep();
+        digits(t.getYear(), 4);       put((byte) '-');
+        digits(t.getMonthValue(), 2); put((byte) '-');
+        digits(t.getDayOfMonth(), 2); put((byte) ' ');
+        digits(t.getHour(), 2);       put((byte) ':');
+        digits(t.getMinute(), 2);     put((byte) ':');
+        digits(t.getSecond(), 2);
+        return this;
+    }
+
+    public TsvBuffer col(String s) {
+        sep();
+        if (s == null) return rawNoSep("\\N");
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        ensure(b.length * 2);
+        for (byte c : b) {
+            switch (c) {
+                case '\t' -> { buf[len++] = '\\'; buf[len++] = 't'; }
+                case '\n' -> { buf[len++] = '\\'; buf[len++] = 'n'; }
+                case '\\' -> { buf[len++] = '\\'; buf[len++] = '\\'; }
+                default   -> buf[len++] = c;
+            }
+        }
+        return this;
+    }
+
+    public void endRow() {
+        put((byte) '\n');
+        rowStart = true;
+    }
+
+    private void sep() {
+        if (!rowStart) put((byte) '\t');
+        rowStart = false;
+    }
+
+    private TsvBuffer raw(String s) {
+        return rawNoSep(s);
+    }
+
+    private TsvBuffer rawNoSep(String s) {
+        byte[] b = s.getBytes(StandardCharsets.US_ASCII);
+        ensure(b.length);
+        System.arraycopy(b, 0, buf, len, b.length);
+        len += b.length;
+        return this;
+    }
+
+    private void digits(int v, int width) {
+        ensure(width);
+        for (int i = width - 1; i >= 0; i--) {
+            buf[len + i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        len += width;
+    }
+
+    private void put(byte b) {
+        ensure(1);
+        buf[len++] = b;
+    }
+
+    private void ensure(int extra) {
+        if (len + extra > buf.length)
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+    }
+}
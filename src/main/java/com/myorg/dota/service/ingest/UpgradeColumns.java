@@ -0,0 +1,126 @@
+package com.myorg.dota.service.ingest;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Column buffer for {@code fact_ability_upgrades}. The numeric Steam ability
+ * id is stored as is – a key into {@code dim_ability_keys}, see
+ * {@link AbilityDictionary}.
+ */
+public final class UpgradeColumns extends ColumnBuffer implements BatchPreparedStatementSetter {
+
+    public static final String UPSERT_SQL = """
+        INSERT INTO fact_ability_upgrades
+          (match_id,hero_id,account_id,sequence,
+           ability_id,game_time_s,level_granted)
+        VALUES (?,?,?,?,?,?,?)
+        ON DUPLICATE KEY UPDATE
+          account_id    = VALUES(account_id),
+          ability_id    = VALUES(ability_id),
+          game_time_s   = VALUES(game_time_s),
+          level_granted = VALUES(level_granted)""";
+
+    public static final String SELECT_SQL = """
+        SELECT match_id,hero_id,account_id,sequence,
+               ability_id,game_time_s,level_granted
+          FROM fact_ability_upgrades WHERE match_id IN (:m)""";
+
+    public static final String DELETE_SQL =
+        "DELETE FROM fact_ability_upgrades WHERE match_id=? AND hero_id=? AND sequence=?";
+
+    /** Bulk path ({@link BulkLoader}): same columns in MySQL's default TSV layout. */
+    public static final String LOAD_SQL = """
+        LOAD DATA LOCAL INFILE 'fact_ability_upgrades.tsv'
+        REPLACE INTO TABLE fact_ability_upgrades CHARACTER SET utf8mb4
+          (match_id,hero_id,account_id,sequence,
+           ability_id,game_time_s,level_granted)""";
+
+    public long[] matchId, accountId;
+    public int[] heroId, sequence, abilityId, gameTime, levelGranted;
+
+    public UpgradeColumns(int capacity) {
+        super(capacity);
+        grow(capacity());
+    }
+
+    public void add(long mid, int hero, long account, int seq, int ability, int time, int level) {
+        int i = nextRow();
+        matchId[i]      = mid;
+        heroId[i]       = hero;
+        accountId[i]    = account;
+        sequence[i]     = seq;
+        abilityId[i]    = ability;
+        gameTime[i]     = time;
+        levelGranted[i] = level;
+    }
+
+    public void addAll(UpgradeColumns o) {
+        reserve(o.size);
+        int n = o.size, at = size;
+        System.arraycopy(o.matchId, 0, matchId, at, n);
+        System.arraycopy(o.heroId, 0, heroId, at, n);
+        System.arraycopy(o.accountId, 0, accountId, at, n);
+        System.arraycopy(o.sequence, 0, sequence, at, n);
+        System.arraycopy(o.abilityId, 0, abilityId, at, n);
+        System.arraycopy(o.gameTime, 0, gameTime, at, n);
+        System.arraycopy(o.levelGranted, 0, levelGranted, at, n);
+        size += n;
+    }
+
+    @Override
+    protected void grow(int n) {
+        matchId      = matchId == null ? new long[n] : Arrays.copyOf(matchId, n);
+        accountId    = accountId == null ? new long[n] : Arrays.copyOf(accountId, n);
+        heroId       = heroId == null ? new int[n] : Arrays.copyOf(heroId, n);
+        sequence     = sequence == null ? new int[n] : Arrays.copyOf(sequence, n);
+        abilityId    = abilityId == null ? new int[n] : Arrays.copyOf(abilityId, n);
+        gameTime     = gameTime == null ? new int[n] : Arrays.copyOf(gameTime, n);
+        levelGranted = levelGranted == null ? new int[n] : Arrays.copyOf(levelGranted, n);
+    }
+
+    public void writeTsv(TsvBuffer out) {
+        for (int i = 0; i < size; i++) {
+            out.col(matchId[i]).col(heroId[i]).col(accountId[i]).col(sequence[i])
+               .col(abilityId[i]).col(gameTime[i]).col(levelGranted[i])
+               .endRow();
+        }
+    }
+
+    @Override
+    public void setValues(PreparedStatement ps, int i) throws SQLException {
+        ps.setLong(1, matchId[i]);
+        ps.setInt(2, heroId[i]);
+        ps.setLong(3, accountId[i]);
+        ps.setInt(4, sequence[i]);
+        ps.setInt(5, abilityId[i]);
+        ps.setInt(6, gameTime[i]);
+        ps.setInt(7, levelGranted[i]);
+    }
+
+    @Override
+    public int getBatchSize() { return size; }
+
+    @Override
+    public long matchIdAt(int i) { return matchId[i]; }
+
+    @Override
+    public int subKey(int i) { return heroId[i] << 8 | sequence[i]; }
+
+    @Override
+    public boolean sameRow(int i, ColumnBuffer other, int j) {
+        UpgradeColumns o = (UpgradeColumns) other;
+        return accountId[i] == o.accountId[j] && abilityId[i] == o.abilityId[j]
+            && gameTime[i] == o.gameTime[j] && levelGranted[i] == o.levelGranted[j];
+    }
+
+    @Override
+    public void setKey(PreparedStatement ps, int i) throws SQLException {
+        ps.setLong(1, matchId[i]);
+        ps.setInt(2, heroId[i]);
+        ps.setInt(3, sequence[i]);
+    }
+}
@@ -0,0 +1,91 @@
+package com.myorg.dota.service.ingest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * This instance's name in the shared work tables and the leases it holds there.
+ * <p>
+ * Rows are claimed with {@code SELECT … FOR UPDATE SKIP LOCKED}, which only
+ * keeps two nodes from claiming the same row at once; ownership after the claim
+ * is {@code lease_owner} / {@code lease_until}. While work runs,
+ * {@link #heartbeat} keeps pushing {@code lease_until} of every row this node
+ * owns. A node that dies stops heartbeating and other nodes take its rows once
+ * the lease lapses; a node that restarts under the same {@code steam.work.node-id}
+ * takes them back at once. All lease times are the database's clock.
+ */
+@Component
+public class WorkLeases {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkLeases.class);
+
+    private static final List<String> TABLES = List.of("tracked_players", "ingest_work");
+
+    private final JdbcTemplate jdbc;
+    private final String nodeId;
+    private final long leaseSeconds;
+
+    public WorkLeases(JdbcTemplate jdbc,
+                      @Value("${steam.work.node-id:}") String nodeId,
+                      @Value("${steam.work.lease:PT2M}") Duration lease) {
+        this.jdbc         = jdbc;
+        this.nodeId       = nodeId.isBlank() ? hostName() : nodeId;
+        this.leaseSeconds = Math.max(10, lease.toSeconds());
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /** SQL for the end of a lease taken now; binds {@code :leaseSeconds}. */
+    public String leaseUntilSql() {
+        return "NOW(3) + INTERVAL :leaseSeconds SECOND";
+    }
+
+    public long leaseSeconds() {
+        return leaseSeconds;
+    }
+
+    /** Whatever this node id still holds belongs to a previous process of it. */
+    @PostConstruct
+    void recover() {
+        int n = releaseAll();
+        if (n > 0) log.info("Released {} leases of the previous {} process", n, nodeId);
+    }
+
+    @Scheduled(fixedDelayString = "${steam.work.heartbeat:PT30S}")
+    public void heartbeat() {
+        for (String table : TABLES)
+            jdbc.update("UPDATE " + table + " SET lease_until = NOW(3) + INTERVAL ? SECOND WHERE lease_owner = ?",
+                    leaseSeconds, nodeId);
+    }
+
+    /** On shutdown unfinished work goes back to the other nodes right away. */
+    @PreDestroy
+    int releaseAll() {
+        int n = 0;
+        for (String table : TABLES)
+            n += jdbc.update("UPDATE " + table + " SET lease_owner = NULL, lease_until = NULL WHERE lease_owner = ?",
+                    nodeId);
+        return n;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node-" + ProcessHandle.current().pid();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.myorg.dota.service.steam;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myorg.dota.dto.PlayerProfileDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * {@link SteamClient} over HTTP – the only way out to
+ * {@code api.steampowered.com}: every call waits for
+ * {@link SteamRateController} in its {@link SteamLane}, goes out with the
+ * {@link SteamKey} it was given and reports back how Steam answered that key.
+ * A throttled or refused (403) call is retried up to 5 times with jittered
+ * back-off – a refused one with another key, when there is one; any other
+ * failure is logged and returned as {@code null} / empty.
+ */
+@Component
+@ConditionalOnProperty(name = "steam.client", havingValue = "http", matchIfMissing = true)
+public class SteamApi implements SteamClient {
+
+    private static final Logger log = LoggerFactory.getLogger(SteamApi.class);
+
+    private static final String BASE = "https://api.steampowered.com";
+
+    private final RestTemplate rest = new RestTemplate();
+    private final ObjectMapper om   = new ObjectMapper();
+    private final SteamRateController rate;
+
+    public SteamApi(SteamRateController rate) {
+        this.rate = rate;
+    }
+
+    @Override
+    public JsonNode matchHistory(SteamLane lane, long accountId, int requested, long startAtMatchId) {
+        UriComponentsBuilder uri = UriComponentsBuilder
+                .fromHttpUrl(BASE + "/IDOTA2Match_570/GetMatchHistory/V001/")
+                .queryParam("account_id", accountId)
+                .queryParam("matches_requested", requested);
+        if (startAtMatchId > 0) uri.queryParam("start_at_match_id", startAtMatchId);
+        return json(get(lane, uri.toUriString(), "history " + accountId));
+    }
+
+    /** GetMatchHistory without an account. */
+    @Override
+    public long latestMatchSeq(SteamLane lane) {
+        String url = UriComponentsBuilder
+                .fromHttpUrl(BASE + "/IDOTA2Match_570/GetMatchHistory/V001/")
+                .queryParam("matches_requested", 1)
+                .toUriString();
+        JsonNode m = json(get(lane, url, "latest match")).path("result").path("matches").path(0);
+        return m.isMissingNode() ? -1 : m.path("match_seq_num").asLong(-1);
+    }
+
+    @Override
+    public byte[] matchesBySeq(SteamLane lane, long startSeq, int requested) {
+        String url = UriComponentsBuilder
+                .fromHttpUrl(BASE + "/IDOTA2Match_570/GetMatchHistoryBySequenceNum/V001/")
+                .queryParam("start_at_match_seq_num", startSeq)
+                .queryParam("matches_requested", requested)
+                .toUriString();
+        return get(lane, url, "seq " + startSeq + " (+" + requested + ")");
+    }
+
+    /** 100 ids per call. */
+    @Override
+    public Map<Long, PlayerProfileDto> playerSummaries(Collection<Long> accountIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(accountIds));
+        Map<Long, PlayerProfileDto> result = new HashMap<>();
+
+        for (int i = 0; i < ids.size(); i += 100) {
+            String steamIds = ids.subList(i, Math.min(i + 100, ids.size())).stream()
+                    .map(id -> String.valueOf(id + STEAMID64_OFFSET))
+                    .collect(Collectors.joining(","));
+            String url = BASE + "/ISteamUser/GetPlayerSummaries/v2/?steamids=" + steamIds;
+
+            JsonNode players = json(get(SteamLane.INTERACTIVE, url, "player summaries")).path("response").path("players");
+            for (JsonNode p : players) {
+                long acctId = p.path("steamid").asLong() - STEAMID64_OFFSET;
+                result.put(acctId, new PlayerProfileDto(
+                        p.path("personaname").asText("Unknown"),
+                        p.path("avatarfull").asText("")));
+            }
+        }
+        return result;
+    }
+
+    /** {@code url} already has a query; the key is appended per attempt. */
+    private byte[] get(SteamLane lane, String url, String what) {
+        long sleepMs = 200;
+        for (int attempt = 1; attempt <= 5; attempt++) {      // 5 спроб максимум
+            SteamKey key = rate.acquire(lane);
+            try {
+                byte[] body = rest.getForObject(url + "&key=" + key.value(), byte[].class);
+                rate.onSuccess(key);
+                if (body == null) log.warn("Empty response for {}", what);
+                return body;
+
+            } catch (HttpClientErrorException.TooManyRequests
+                     | HttpServerErrorException.ServiceUnavailable e) {
+                rate.onThrottled(key);
+                log.warn("{} on {} (attempt {}) – wait {} ms", e.getStatusCode().value(), key.label(), attempt, sleepMs);
+                sleep(sleepMs + ThreadLocalRandom.current().nextInt(400));
+                sleepMs *= 2;
+
+            } catch (HttpClientErrorException.Forbidden e) {  // ключ відхилено – наступна спроба з іншим
+                rate.onRejected(key);
+                if (rate.keyCount() == 1) return null;
+                log.warn("403 on {} (attempt {}) – wait {} ms", key.label(), attempt, sleepMs);
+                sleep(sleepMs + ThreadLocalRandom.current().nextInt(400));
+                sleepMs *= 2;
+
+            } catch (RestClientException e) {
+                log.error("Steam API error: {}", what, e);
+                return null;
+            }
+        }
+        log.error("‼️  {} skipped – 5×429/403", what);
+        return null;
+    }
+
+    private JsonNode json(byte[] body) {
+        if (body == null) return om.missingNode();
+        try {
+            return om.readTree(body);
+        } catch (IOException e) {
+            log.error("Malformed Steam response", e);
+            return om.missingNode();
+        }
+    }
+
+    private static void sleep(long ms) {
+        try { Thread.sleep(ms); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+}
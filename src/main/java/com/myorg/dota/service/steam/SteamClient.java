@@ -0,0 +1,36 @@
+package com.myorg.dota.service.steam;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.myorg.dota.dto.PlayerProfileDto;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The Steam Web API calls the app makes. {@code steam.client} picks the
+ * implementation: {@code http} ({@link SteamApi}, default) or
+ * {@code simulator} ({@code SteamSimulator} in the bench source set, synthetic
+ * data, no network).
+ * <p>
+ * Failures never throw: a failed call is a missing node, {@code null} or an
+ * empty map, as documented per method.
+ */
+public interface SteamClient {
+
+    long STEAMID64_OFFSET = 76561197960265728L;
+
+    /**
+     * IDOTA2Match_570/GetMatchHistory of one account, newest first;
+     * {@code startAtMatchId} ≤ 0 starts at the newest match. Missing node on failure.
+     */
+    JsonNode matchHistory(SteamLane lane, long accountId, int requested, long startAtMatchId);
+
+    /** match_seq_num of the newest public match, or -1. */
+    long latestMatchSeq(SteamLane lane);
+
+    /** IDOTA2Match_570/GetMatchHistoryBySequenceNum, raw body; {@code null} on failure. */
+    byte[] matchesBySeq(SteamLane lane, long startSeq, int requested);
+
+    /** ISteamUser/GetPlayerSummaries for Steam32 account ids. Unknown ids are absent. Always interactive. */
+    Map<Long, PlayerProfileDto> playerSummaries(Collection<Long> accountIds);
+}
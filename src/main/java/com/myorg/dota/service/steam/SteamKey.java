@@ -0,0 +1,66 @@
+package com.myorg.dota.service.steam;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One Steam Web API key of the pool and its own budget: AIMD rate, next free
+ * permit, 429 history and quarantine. Handed out by
+ * {@link SteamRateController#acquire}; the caller puts {@link #value()} in the
+ * request and reports the outcome back for the same key.
+ * <p>
+ * All state is guarded by the owning {@link SteamRateController}.
+ */
+public final class SteamKey {
+
+    private final String value;
+    private final String label;
+
+    double rate;
+    long nextFreeNanos;
+    long lastCutNanos;
+    long quarantinedUntilNanos;
+    int strikes;                        // 429/403 in a row
+    double throttleEwma;
+
+    long requests, throttled, rejected, cuts, quarantines;
+
+    SteamKey(int index, String value, double rate, long now, long cutCooldownNanos) {
+        this.value         = value;
+        this.label         = "key" + index + (value.length() > 4 ? "…" + value.substring(value.length() - 4) : "");
+        this.rate          = rate;
+        this.nextFreeNanos = now;
+        this.lastCutNanos  = now - cutCooldownNanos;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    /** Safe to log and show: index and the last four characters. */
+    public String label() {
+        return label;
+    }
+
+    boolean quarantined(long now) {
+        return quarantinedUntilNanos - now > 0;
+    }
+
+    /** When this key can send next. */
+    long availableAt(long now) {
+        return quarantined(now) ? quarantinedUntilNanos : nextFreeNanos;
+    }
+
+    Map<String, Object> stats(long now) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("rate_rps", Math.round(rate * 1000) / 1000.0);
+        m.put("requests", requests);
+        m.put("throttled", throttled);
+        m.put("rejected", rejected);
+        m.put("recent_429_ratio", Math.round(throttleEwma * 1000) / 1000.0);
+        m.put("rate_cuts", cuts);
+        m.put("quarantines", quarantines);
+        m.put("quarantined_for_s", quarantined(now) ? (quarantinedUntilNanos - now) / 1_000_000_000L : 0);
+        return m;
+    }
+}
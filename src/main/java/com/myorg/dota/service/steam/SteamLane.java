@@ -0,0 +1,16 @@
+package com.myorg.dota.service.steam;
+
+/**
+ * Priority class of a Steam call, highest first. See {@link SteamRateController}.
+ */
+public enum SteamLane {
+
+    /** A user is waiting: refresh in PlayerView, profiles, teammates. */
+    INTERACTIVE,
+
+    /** {@code IngestScheduler} polls of tracked players. */
+    SCHEDULED,
+
+    /** Full-history ingests. */
+    BACKFILL
+}
@@ -0,0 +1,358 @@
+package com.myorg.dota.service.steam;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Request budget of every outbound Steam Web API call, one AIMD-controlled
+ * rate per API key of the pool ({@code steam.api.keys}, else the single
+ * {@code steam.api.key}).
+ * <p>
+ * Each successful response raises its key's rate additively, by
+ * {@code increase-rps} per second of clean traffic. A throttling response
+ * (429 / 503) multiplies it by {@code decrease-factor}. Only one cut is made
+ * per key per {@link #CUT_COOLDOWN_NANOS}, because a burst of in-flight calls
+ * rejected together is a single signal. Each key's rate stays within
+ * {@code [min-rps, max-rps]} and starts at {@code steam.ingest.rps}, so the
+ * total grows with the number of keys. A key answered 429 or 403
+ * {@code steam.rate.key.quarantine-after} times in a row sits out
+ * {@code steam.rate.key.quarantine}.
+ * <p>
+ * Every permit goes to the key that can send soonest – the one with the most
+ * budget left – and the caller gets that {@link SteamKey} to send with and
+ * report on.
+ * <p>
+ * Callers queue per {@link SteamLane} and a single dispatcher hands out the
+ * permits. A waiting higher lane goes first, so an interactive call only waits
+ * for the next permit, not behind a backfill's queue. Starvation is bounded
+ * by {@code steam.rate.lane.<lane>.min-share}: while a lane is backlogged it
+ * earns that fraction of a permit per grant, and a lane holding a whole
+ * permit of credit is served next regardless of priority. The dispatcher
+ * thread lives as long as the bean and is stopped with the context.
+ */
+@Component
+public class SteamRateController {
+
+    private static final Logger log = LoggerFactory.getLogger(SteamRateController.class);
+
+    private static final long CUT_COOLDOWN_NANOS = 2_000_000_000L;
+    private static final double EWMA_ALPHA = 0.05;
+    private static final double MAX_CREDIT = 2;
+
+    /** Upper bounds of the wait-time histogram buckets, ms; the last bucket is open. */
+    private static final long[] WAIT_BUCKETS_MS = { 10, 100, 500, 1_000, 5_000, 30_000 };
+
+    private static final SteamLane[] LANES = SteamLane.values();
+
+    private final List<SteamKey> keys = new ArrayList<>();    // state guarded by this
+    private final double minRate, maxRate, increase, decrease;
+    private final int quarantineAfter;
+    private final long quarantineNanos;
+
+    private double throttleEwma;              // guarded by this
+
+    private final LongAdder requests  = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder cuts      = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    // ---------- lanes ----------
+
+    private static final class Waiter {
+        final long enqueuedNanos = System.nanoTime();
+        final CountDownLatch granted = new CountDownLatch(1);
+        volatile SteamKey key;
+    }
+
+    private final ReentrantLock lanesLock = new ReentrantLock();
+    private final Condition backlogged = lanesLock.newCondition();
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<Waiter>[] queues = new ArrayDeque[LANES.length];   // guarded by lanesLock
+    private final double[] minShare = new double[LANES.length];
+    private final double[] credit   = new double[LANES.length];                // guarded by lanesLock
+
+    private final LongAdder[] laneGranted  = new LongAdder[LANES.length];
+    private final LongAdder[] laneWaitNanos = new LongAdder[LANES.length];
+    private final LongAdder[][] laneWaitHist = new LongAdder[LANES.length][WAIT_BUCKETS_MS.length + 1];
+
+    private final Thread dispatcher;
+
+    public SteamRateController(@Value("${steam.ingest.rps:1.2}") double initialRate,
+                               @Value("${steam.rate.min-rps:0.5}") double minRate,
+                               @Value("${steam.rate.max-rps:8}") double maxRate,
+                               @Value("${steam.rate.increase-rps:0.1}") double increase,
+                               @Value("${steam.rate.decrease-factor:0.5}") double decrease,
+                               @Value("${steam.rate.lane.interactive.min-share:0.2}") double interactiveShare,
+                               @Value("${steam.rate.lane.scheduled.min-share:0.2}") double scheduledShare,
+                               @Value("${steam.rate.lane.backfill.min-share:0.1}") double backfillShare,
+                               @Value("${steam.api.keys:${steam.api.key:}}") List<String> apiKeys,
+                               @Value("${steam.rate.key.quarantine-after:3}") int quarantineAfter,
+                               @Value("${steam.rate.key.quarantine:PT5M}") Duration quarantine) {
+        this.minRate  = minRate;
+        this.maxRate  = Math.max(minRate, maxRate);
+        this.increase = increase;
+        this.decrease = decrease;
+        this.quarantineAfter = Math.max(1, quarantineAfter);
+        this.quarantineNanos = quarantine.toNanos();
+
+        long now = System.nanoTime();
+        for (String k : apiKeys)
+            if (!k.isBlank()) keys.add(new SteamKey(keys.size(), k.trim(), clamp(initialRate), now, CUT_COOLDOWN_NANOS));
+        if (keys.isEmpty()) keys.add(new SteamKey(0, "", clamp(initialRate), now, CUT_COOLDOWN_NANOS));   // simulator
+        log.info("Steam key pool: {} keys at {} req/s each", keys.size(), clamp(initialRate));
+
+        minShare[SteamLane.INTERACTIVE.ordinal()] = interactiveShare;
+        minShare[SteamLane.SCHEDULED.ordinal()]   = scheduledShare;
+        minShare[SteamLane.BACKFILL.ordinal()]    = backfillShare;
+        for (int l = 0; l < LANES.length; l++) {
+            queues[l]        = new ArrayDeque<>();
+            laneGranted[l]   = new LongAdder();
+            laneWaitNanos[l] = new LongAdder();
+            for (int b = 0; b <= WAIT_BUCKETS_MS.length; b++) laneWaitHist[l][b] = new LongAdder();
+        }
+        dispatcher = Thread.ofPlatform().name("steam-rate-dispatcher").daemon().start(this::dispatch);
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.interrupt();
+        try {
+            dispatcher.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Blocks until the next call of {@code lane} may go out and returns the key to send it with. */
+    public SteamKey acquire(SteamLane lane) {
+        Waiter w = new Waiter();
+        lanesLock.lock();
+        try {
+            queues[lane.ordinal()].addLast(w);
+            backlogged.signal();
+        } finally {
+            lanesLock.unlock();
+        }
+
+        boolean interrupted = false;
+        while (true) {                                           // uninterruptible, like RateLimiter.acquire
+            try {
+                w.granted.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        long nanos = System.nanoTime() - w.enqueuedNanos;
+        requests.increment();
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+        laneGranted[lane.ordinal()].increment();
+        laneWaitNanos[lane.ordinal()].add(nanos);
+        laneWaitHist[lane.ordinal()][bucket(nanos / 1_000_000)].increment();
+        return w.key;
+    }
+
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            lanesLock.lock();
+            try {
+                while (totalQueued() == 0) backlogged.await();
+            } catch (InterruptedException e) {
+                return;                                          // stop()
+            } finally {
+                lanesLock.unlock();
+            }
+
+            SteamKey key = reserve();                            // the AIMD-paced permit of some key
+            if (key == null) return;
+
+            lanesLock.lock();
+            try {
+                Waiter w = next();
+                if (w != null) {
+                    w.key = key;
+                    w.granted.countDown();
+                }
+            } finally {
+                lanesLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Waits for the key that can send soonest, skipping quarantined ones, and
+     * takes its permit; null once the dispatcher is interrupted.
+     */
+    private SteamKey reserve() {
+        while (!Thread.currentThread().isInterrupted()) {
+            long now = System.nanoTime(), wait;
+            synchronized (this) {
+                SteamKey best = keys.get(0);
+                for (SteamKey k : keys) if (k.availableAt(now) - best.availableAt(now) < 0) best = k;
+                wait = best.availableAt(now) - now;
+                if (wait <= 0) {
+                    best.nextFreeNanos = Math.max(now, best.nextFreeNanos) + (long) (1e9 / best.rate);
+                    best.requests++;
+                    return best;
+                }
+            }
+            LockSupport.parkNanos(wait);
+        }
+        return null;
+    }
+
+    /** Lane with a whole permit of credit first (most credit wins), else the highest backlogged lane. */
+    private Waiter next() {
+        int pick = -1;
+        for (int l = 0; l < LANES.length; l++) {
+            if (queues[l].isEmpty()) continue;
+            credit[l] = Math.min(MAX_CREDIT, credit[l] + minShare[l]);
+            if (credit[l] >= 1 && (pick < 0 || credit[l] > credit[pick])) pick = l;
+        }
+        if (pick < 0) {
+            for (int l = 0; l < LANES.length && pick < 0; l++) if (!queues[l].isEmpty()) pick = l;
+            if (pick < 0) return null;
+        }
+        credit[pick] = Math.max(0, credit[pick] - 1);
+        return queues[pick].pollFirst();
+    }
+
+    private int totalQueued() {
+        int n = 0;
+        for (ArrayDeque<Waiter> q : queues) n += q.size();
+        return n;
+    }
+
+    private static int bucket(long waitMs) {
+        int b = 0;
+        while (b < WAIT_BUCKETS_MS.length && waitMs > WAIT_BUCKETS_MS[b]) b++;
+        return b;
+    }
+
+    public synchronized void onSuccess(SteamKey key) {
+        throttleEwma     *= 1 - EWMA_ALPHA;
+        key.throttleEwma *= 1 - EWMA_ALPHA;
+        key.strikes = 0;
+        key.rate = clamp(key.rate + increase / key.rate);
+    }
+
+    /** 429 / 503: the key's rate is cut. */
+    public synchronized void onThrottled(SteamKey key) {
+        throttled.increment();
+        key.throttled++;
+        throttleEwma     = throttleEwma * (1 - EWMA_ALPHA) + EWMA_ALPHA;
+        key.throttleEwma = key.throttleEwma * (1 - EWMA_ALPHA) + EWMA_ALPHA;
+        long now = System.nanoTime();
+        strike(key, now);
+        if (now - key.lastCutNanos < CUT_COOLDOWN_NANOS) return;
+        key.lastCutNanos = now;
+        key.cuts++;
+        cuts.increment();
+        double before = key.rate;
+        key.rate = clamp(key.rate * decrease);
+        log.info("Steam throttled {} – rate {} → {} req/s", key.label(), round(before), round(key.rate));
+    }
+
+    /** 403: the key is refused (revoked, or over its daily allowance); only counts towards quarantine. */
+    public synchronized void onRejected(SteamKey key) {
+        key.rejected++;
+        strike(key, System.nanoTime());
+    }
+
+    private void strike(SteamKey key, long now) {
+        if (++key.strikes < quarantineAfter || key.quarantined(now)) return;
+        key.strikes = 0;
+        key.quarantines++;
+        key.quarantinedUntilNanos = now + quarantineNanos;
+        log.warn("‼ Steam {} quarantined for {} s after {} refusals in a row",
+                key.label(), quarantineNanos / 1_000_000_000L, quarantineAfter);
+    }
+
+    public int keyCount() {
+        return keys.size();
+    }
+
+    /** Sum over the keys not in quarantine. */
+    public synchronized double currentRate() {
+        long now = System.nanoTime();
+        return keys.stream().filter(k -> !k.quarantined(now)).mapToDouble(k -> k.rate).sum();
+    }
+
+    public Map<String, Object> stats() {
+        long n = requests.sum(), t = throttled.sum();
+        Map<String, Object> m = new LinkedHashMap<>();
+        Map<String, Object> perKey = new LinkedHashMap<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            m.put("rate_rps", round(currentRate()));
+            m.put("recent_429_ratio", round(throttleEwma));
+            for (SteamKey k : keys) perKey.put(k.label(), k.stats(now));
+        }
+        m.put("requests", n);
+        m.put("throttled", t);
+        m.put("throttled_ratio", n == 0 ? 0.0 : round((double) t / n));
+        m.put("rate_cuts", cuts.sum());
+        m.put("avg_wait_ms", n == 0 ? 0.0 : round(waitNanos.sum() / 1e6 / n));
+        m.put("max_wait_ms", round(maxWaitNanos.get() / 1e6));
+        m.put("lanes", laneStats());
+        m.put("keys", perKey);
+        return m;
+    }
+
+    private Map<String, Object> laneStats() {
+        int[] queued = new int[LANES.length];
+        lanesLock.lock();
+        try {
+            for (int l = 0; l < LANES.length; l++) queued[l] = queues[l].size();
+        } finally {
+            lanesLock.unlock();
+        }
+
+        Map<String, Object> lanes = new LinkedHashMap<>();
+        for (int l = 0; l < LANES.length; l++) {
+            long granted = laneGranted[l].sum();
+            Map<String, Long> hist = new LinkedHashMap<>();
+            for (int b = 0; b < WAIT_BUCKETS_MS.length; b++)
+                hist.put("le_" + WAIT_BUCKETS_MS[b] + "ms", laneWaitHist[l][b].sum());
+            hist.put("gt_" + WAIT_BUCKETS_MS[WAIT_BUCKETS_MS.length - 1] + "ms",
+                    laneWaitHist[l][WAIT_BUCKETS_MS.length].sum());
+
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("queued", queued[l]);
+            m.put("min_share", minShare[l]);
+            m.put("granted", granted);
+            m.put("avg_wait_ms", granted == 0 ? 0.0 : round(laneWaitNanos[l].sum() / 1e6 / granted));
+            m.put("wait_histogram", hist);
+            lanes.put(LANES[l].name().toLowerCase(), m);
+        }
+        return lanes;
+    }
+
+    private double clamp(double r) {
+        return Math.max(minRate, Math.min(maxRate, r));
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,140 @@
+package db.migration;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code fact_ability_upgrades.ability_name VARCHAR(64)} → {@code ability_id
+ * SMALLINT UNSIGNED}, a key into the new {@code dim_ability_keys} dictionary.
+ * <p>
+ * Java, not SQL, because stored names have to be mapped back to Steam ids:
+ * {@code id_<n>} stubs carry the id, other names go through {@value #IDS} – a
+ * copy of dotaconstants' {@code ability_ids.json} frozen with this migration,
+ * so later refreshes of the application's snapshot do not change what it
+ * does. A build without that copy reads the same file from {@value #IDS_URL},
+ * where the old lookup table took its names from; the id of a published name
+ * does not change, so both give the same keys. Only a database that holds
+ * named upgrades needs either. A stored name neither resolves fails the
+ * migration: an invented key would split the ability from the real id new
+ * ingests write.
+ */
+public class V7__ability_keys extends BaseJavaMigration {
+
+    static final String IDS = "db/migration/V7__ability_ids.json";
+    static final String IDS_URL = "https://raw.githubusercontent.com/odota/dotaconstants/master/build/ability_ids.json";
+
+    @Override
+    public void migrate(Context context) {
+        JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+
+        jdbc.execute("""
+            CREATE TABLE dim_ability_keys (
+                ability_id    SMALLINT UNSIGNED PRIMARY KEY,   -- Steam ability id
+                ability_name  VARCHAR(255)      NOT NULL,      -- dim_abilities.ability_name або id_<n>
+                INDEX idx_ability_key_name (ability_name)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci""");
+
+        List<String> stored = jdbc.queryForList("SELECT DISTINCT ability_name FROM fact_ability_upgrades", String.class);
+        String[] snapshot = stored.stream().allMatch(n -> stubId(n) != null) ? readBundled() : readIds();
+        Map<String, Integer> bySnapshot = new HashMap<>();
+        List<Object[]> keys = new ArrayList<>();
+        for (int id = 0; id < snapshot.length; id++) {
+            if (snapshot[id] == null) continue;
+            bySnapshot.putIfAbsent(snapshot[id], id);
+            keys.add(new Object[] { id, snapshot[id] });
+        }
+
+        // every name already stored gets its key
+        List<Object[]> mapping = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        for (String name : stored) {
+            Integer id = stubId(name);
+            if (id == null) id = bySnapshot.get(name);
+            if (id == null) {
+                unknown.add(name);
+                continue;
+            }
+            mapping.add(new Object[] { name, id });
+            keys.add(new Object[] { id, id < snapshot.length && snapshot[id] != null ? snapshot[id] : name });
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalStateException(unknown.size() + " stored ability names have no id in " + IDS
+                    + " / " + IDS_URL + ": "
+                    + unknown.subList(0, Math.min(20, unknown.size())));
+        }
+        jdbc.batchUpdate("INSERT IGNORE INTO dim_ability_keys (ability_id, ability_name) VALUES (?,?)", keys);
+
+        jdbc.execute("""
+            CREATE TEMPORARY TABLE ability_key_map (
+                ability_name VARCHAR(64) COLLATE utf8mb4_unicode_ci PRIMARY KEY,
+                ability_id   SMALLINT UNSIGNED NOT NULL)""");
+        jdbc.batchUpdate("INSERT INTO ability_key_map (ability_name, ability_id) VALUES (?,?)", mapping);
+
+        jdbc.execute("ALTER TABLE fact_ability_upgrades ADD COLUMN ability_id SMALLINT UNSIGNED NULL AFTER sequence");
+        jdbc.execute("""
+            UPDATE fact_ability_upgrades f
+            JOIN ability_key_map k ON k.ability_name = f.ability_name
+            SET f.ability_id = k.ability_id""");
+        jdbc.execute("DROP TEMPORARY TABLE ability_key_map");
+
+        jdbc.execute("ALTER TABLE fact_ability_upgrades DROP FOREIGN KEY fk_upgrades_ability");
+        jdbc.execute("""
+            ALTER TABLE fact_ability_upgrades
+                DROP COLUMN ability_name,
+                MODIFY ability_id SMALLINT UNSIGNED NOT NULL,
+                ADD CONSTRAINT fk_upgrades_ability_key
+                    FOREIGN KEY (ability_id) REFERENCES dim_ability_keys (ability_id)""");
+    }
+
+    /** {@value #IDS}, or {@value #IDS_URL} when it is not bundled, as an id-indexed array. */
+    private static String[] readIds() {
+        String[] bundled = readBundled();
+        if (bundled.length > 0) return bundled;
+        try (InputStream in = URI.create(IDS_URL).toURL().openStream()) {
+            return parse(in);
+        } catch (IOException e) {
+            throw new IllegalStateException(IDS + " is not bundled and " + IDS_URL + " cannot be read", e);
+        }
+    }
+
+    /** {@value #IDS} as an id-indexed array; empty when it is not bundled. */
+    private static String[] readBundled() {
+        InputStream in = V7__ability_keys.class.getClassLoader().getResourceAsStream(IDS);
+        if (in == null) return new String[0];
+        try (in) {
+            return parse(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot read " + IDS, e);
+        }
+    }
+
+    private static String[] parse(InputStream in) throws IOException {
+        Map<String, String> raw = new ObjectMapper().readValue(in, new TypeReference<>() {});
+        int max = raw.keySet().stream().mapToInt(Integer::parseInt).max().orElse(-1);
+        String[] n = new String[max + 1];
+        raw.forEach((k, v) -> n[Integer.parseInt(k)] = v);
+        return n;
+    }
+
+    /** {@code id_<n>} as written for ids the old lookup table did not know. */
+    private static Integer stubId(String name) {
+        if (!name.startsWith("id_")) return null;
+        try {
+            return Integer.parseInt(name, 3, name.length(), 10);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
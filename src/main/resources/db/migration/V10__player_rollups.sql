@@ -0,0 +1,54 @@
+-- підсумки гравця за весь час і по героях; FactChunkWriter оновлює їх дельтою в транзакції chunk-а
+-- (SIGNED: дельта повторного ingest-у буває від'ємною)
+
+CREATE TABLE player_rollups (
+                                account_id   BIGINT UNSIGNED PRIMARY KEY,
+                                games        INT      NOT NULL,
+                                wins         INT      NOT NULL,
+                                kills        BIGINT   NOT NULL,
+                                deaths       BIGINT   NOT NULL,
+                                assists      BIGINT   NOT NULL,
+                                gpm_sum      BIGINT   NOT NULL,
+                                xpm_sum      BIGINT   NOT NULL,
+                                first_match  DATETIME NULL,
+                                last_match   DATETIME NULL
+) ENGINE=InnoDB
+  DEFAULT CHARSET=utf8mb4
+  COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE player_hero_rollups (
+                                     account_id   BIGINT UNSIGNED   NOT NULL,
+                                     hero_id      SMALLINT UNSIGNED NOT NULL,
+                                     games        INT      NOT NULL,
+                                     wins         INT      NOT NULL,
+                                     kills        BIGINT   NOT NULL,
+                                     deaths       BIGINT   NOT NULL,
+                                     assists      BIGINT   NOT NULL,
+                                     gpm_sum      BIGINT   NOT NULL,
+                                     xpm_sum      BIGINT   NOT NULL,
+                                     first_match  DATETIME NULL,
+                                     last_match   DATETIME NULL,
+                                     PRIMARY KEY (account_id, hero_id)
+) ENGINE=InnoDB
+  DEFAULT CHARSET=utf8mb4
+  COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO player_rollups
+SELECT pm.account_id, COUNT(*), SUM(pm.is_radiant = m.radiant_win),
+       IFNULL(SUM(pm.kills), 0), IFNULL(SUM(pm.deaths), 0), IFNULL(SUM(pm.assists), 0),
+       IFNULL(SUM(pm.gpm), 0), IFNULL(SUM(pm.xpm), 0),
+       MIN(m.start_time), MAX(m.start_time)
+FROM fact_player_match pm
+JOIN fact_matches m ON m.match_id = pm.match_id
+WHERE pm.account_id <> 4294967295
+GROUP BY pm.account_id;
+
+INSERT INTO player_hero_rollups
+SELECT pm.account_id, pm.hero_id, COUNT(*), SUM(pm.is_radiant = m.radiant_win),
+       IFNULL(SUM(pm.kills), 0), IFNULL(SUM(pm.deaths), 0), IFNULL(SUM(pm.assists), 0),
+       IFNULL(SUM(pm.gpm), 0), IFNULL(SUM(pm.xpm), 0),
+       MIN(m.start_time), MAX(m.start_time)
+FROM fact_player_match pm
+JOIN fact_matches m ON m.match_id = pm.match_id
+WHERE pm.account_id <> 4294967295
+GROUP BY pm.account_id, pm.hero_id;
@@ -0,0 +1,30 @@
+-- мета героїв: hero × день × lobby_type × game_mode; FactChunkWriter оновлює дельтою в транзакції chunk-а.
+-- kda_sum – сума (kills + assists) / deaths з 4 знаками, лише по рядках з deaths > 0 (їх kda_games),
+-- як AVG у старому /api/heroes/stats
+
+CREATE TABLE hero_meta_cube (
+                                day           DATE              NOT NULL,
+                                lobby_type    TINYINT           NOT NULL,
+                                game_mode     TINYINT           NOT NULL,
+                                hero_id       SMALLINT UNSIGNED NOT NULL,
+                                games         INT               NOT NULL,
+                                wins          INT               NOT NULL,
+                                kda_games     INT               NOT NULL,
+                                kda_sum       DECIMAL(20,4)     NOT NULL,
+                                duration_sum  BIGINT            NOT NULL,
+                                gpm_sum       BIGINT            NOT NULL,
+                                xpm_sum       BIGINT            NOT NULL,
+                                PRIMARY KEY (day, lobby_type, game_mode, hero_id)
+) ENGINE=InnoDB
+  DEFAULT CHARSET=utf8mb4
+  COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO hero_meta_cube
+SELECT DATE(m.start_time), IFNULL(m.lobby_type, 0), IFNULL(m.game_mode, 0), pm.hero_id,
+       COUNT(*), SUM(pm.is_radiant = m.radiant_win),
+       COUNT(CASE WHEN pm.deaths > 0 THEN 1 END),
+       IFNULL(SUM(ROUND((IFNULL(pm.kills, 0) + IFNULL(pm.assists, 0)) / NULLIF(pm.deaths, 0), 4)), 0),
+       SUM(m.duration_sec), IFNULL(SUM(pm.gpm), 0), IFNULL(SUM(pm.xpm), 0)
+FROM fact_player_match pm
+JOIN fact_matches m ON m.match_id = pm.match_id
+GROUP BY DATE(m.start_time), IFNULL(m.lobby_type, 0), IFNULL(m.game_mode, 0), pm.hero_id;
@@ -0,0 +1,26 @@
+-- пари гравців з одного матчу: ally = 1 – в одній команді, 0 – суперники.
+-- Кожна пара в обох напрямках; wins – перемоги account_id. FactChunkWriter оновлює дельтою.
+
+CREATE TABLE player_pair_stats (
+                                   account_id  BIGINT UNSIGNED NOT NULL,
+                                   ally        BOOLEAN         NOT NULL,
+                                   other_id    BIGINT UNSIGNED NOT NULL,
+                                   games       INT             NOT NULL,
+                                   wins        INT             NOT NULL,
+                                   PRIMARY KEY (account_id, ally, other_id),
+                                   INDEX idx_pair_top (account_id, ally, games DESC)
+) ENGINE=InnoDB
+  DEFAULT CHARSET=utf8mb4
+  COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO player_pair_stats
+SELECT p1.account_id, p1.is_radiant = p2.is_radiant, p2.account_id,
+       COUNT(*), SUM(p1.is_radiant = m.radiant_win)
+FROM fact_player_match p1
+JOIN fact_player_match p2
+  ON  p2.match_id = p1.match_id
+  AND p2.account_id <> p1.account_id
+  AND p2.account_id <> 4294967295
+JOIN fact_matches m ON m.match_id = p1.match_id
+WHERE p1.account_id <> 4294967295
+GROUP BY p1.account_id, p1.is_radiant = p2.is_radiant, p2.account_id;
@@ -0,0 +1,8 @@
+-- watermark черги: IngestWorkers ставить queued_match_id, коли історію акаунта поставлено в ingest_work;
+-- newest_match_id підтягується до нього, лише коли в ingest_work не лишилось жодного item-а акаунта
+
+ALTER TABLE ingest_watermarks
+    ADD COLUMN queued_match_id BIGINT UNSIGNED NULL AFTER newest_match_id;
+
+ALTER TABLE ingest_work
+    ADD INDEX idx_work_account (account_id);
@@ -0,0 +1,10 @@
+-- ключ рядка гравця: (match_id, player_slot) – потрібен для upsert/diff у FactChunkWriter
+
+DELETE p1 FROM fact_player_match p1
+    JOIN fact_player_match p2
+      ON p1.match_id    = p2.match_id
+     AND p1.player_slot = p2.player_slot
+     AND p1.id < p2.id;
+
+ALTER TABLE fact_player_match
+    ADD UNIQUE KEY uq_player_slot (match_id, player_slot);
@@ -0,0 +1,11 @@
+-- вікна GetMatchHistoryBySequenceNum, підготовлені для fullIngestJob (Spring Batch)
+
+CREATE TABLE ingest_backfill_windows (
+                                         job_instance_id BIGINT          NOT NULL,   -- BATCH_JOB_INSTANCE.JOB_INSTANCE_ID
+                                         start_seq       BIGINT UNSIGNED NOT NULL,
+                                         requested       TINYINT UNSIGNED NOT NULL,  -- ≤ 100
+                                         match_refs      TEXT            NOT NULL,   -- "match_id:seq_num,…"
+                                         PRIMARY KEY (job_instance_id, start_seq)
+) ENGINE=InnoDB
+  DEFAULT CHARSET=utf8mb4
+  COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,47 @@
+-- гравці, яких IngestScheduler опитує сам; до цього таблиця існувала лише в ручних інсталяціях –
+-- там вона вже є, тож колонки планувальника додаються окремо, кожна лише якщо її ще немає
+-- (MySQL 8 не має ADD COLUMN IF NOT EXISTS)
+
+CREATE TABLE IF NOT EXISTS tracked_players (
+                                 account_id       BIGINT UNSIGNED PRIMARY KEY              -- Steam32
+) ENGINE=InnoDB
+  DEFAULT CHARSET=utf8mb4
+  COLLATE=utf8mb4_unicode_ci;
+
+SET @ddl = (SELECT IF(COUNT(*) = 0,
+        'ALTER TABLE tracked_players ADD COLUMN added_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP', 'DO 0')
+    FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'tracked_players' AND column_name = 'added_at');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @ddl = (SELECT IF(COUNT(*) = 0,
+        'ALTER TABLE tracked_players ADD COLUMN last_polled_at DATETIME NULL', 'DO 0')
+    FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'tracked_players' AND column_name = 'last_polled_at');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+-- start_time найновішого матчу
+SET @ddl = (SELECT IF(COUNT(*) = 0,
+        'ALTER TABLE tracked_players ADD COLUMN last_match_at DATETIME NULL', 'DO 0')
+    FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'tracked_players' AND column_name = 'last_match_at');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+-- за останні 14 днів
+SET @ddl = (SELECT IF(COUNT(*) = 0,
+        'ALTER TABLE tracked_players ADD COLUMN matches_per_day FLOAT NOT NULL DEFAULT 0', 'DO 0')
+    FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'tracked_players' AND column_name = 'matches_per_day');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @ddl = (SELECT IF(COUNT(*) = 0,
+        'ALTER TABLE tracked_players ADD COLUMN next_poll_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP', 'DO 0')
+    FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'tracked_players' AND column_name = 'next_poll_at');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @ddl = (SELECT IF(COUNT(*) = 0,
+        'ALTER TABLE tracked_players ADD INDEX idx_tracked_next_poll (next_poll_at)', 'DO 0')
+    FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'tracked_players' AND index_name = 'idx_tracked_next_poll');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
@@ -0,0 +1,9 @@
+-- найновіший match_id, до якого історію гравця вже повністю пройдено (потокове full-ingest)
+
+CREATE TABLE ingest_watermarks (
+                                   account_id       BIGINT UNSIGNED PRIMARY KEY,   -- Steam32
+                                   newest_match_id  BIGINT UNSIGNED NOT NULL,
+                                   updated_at       DATETIME        NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB
+  DEFAULT CHARSET=utf8mb4
+  COLLATE=utf8mb4_unicode_ci;
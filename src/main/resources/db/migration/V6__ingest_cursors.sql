@@ -0,0 +1,9 @@
+-- курсори потокових ingest-ів по GetMatchHistoryBySequenceNum (firehose): наступний seq_num до читання
+
+CREATE TABLE ingest_cursors (
+                                cursor_name  VARCHAR(32)     PRIMARY KEY,
+                                next_seq     BIGINT UNSIGNED NOT NULL,
+                                updated_at   DATETIME        NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB
+  DEFAULT CHARSET=utf8mb4
+  COLLATE=utf8mb4_unicode_ci;
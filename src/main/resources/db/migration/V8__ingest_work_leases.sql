@@ -0,0 +1,24 @@
+-- кілька інстансів бекенду: робота розбирається через SELECT … FOR UPDATE SKIP LOCKED і lease-и з heartbeat-ом
+
+ALTER TABLE tracked_players
+    ADD COLUMN lease_owner VARCHAR(64) NULL,                  -- steam.work.node-id інстансу, що опитує гравця
+    ADD COLUMN lease_until DATETIME(3) NULL,                  -- після цього будь-який інстанс може забрати
+    ADD INDEX idx_tracked_lease_owner (lease_owner);
+
+-- діапазони MatchRef повної історії, які забирає будь-який інстанс (IngestWorkers)
+CREATE TABLE ingest_work (
+                             work_id      BIGINT           AUTO_INCREMENT PRIMARY KEY,
+                             account_id   BIGINT UNSIGNED  NOT NULL,
+                             match_refs   MEDIUMTEXT       NOT NULL,             -- "match_id:seq_num,…" за seq_num
+                             bulk         TINYINT(1)       NOT NULL,
+                             force_fetch  TINYINT(1)       NOT NULL,
+                             attempts     TINYINT UNSIGNED NOT NULL DEFAULT 0,
+                             last_error   VARCHAR(255)     NULL,
+                             lease_owner  VARCHAR(64)      NULL,
+                             lease_until  DATETIME(3)      NULL,
+                             created_at   DATETIME         NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                             INDEX idx_work_lease_until (lease_until),
+                             INDEX idx_work_lease_owner (lease_owner)
+) ENGINE=InnoDB
+  DEFAULT CHARSET=utf8mb4
+  COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,12 @@
+-- start_time матчу в рядку гравця: keyset-пагінація історії гравця по (start_time, match_id) одним індексом
+
+ALTER TABLE fact_player_match
+    ADD COLUMN start_time DATETIME NULL;
+
+UPDATE fact_player_match pm
+    JOIN fact_matches m ON m.match_id = pm.match_id
+SET pm.start_time = m.start_time;
+
+ALTER TABLE fact_player_match
+    MODIFY start_time DATETIME NOT NULL,
+    ADD INDEX idx_player_recent (account_id, start_time DESC, match_id DESC);
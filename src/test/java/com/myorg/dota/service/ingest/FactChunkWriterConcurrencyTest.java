@@ -0,0 +1,164 @@
+package com.myorg.dota.service.ingest;
+
+import com.myorg.dota.service.analytics.ColumnarStore;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two writers of the same new match at once – another node, or the firehose
+ * next to a per-player run – must store it once and move the rollups, pair
+ * stats and hero cube once.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class FactChunkWriterConcurrencyTest {
+
+    @Container
+    static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    static final int ROUNDS = 20;
+    static final long FIRST_MATCH = 7_000_000_000L;
+
+    static JdbcTemplate jdbc;
+    static TransactionTemplate tx;
+    static FactChunkWriter writer;
+
+    @BeforeAll
+    static void schema() {
+        DriverManagerDataSource ds = new DriverManagerDataSource(
+                MYSQL.getJdbcUrl() + "?rewriteBatchedStatements=true", MYSQL.getUsername(), MYSQL.getPassword());
+        Flyway.configure().dataSource(ds).load().migrate();
+
+        jdbc = new JdbcTemplate(ds);
+        tx = new TransactionTemplate(new DataSourceTransactionManager(ds));
+        tx.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        for (int h = 1; h <= 10; h++) {
+            jdbc.update("""
+                    INSERT INTO dim_heroes (hero_id, name_en, api_name, short_name, primary_attr, attack_type,
+                                            roles, img_portrait, img_full, valid_from)
+                    VALUES (?, ?, ?, ?, 'str', 'Melee', 'Carry', '', '', CURDATE())""",
+                    h, "hero" + h, "npc_dota_hero_" + h, "h" + h);
+        }
+        writer = new FactChunkWriter(new NamedParameterJdbcTemplate(jdbc), new BulkLoader(jdbc),
+                new KnownMatchIndex(jdbc), new AbilityDictionary(jdbc),
+                new PlayerRollups(jdbc), new PlayerPairs(jdbc), new HeroMetaCube(jdbc),
+                new StaticListableBeanFactory().getBeanProvider(ColumnarStore.class));
+    }
+
+    @AfterEach
+    void clean() {
+        jdbc.update("DELETE FROM fact_matches");
+        jdbc.update("DELETE FROM player_rollups");
+        jdbc.update("DELETE FROM player_hero_rollups");
+        jdbc.update("DELETE FROM player_pair_stats");
+        jdbc.update("DELETE FROM hero_meta_cube");
+    }
+
+    @Test
+    void concurrentWritesOfOneNewMatchCountItOnce() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int r = 0; r < ROUNDS; r++) {
+                long matchId = FIRST_MATCH + r;
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> writes = new ArrayList<>();
+                for (int w = 0; w < 2; w++) {
+                    writes.add(pool.submit(() -> {
+                        start.await();
+                        writeRetrying(chunk(matchId));
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> f : writes) f.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(count("SELECT COUNT(*) FROM fact_matches")).isEqualTo(ROUNDS);
+        assertThat(count("SELECT COUNT(*) FROM fact_player_match")).isEqualTo(ROUNDS * 10);
+        assertThat(count("SELECT MIN(games) FROM player_rollups")).isEqualTo(ROUNDS);
+        assertThat(count("SELECT MAX(games) FROM player_rollups")).isEqualTo(ROUNDS);
+        assertThat(count("SELECT MAX(games) FROM player_hero_rollups")).isEqualTo(ROUNDS);
+        assertThat(count("SELECT MAX(games) FROM player_pair_stats")).isEqualTo(ROUNDS);
+        assertThat(count("SELECT COUNT(*) FROM player_pair_stats")).isEqualTo(10 * 9);
+        assertThat(count("SELECT SUM(games) FROM hero_meta_cube")).isEqualTo(ROUNDS * 10);
+    }
+
+    @Test
+    void rewritingAStoredMatchLeavesTheAggregatesAlone() {
+        writeRetrying(chunk(FIRST_MATCH));
+        writeRetrying(chunk(FIRST_MATCH));
+        tx.executeWithoutResult(s -> writer.replace(chunk(FIRST_MATCH), false));
+
+        assertThat(count("SELECT MAX(games) FROM player_rollups")).isEqualTo(1);
+        assertThat(count("SELECT MAX(games) FROM player_pair_stats")).isEqualTo(1);
+        assertThat(count("SELECT SUM(games) FROM hero_meta_cube")).isEqualTo(10);
+    }
+
+    /** As the ingest does: a chunk that lost a deadlock is written again whole. */
+    private static void writeRetrying(ChunkRows rows) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                tx.executeWithoutResult(s -> writer.write(rows, false));
+                return;
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt == 5) throw e;
+            }
+        }
+    }
+
+    private static long count(String sql) {
+        Long n = jdbc.queryForObject(sql, Long.class);
+        return n == null ? 0 : n;
+    }
+
+    /** One ranked all-pick match: players 101…110 on heroes 1…10, radiant wins. */
+    private static ChunkRows chunk(long matchId) {
+        MatchScratch m = new MatchScratch();
+        m.reset();
+        m.matchId = matchId;
+        m.seqNum = matchId;
+        m.startTime = 1_700_000_000L + matchId % 100_000;
+        m.duration = 2400;
+        m.radiantWin = true;
+        m.lobbyType = 7;
+        m.gameMode = 22;
+        for (int i = 0; i < 10; i++) {
+            MatchScratch.Player p = m.nextPlayer();
+            p.accountId = 101 + i;
+            p.slot = i < 5 ? i : 128 + i - 5;
+            p.heroId = 1 + i;
+            p.kills = i;
+            p.deaths = 2;
+            p.assists = 3;
+            p.gpm = 500;
+            p.xpm = 600;
+        }
+        ChunkRows rows = new ChunkRows(1);
+        rows.append(m);
+        return rows;
+    }
+}
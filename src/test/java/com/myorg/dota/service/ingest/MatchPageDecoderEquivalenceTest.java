@@ -0,0 +1,160 @@
+package com.myorg.dota.service.ingest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link StreamingMatchDecoder} must produce exactly the rows
+ * {@link TreeMatchDecoder} does – on Steam-shaped pages and on the shapes
+ * Steam only sometimes sends. Rows are compared table by table in their
+ * {@code LOAD DATA} form, so every column and the row order count.
+ */
+class MatchPageDecoderEquivalenceTest {
+
+    static final MatchPageDecoder TREE   = new TreeMatchDecoder(new ObjectMapper());
+    static final MatchPageDecoder STREAM = new StreamingMatchDecoder(new JsonFactory());
+
+    @Test
+    void syntheticPages() {
+        for (int upgrades : new int[] { 0, 1, 25 }) {
+            for (long seed = 1; seed <= 5; seed++) {
+                byte[] page = SyntheticMatchPayloads.page(7_000_000_000L, 6_000_000_000L, 100, upgrades, seed);
+                Decoded tree = assertSame(page, id -> true, m -> true);
+                assertThat(tree.page()).isEqualTo(new MatchPageDecoder.DecodedPage(100, 6_000_000_099L));
+                assertThat(tree.tables().get("matches").lines()).hasSize(100);
+                assertThat(tree.tables().get("players").lines()).hasSize(1_000);
+                assertThat(tree.tables().get("upgrades").lines()).hasSize(1_000 * upgrades);
+            }
+        }
+    }
+
+    @Test
+    void syntheticPageWithUnwantedAndFilteredMatches() {
+        byte[] page = SyntheticMatchPayloads.page(7_000_000_000L, 6_000_000_000L, 100, 5, 42);
+        Decoded tree = assertSame(page, id -> id % 3 != 0, m -> m.lobbyType == 7 && m.gameMode == 22);
+        assertThat(tree.page().returned()).isEqualTo(100);
+        assertThat(tree.tables().get("matches").lines().count()).isBetween(1L, 99L);
+    }
+
+    @Test
+    void matchWithoutPlayers() {
+        Decoded tree = assertSame(page("""
+                {"match_id": 11, "match_seq_num": 21, "start_time": 1700000000, "duration": 1800,
+                 "radiant_win": true, "lobby_type": 7, "game_mode": 22}"""), id -> true, m -> true);
+        assertThat(tree.tables().get("matches").lines()).hasSize(1);
+        assertThat(tree.tables().get("players")).isEmpty();
+    }
+
+    @Test
+    void playersWithoutAbilityUpgrades() {
+        Decoded tree = assertSame(page("""
+                {"players": [
+                   {"account_id": 100, "player_slot": 0, "hero_id": 1, "kills": 3, "item_0": 29, "item_9": 7},
+                   {"account_id": 4294967295, "player_slot": 128, "hero_id": 2, "ability_upgrades": []}
+                 ],
+                 "match_id": 12, "match_seq_num": 22, "start_time": 1700000000, "radiant_win": false}"""),
+                id -> true, m -> true);
+        assertThat(tree.tables().get("players").lines()).hasSize(2);
+        assertThat(tree.tables().get("items").lines()).hasSize(2);
+        assertThat(tree.tables().get("upgrades")).isEmpty();
+    }
+
+    @Test
+    void unknownFieldsAreSkipped() {
+        String json = """
+                {"note": {"deep": [1, {"x": [2, 3]}]},
+                 "result": {"status": 1, "extra": [{"a": 1}], "num_results": 1,
+                  "matches": [
+                   {"new_block": {"players": [{"account_id": 999}]},
+                    "players": [
+                      {"account_id": 100, "player_slot": 0, "hero_id": 1,
+                       "hero_variant": 2, "cosmetics": [{"item": 1}], "future": {"k": "v"},
+                       "ability_upgrades": [{"ability": 5001, "time": 60, "level": 1, "kind": {"x": 1}}]}
+                    ],
+                    "match_id": 13, "match_seq_num": 23, "start_time": 1700000000,
+                    "picks_bans": [{"is_pick": true, "hero_id": 1, "team": 0, "order": 0, "extra": [1]}],
+                    "trailing": [1, 2, 3], "flag": null}
+                  ],
+                  "trailer": "x"}}""";
+        Decoded tree = assertSame(json.getBytes(StandardCharsets.UTF_8), id -> true, m -> true);
+        assertThat(tree.tables().get("players").lines()).hasSize(1);
+        assertThat(tree.tables().get("upgrades").lines()).hasSize(1);
+        assertThat(tree.tables().get("picks").lines()).hasSize(1);
+    }
+
+    @Test
+    void filteredMatchIsCountedButNotEmitted() {
+        byte[] body = page("""
+                {"match_id": 14, "match_seq_num": 24, "lobby_type": 0, "players": [{"account_id": 1}]}""", """
+                {"match_id": 15, "match_seq_num": 25, "lobby_type": 7, "players": [{"account_id": 2}]}""");
+        Decoded tree = assertSame(body, id -> true, m -> m.lobbyType == 7);
+        assertThat(tree.page()).isEqualTo(new MatchPageDecoder.DecodedPage(2, 25));
+        assertThat(tree.tables().get("matches").lines()).hasSize(1);
+        assertThat(tree.tables().get("players").lines()).hasSize(1);
+    }
+
+    @Test
+    void emptyAndMalformedResults() {
+        for (String json : new String[] { "{}", "{\"result\": {}}", "{\"result\": {\"matches\": []}}",
+                                          "{\"result\": {\"status\": 15, \"statusDetail\": \"x\"}}" }) {
+            Decoded tree = assertSame(json.getBytes(StandardCharsets.UTF_8), id -> true, m -> true);
+            assertThat(tree.page()).isEqualTo(MatchPageDecoder.DecodedPage.EMPTY);
+        }
+    }
+
+    private static Decoded assertSame(byte[] body, LongPredicate wanted, Predicate<MatchScratch> keep) {
+        Decoded tree   = decode(TREE, body, wanted, keep);
+        Decoded stream = decode(STREAM, body, wanted, keep);
+        assertThat(stream.page()).isEqualTo(tree.page());
+        assertThat(stream.tables()).isEqualTo(tree.tables());
+        return tree;
+    }
+
+    private static Decoded decode(MatchPageDecoder decoder, byte[] body,
+                                  LongPredicate wanted, Predicate<MatchScratch> keep) {
+        ChunkRows rows = new ChunkRows(4);
+        MatchPageDecoder.DecodedPage page;
+        try {
+            page = decoder.decode(body, wanted, keep, rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Map<String, String> tables = new LinkedHashMap<>();
+        tables.put("matches",  tsv(rows.matches::writeTsv));
+        tables.put("teams",    tsv(rows.teams::writeTsv));
+        tables.put("players",  tsv(rows.players::writeTsv));
+        tables.put("items",    tsv(rows.items::writeTsv));
+        tables.put("upgrades", tsv(rows.upgrades::writeTsv));
+        tables.put("picks",    tsv(rows.picks::writeTsv));
+        return new Decoded(page, tables);
+    }
+
+    private static String tsv(Consumer<TsvBuffer> table) {
+        TsvBuffer buf = new TsvBuffer(1 << 16);
+        table.accept(buf);
+        try {
+            return new String(buf.stream().readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] page(String... matches) {
+        return ("{\"result\": {\"status\": 1, \"matches\": [" + String.join(",", matches) + "]}}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    record Decoded(MatchPageDecoder.DecodedPage page, Map<String, String> tables) { }
+}